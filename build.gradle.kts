@@ -12,6 +12,9 @@ plugins {
 
     // Apply the application plugin to add support for building a CLI application
     application
+
+    // Apply the JMH plugin to run the micro benchmarks in src/jmh/java (./gradlew jmh)
+    id("me.champeau.gradle.jmh") version "0.5.0"
 }
 
 repositories {
@@ -37,6 +40,10 @@ application {
     mainClassName = "grupra.App"
 }
 
+jmh {
+    jmhVersion = "1.23"
+}
+
 val test by tasks.getting(Test::class) {
     // Use junit platform for unit tests
     useJUnitPlatform()
@@ -0,0 +1,111 @@
+package propra.imageconverter.image.compression.huffman;
+
+import org.openjdk.jmh.annotations.*;
+import propra.imageconverter.base.BitOutputStream;
+import propra.imageconverter.image.compression.huffman.tree.BitPattern;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
+import propra.imageconverter.image.compression.huffman.tree.Node;
+import propra.imageconverter.image.compression.iterator.PixelIterator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die Kosten pro Byte beim Schreiben Huffman-kodierter Daten: byteweise über
+ * eine HashMap für die Häufigkeiten und eine Map von BitPattern für die Codes (bisheriges
+ * Vorgehen) gegenüber dem HuffmanCompressionWriter mit Histogramm und Codetabelle.
+ * <p>
+ * Ausführen mit {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(HuffmanWriterBenchmark.NUMBER_OF_BYTES)
+public class HuffmanWriterBenchmark {
+    static final int WIDTH = 1024;
+    static final int HEIGHT = 342;
+    static final int NUMBER_OF_BYTES = WIDTH * HEIGHT * 3;
+
+    private byte[][] rows;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        rows = new byte[HEIGHT][WIDTH * 3];
+
+        // Schiefe Verteilung wie bei typischen Bildern
+        for (byte[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) (random.nextGaussian() * 24);
+            }
+        }
+    }
+
+    private PixelIterator pixelIterator() {
+        return new PixelIterator() {
+            private int currentRow = 0;
+
+            @Override
+            public void readNextRow(byte[] targetRow) {
+                System.arraycopy(rows[currentRow++], 0, targetRow, 0, WIDTH * 3);
+            }
+
+            @Override
+            public boolean hasNextRow() {
+                return currentRow < HEIGHT;
+            }
+
+            @Override
+            public void reset() {
+                currentRow = 0;
+            }
+
+            @Override
+            public int getWidth() {
+                return WIDTH;
+            }
+
+            @Override
+            public int getHeight() {
+                return HEIGHT;
+            }
+        };
+    }
+
+    @Benchmark
+    public long mapBased() throws IOException {
+        ByteIterator byteData = new ByteIterator(pixelIterator());
+        BitOutputStream outputStream = new BitOutputStream(OutputStream.nullOutputStream());
+
+        Map<Byte, Integer> byteToOccurences = new HashMap<>();
+        while (byteData.hasNextByte()) {
+            byteToOccurences.merge(byteData.readNextByte(), 1, Integer::sum);
+        }
+        byteData.reset();
+
+        Node huffmanTree = HuffmanTree.constructForOccurenceMap(byteToOccurences);
+        long writtenBits = huffmanTree.writeTree(outputStream);
+        Map<Byte, BitPattern> huffmanMap = huffmanTree.constructHuffmanMap();
+
+        while (byteData.hasNextByte()) {
+            BitPattern selectedPattern = huffmanMap.get(byteData.readNextByte());
+
+            outputStream.writeBits(selectedPattern.getNumberOfBits(), selectedPattern.getBitPattern());
+            writtenBits += selectedPattern.getNumberOfBits();
+        }
+
+        return writtenBits;
+    }
+
+    @Benchmark
+    public long tableBased() throws IOException {
+        return new HuffmanCompressionWriter().write(pixelIterator(), OutputStream.nullOutputStream());
+    }
+}
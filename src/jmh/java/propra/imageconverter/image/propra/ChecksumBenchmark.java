@@ -0,0 +1,55 @@
+package propra.imageconverter.image.propra;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die byteweise Berechnung der Prüfsumme ({@link Checksum#calcStreamingChecksum})
+ * mit der blockweisen Berechnung über Arrays und Puffer ohne zugrundeliegendes Array.
+ * <p>
+ * Ausführen mit {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChecksumBenchmark {
+    @Param({"65536", "16777216"})
+    private int length;
+
+    private byte[] data;
+    private ByteBuffer directData;
+
+    @Setup
+    public void setup() {
+        data = new byte[length];
+        new Random(42).nextBytes(data);
+
+        directData = ByteBuffer.allocateDirect(length);
+        directData.put(data).flip();
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
+
+        return Checksum.calcStreamingChecksum(length, inputStream::read);
+    }
+
+    @Benchmark
+    public long blockArray() {
+        return Checksum.calcChecksum(data, 0, length);
+    }
+
+    @Benchmark
+    public long blockDirectBuffer() {
+        return Checksum.calcChecksum(directData.duplicate());
+    }
+}
@@ -0,0 +1,146 @@
+package propra.imageconverter;
+
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.binary.OutputMode;
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.DecodingMode;
+import propra.imageconverter.image.ExecutionMode;
+import propra.imageconverter.image.compression.selector.AutoSelectionMode;
+import propra.imageconverter.image.propra.ChecksumVerification;
+
+/**
+ * Optionale Einstellungen für die Konvertierung einer Bilddatei, die
+ * die Ausführung beeinflussen, nicht aber das Ergebnis.
+ * <p>
+ * Instanzen sind unveränderlich; die with-Methoden geben eine
+ * angepasste Kopie zurück.
+ */
+final class ConversionOptions {
+    private final InputMode inputMode;
+    private final ChecksumVerification checksumVerification;
+    private final AutoSelectionMode autoSelectionMode;
+    private final int rowIndexInterval;
+    private final DecodingMode decodingMode;
+    private final ExecutionMode executionMode;
+    private final OutputMode outputMode;
+    private final int blockSize;
+
+    private ConversionOptions(
+            InputMode inputMode,
+            ChecksumVerification checksumVerification,
+            AutoSelectionMode autoSelectionMode,
+            int rowIndexInterval,
+            DecodingMode decodingMode,
+            ExecutionMode executionMode,
+            OutputMode outputMode,
+            int blockSize
+    ) {
+        this.inputMode = inputMode;
+        this.checksumVerification = checksumVerification;
+        this.autoSelectionMode = autoSelectionMode;
+        this.rowIndexInterval = rowIndexInterval;
+        this.decodingMode = decodingMode;
+        this.executionMode = executionMode;
+        this.outputMode = outputMode;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Gibt die Standardeinstellungen zurück.
+     */
+    static ConversionOptions defaults() {
+        return new ConversionOptions(InputMode.BUFFERED, ChecksumVerification.WHILE_DECODING, AutoSelectionMode.ESTIMATE, 0, DecodingMode.SERIAL, ExecutionMode.SEQUENTIAL, OutputMode.BUFFERED, ReadWriteFile.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Der Modus, in dem die Eingabedatei gelesen wird.
+     */
+    InputMode getInputMode() {
+        return inputMode;
+    }
+
+    /**
+     * Gibt an, wann die Prüfsumme einer Propra-Eingabedatei überprüft wird.
+     */
+    ChecksumVerification getChecksumVerification() {
+        return checksumVerification;
+    }
+
+    /**
+     * Gibt an, wie für den Kompressionstyp AUTO die Kompression ausgewählt wird.
+     */
+    AutoSelectionMode getAutoSelectionMode() {
+        return autoSelectionMode;
+    }
+
+    /**
+     * Gibt an, für jede wievielte Bildzeile ein Eintrag in den Zeilenindex neben
+     * der Ausgabedatei geschrieben wird (siehe RowIndex); 0, falls kein Zeilenindex
+     * geschrieben wird.
+     */
+    int getRowIndexInterval() {
+        return rowIndexInterval;
+    }
+
+    /**
+     * Gibt an, wie die Bilddaten der Eingabedatei dekodiert werden.
+     */
+    DecodingMode getDecodingMode() {
+        return decodingMode;
+    }
+
+    /**
+     * Gibt an, wie die Schritte der Konvertierung auf Threads verteilt werden.
+     */
+    ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Gibt an, wie die Ausgabedatei geschrieben wird. Im Ausführungsmodus
+     * PIPELINED wird sie immer im Modus WRITE_BEHIND geschrieben.
+     */
+    OutputMode getOutputMode() {
+        return outputMode;
+    }
+
+    /**
+     * Größe der Blöcke in Bytes, in denen die Dateien in den Modi
+     * READ_AHEAD und WRITE_BEHIND gelesen und geschrieben werden.
+     */
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    ConversionOptions withInputMode(InputMode inputMode) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+
+    ConversionOptions withChecksumVerification(ChecksumVerification checksumVerification) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+
+    ConversionOptions withAutoSelectionMode(AutoSelectionMode autoSelectionMode) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+
+    ConversionOptions withRowIndexInterval(int rowIndexInterval) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+
+    ConversionOptions withDecodingMode(DecodingMode decodingMode) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+
+    ConversionOptions withExecutionMode(ExecutionMode executionMode) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+
+    ConversionOptions withOutputMode(OutputMode outputMode) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+
+    ConversionOptions withBlockSize(int blockSize) {
+        return new ConversionOptions(inputMode, checksumVerification, autoSelectionMode, rowIndexInterval, decodingMode, executionMode, outputMode, blockSize);
+    }
+}
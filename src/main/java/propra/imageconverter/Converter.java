@@ -1,9 +1,16 @@
 package propra.imageconverter;
 
 import propra.PropraException;
+import propra.imageconverter.binary.OutputMode;
 import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.ChannelOrder;
+import propra.imageconverter.image.DecodingMode;
+import propra.imageconverter.image.ExecutionMode;
 import propra.imageconverter.image.ImageReader;
 import propra.imageconverter.image.ImageWriter;
+import propra.imageconverter.image.ParallelImageReader;
+import propra.imageconverter.image.PipelinedImageReader;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.propra.PropraReader;
 import propra.imageconverter.image.propra.PropraWriter;
@@ -12,6 +19,7 @@ import propra.imageconverter.image.tga.TgaWriter;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static propra.imageconverter.util.PathUtils.calcFileExtension;
@@ -23,9 +31,44 @@ final class Converter {
 
     /**
      * Erstellt einen ImageReader für das Format, welches anhand der
-     * Dateiendung des übergebenen Pfads erkannt wurde.
+     * Dateiendung des übergebenen Pfads erkannt wurde. Die Einstellungen
+     * {@param options} werden an den ImageReader weitergegeben; im Modus
+     * ExecutionMode.PIPELINED liefert er die Bildzeilen bereits in der
+     * Reihenfolge {@param targetOrder} des ImageWriters.
      */
-    private static ImageReader createImageReaderForFileName(Path path, ReadWriteFile readWriteFile)
+    private static ImageReader createImageReaderForFileName(
+            Path path,
+            ReadWriteFile readWriteFile,
+            ConversionOptions options,
+            ChannelOrder targetOrder
+    ) throws IOException {
+        ImageReader imageReader = createFormatImageReaderForFileName(path, readWriteFile, options);
+
+        try {
+            if (options.getDecodingMode() == DecodingMode.PARALLEL)
+                imageReader = ParallelImageReader.create(imageReader);
+
+            if (options.getExecutionMode() == ExecutionMode.PIPELINED)
+                imageReader = PipelinedImageReader.create(imageReader, targetOrder);
+
+            return imageReader;
+        } catch (IOException | RuntimeException e) {
+            try {
+                imageReader.close();
+            } catch (Exception closeException) {
+                e.addSuppressed(closeException);
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Erstellt den ImageReader des Formats. Der Dekodiermodus wird nur für
+     * Huffman-kodierte Propra-Dateien berücksichtigt, die der PropraReader selbst
+     * parallel dekodiert.
+     */
+    private static ImageReader createFormatImageReaderForFileName(Path path, ReadWriteFile readWriteFile, ConversionOptions options)
             throws IOException {
         String extension = calcFileExtension(path.getFileName().toString());
 
@@ -33,7 +76,7 @@ final class Converter {
             case "tga":
                 return TgaReader.create(readWriteFile);
             case "propra":
-                return PropraReader.create(readWriteFile);
+                return PropraReader.create(readWriteFile, options.getChecksumVerification(), options.getDecodingMode());
         }
 
         throw new PropraException("Das Format mit der Dateiendung " + extension + " wird nicht unterstützt.");
@@ -46,15 +89,16 @@ final class Converter {
      */
     private static ImageWriter createImageWriterForFileName(
             Path path,
-            CompressionType compressionType
+            CompressionType compressionType,
+            ConversionOptions options
     ) {
         String extension = calcFileExtension(path.getFileName().toString());
 
         switch (extension) {
             case "tga":
-                return new TgaWriter(compressionType);
+                return new TgaWriter(compressionType, options.getAutoSelectionMode());
             case "propra":
-                return new PropraWriter(compressionType);
+                return new PropraWriter(compressionType, options.getAutoSelectionMode());
         }
 
         throw new PropraException("Das Format mit der Dateiendung " + extension + " wird nicht unterstützt.");
@@ -70,34 +114,114 @@ final class Converter {
             Path outputFilePath,
             CompressionType compression
     ) throws Exception {
+        convert(inputFilePath, outputFilePath, compression, ConversionOptions.defaults());
+    }
+
+    /**
+     * Wie oben, allerdings mit den übergebenen Einstellungen {@param options} für die
+     * Ausführung der Konvertierung.
+     */
+    public static void convert(
+            Path inputFilePath,
+            Path outputFilePath,
+            CompressionType compression,
+            ConversionOptions options
+    ) throws Exception {
+        ImageWriter imageWriter = createImageWriterForFileName(
+                outputFilePath,
+                compression,
+                options
+        );
+
         // Öffnet die Eingabedatei zum Lesen.
         // Wird implizit durch das Schließen des ImageReader geschlossen.
         ReadWriteFile inputReadWriteFile =
-                ReadWriteFile.createReadWriteFile(
-                        new RandomAccessFile(
-                                inputFilePath.toFile(), "r"
-                        )
+                ReadWriteFile.openForReading(
+                        inputFilePath,
+                        options.getInputMode(),
+                        options.getBlockSize()
                 );
 
         try (ImageReader imageReader = createImageReaderForFileName(
                 inputFilePath,
-                inputReadWriteFile
+                inputReadWriteFile,
+                options,
+                imageWriter.getChannelOrder()
         )) {
             // Öffnet die Ausgabedatei zum Lesen und zum Schreiben
             // Wird implizit durch das Schließen des ImageWriter geschlossen.
             ReadWriteFile outputReadWriteFile = ReadWriteFile.overwriteReadWriteFile(
                     new RandomAccessFile(
                             outputFilePath.toFile(), "rw"
-                    )
+                    ),
+                    options.getExecutionMode() == ExecutionMode.PIPELINED
+                            ? OutputMode.WRITE_BEHIND
+                            : options.getOutputMode(),
+                    options.getBlockSize()
             );
 
             try (outputReadWriteFile) {
-                ImageWriter imageWriter = createImageWriterForFileName(
-                        outputFilePath,
-                        compression
-                );
+                write(imageReader, imageWriter, outputReadWriteFile, outputFilePath, options);
+            } catch (Exception e) {
+                deleteIncompleteOutput(outputFilePath, e);
+
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Schreibt die Bilddaten von {@param imageReader} mit {@param imageWriter} in die geöffnete
+     * Ausgabedatei {@param outputFilePath} und ersetzt oder löscht deren Zeilenindex.
+     */
+    private static void write(
+            ImageReader imageReader,
+            ImageWriter imageWriter,
+            ReadWriteFile outputReadWriteFile,
+            Path outputFilePath,
+            ConversionOptions options
+    ) throws IOException {
+        RowIndex rowIndex = null;
+
+        // Ist die Eingabedatei bereits mit der gewünschten Kompression gespeichert,
+        // übertragen wir die kodierten Daten, ohne sie zu dekodieren. Für den
+        // Zeilenindex müssen die Bildzeilen dagegen neu geschrieben werden.
+        boolean transcoded = options.getRowIndexInterval() == 0
+                && imageWriter.transcode(imageReader, outputReadWriteFile);
 
-                imageWriter.write(imageReader, outputReadWriteFile);
+        if (!transcoded) {
+            // Ein abgebrochener Versuch kann bereits Daten geschrieben haben.
+            outputReadWriteFile.setLength(0);
+
+            RowIndex.Builder rowIndexBuilder = options.getRowIndexInterval() > 0
+                    ? RowIndex.Builder.everyNthRow(options.getRowIndexInterval())
+                    : RowIndex.Builder.disabled();
+
+            rowIndex = imageWriter.write(imageReader, outputReadWriteFile, rowIndexBuilder);
+        }
+
+        // Ein bereits vorhandener Zeilenindex gehört zur
+        // überschriebenen Datei und wird daher ersetzt oder gelöscht.
+        Path rowIndexPath = RowIndex.sidecarPathFor(outputFilePath);
+
+        if (rowIndex != null)
+            rowIndex.write(rowIndexPath);
+        else
+            Files.deleteIfExists(rowIndexPath);
+    }
+
+    /**
+     * Löscht nach dem Fehler {@param error} die unvollständige Ausgabedatei {@param outputFilePath}
+     * und ihren Zeilenindex. Da die Prüfsumme einer Propra-Eingabedatei standardmäßig erst beim
+     * Dekodieren überprüft wird, kann die Ausgabedatei zu diesem Zeitpunkt bereits Daten enthalten.
+     * Fehler beim Löschen werden an {@param error} angehängt.
+     */
+    private static void deleteIncompleteOutput(Path outputFilePath, Exception error) {
+        for (Path path : new Path[]{outputFilePath, RowIndex.sidecarPathFor(outputFilePath)}) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException deleteException) {
+                error.addSuppressed(deleteException);
             }
         }
     }
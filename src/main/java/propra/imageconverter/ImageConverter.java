@@ -1,8 +1,14 @@
 package propra.imageconverter;
 
 import propra.PropraException;
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.binary.OutputMode;
 import propra.imageconverter.cmd.CommandLineParser;
+import propra.imageconverter.image.DecodingMode;
+import propra.imageconverter.image.ExecutionMode;
 import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.compression.selector.AutoSelectionMode;
+import propra.imageconverter.image.propra.ChecksumVerification;
 import propra.imageconverter.util.PathUtils;
 
 import java.nio.file.Path;
@@ -95,6 +101,42 @@ public final class ImageConverter {
                 .resolve(file.getFileName() + "." + newExtension);
     }
 
+    /**
+     * Wandelt das Kommandozeilenargument für das Intervall des Zeilenindex um.
+     */
+    private static int parseRowIndexInterval(String cmdLineArg) {
+        int interval;
+
+        try {
+            interval = Integer.parseInt(cmdLineArg);
+        } catch (NumberFormatException e) {
+            throw new PropraException("Das Intervall des Zeilenindex " + cmdLineArg + " ist keine Zahl.");
+        }
+
+        if (interval <= 0)
+            throw new PropraException("Das Intervall des Zeilenindex muss größer als 0 sein.");
+
+        return interval;
+    }
+
+    /**
+     * Wandelt das Kommandozeilenargument für die Blockgröße um.
+     */
+    private static int parseBlockSize(String cmdLineArg) {
+        int blockSize;
+
+        try {
+            blockSize = Integer.parseInt(cmdLineArg);
+        } catch (NumberFormatException e) {
+            throw new PropraException("Die Blockgröße " + cmdLineArg + " ist keine Zahl.");
+        }
+
+        if (blockSize <= 0)
+            throw new PropraException("Die Blockgröße muss größer als 0 sein.");
+
+        return blockSize;
+    }
+
     /**
      * Führt die Konvertierung enstprechend der Vorgaben aus.
      *
@@ -103,6 +145,21 @@ public final class ImageConverter {
      *             <p>
      *             --input Eingabepfad für das zu konvertierende Bild im TGA-Format.
      *             --output Ausgabepfad für das konvertierte Bild im ProPra-Format.
+     *             --input-mode (optional) buffered, mapped oder read-ahead; mapped liest die Eingabedatei
+     *             über eine Abbildung in den Speicher, read-ahead liest die folgenden Blöcke in einem eigenen Thread.
+     *             --output-mode (optional) buffered (Standard) oder write-behind; write-behind schreibt die
+     *             Ausgabedatei blockweise in einem eigenen Thread.
+     *             --block-size (optional) Größe der Blöcke in Bytes für read-ahead und write-behind (Standard 1 MB).
+     *             --checksum-verification (optional) while-decoding (Standard) oder strict; strict überprüft
+     *             die Prüfsumme einer Propra-Eingabedatei vor dem Dekodieren in einem eigenen Durchlauf.
+     *             --auto-selection (optional) estimate (Standard), sampled oder trial; legt fest, wie für
+     *             --compression=auto die Kompression mit dem kürzesten Ergebnis bestimmt wird.
+     *             --row-index (optional) Intervall n; schreibt neben die Ausgabedatei einen Zeilenindex
+     *             (Dateiendung .idx), über den jede n-te Bildzeile direkt angesprungen werden kann.
+     *             --decoding (optional) serial (Standard) oder parallel; parallel dekodiert unkomprimierte
+     *             und RLE-komprimierte Eingabedateien in Bändern aus Bildzeilen auf mehreren Threads.
+     *             --execution (optional) sequential (Standard) oder pipelined; pipelined dekodiert, wandelt um,
+     *             kodiert und schreibt in eigenen Threads, die über Blöcke aus Bildzeilen verbunden sind.
      *             <p>
      *             Beispiel: --input=./src/main/resources/KE1_TestBilder/test_01_uncompressed.tga --output=test.tga
      */
@@ -163,7 +220,7 @@ public final class ImageConverter {
                     null
             );
         } else {
-            neededCheck("convert", Set.of("input", "output"), Set.of("compression"), parsedArgs);
+            neededCheck("convert", Set.of("input", "output"), Set.of("compression", "input-mode", "checksum-verification", "auto-selection", "row-index", "decoding", "execution", "output-mode", "block-size"), parsedArgs);
 
             // Um die Abwärtskompatiblität zu KE1 zu gewährleisten,
             // wird für compression als Default-Wert uncompressed genutzt
@@ -174,10 +231,45 @@ public final class ImageConverter {
             CompressionType parsedCompressionType
                     = CompressionType.parseCommandLineArgument(compression);
 
+            ConversionOptions options = ConversionOptions.defaults();
+
+            if (parsedArgs.containsKey("input-mode")) {
+                options = options.withInputMode(InputMode.parseCommandLineArgument(parsedArgs.get("input-mode")));
+            }
+
+            if (parsedArgs.containsKey("output-mode")) {
+                options = options.withOutputMode(OutputMode.parseCommandLineArgument(parsedArgs.get("output-mode")));
+            }
+
+            if (parsedArgs.containsKey("block-size")) {
+                options = options.withBlockSize(parseBlockSize(parsedArgs.get("block-size")));
+            }
+
+            if (parsedArgs.containsKey("checksum-verification")) {
+                options = options.withChecksumVerification(ChecksumVerification.parseCommandLineArgument(parsedArgs.get("checksum-verification")));
+            }
+
+            if (parsedArgs.containsKey("auto-selection")) {
+                options = options.withAutoSelectionMode(AutoSelectionMode.parseCommandLineArgument(parsedArgs.get("auto-selection")));
+            }
+
+            if (parsedArgs.containsKey("row-index")) {
+                options = options.withRowIndexInterval(parseRowIndexInterval(parsedArgs.get("row-index")));
+            }
+
+            if (parsedArgs.containsKey("decoding")) {
+                options = options.withDecodingMode(DecodingMode.parseCommandLineArgument(parsedArgs.get("decoding")));
+            }
+
+            if (parsedArgs.containsKey("execution")) {
+                options = options.withExecutionMode(ExecutionMode.parseCommandLineArgument(parsedArgs.get("execution")));
+            }
+
             Converter.convert(
                     Paths.get(input),
                     Paths.get(output),
-                    parsedCompressionType
+                    parsedCompressionType,
+                    options
             );
         }
     }
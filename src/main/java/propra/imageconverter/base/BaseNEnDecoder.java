@@ -79,7 +79,7 @@ public final class BaseNEnDecoder {
         int bitsToRead = baseToLog.get(alphabet.length());
 
         while (true) {
-            int value = inputStream.readBits(bitsToRead);
+            int value = (int) inputStream.readBits(bitsToRead);
 
             if (value == -1)
                 break;
@@ -120,6 +120,8 @@ public final class BaseNEnDecoder {
             outputStream.writeBits(bitsToWrite, alphabet.indexOf(value));
         }
 
+        outputStream.flush();
+
         // Entsprechend der Augabenstellung wird es durch den BitOutputStream umgesetzt:
         //
         // "Bei der Dekodierung ist das fehlende Padding zu beachten:
@@ -4,47 +4,56 @@ import propra.PropraException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.AbstractMap.SimpleEntry;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import static propra.imageconverter.util.RequireUtils.require;
 
 /**
- * Ermöglicht das Lesen von Bitströmen mit einer Bitzahl von
- * weniger als einem Byte.
+ * Ermöglicht das Lesen von Bitströmen mit einer beliebigen Bitzahl
+ * von 0 bis MAX_BITS Bits.
+ * <p>
+ * Die Bits werden in einem 64-Bit-Akkumulator vorgehalten, der byteweise aus einem Puffer
+ * aufgefüllt wird. Der Puffer selbst wird blockweise aus dem darunterliegenden Stream gelesen.
  */
 public class BitInputStream implements AutoCloseable {
-    private final InputStream origin;
     /**
-     * Gibt die Bitmaske zum Auslesen von Bits
-     * bis zur Länge von 1 bis 8 aus einer Zahl zurück.
+     * Maximale Anzahl an Bits, die auf einmal gelesen oder vorausgelesen werden können.
+     * Im Akkumulator können noch bis zu 7 Bits eines angefangenen Bytes stehen, bevor
+     * er aufgefüllt wird; daher ist das weniger als 64.
      */
-    // ggf. gäbe es schönere Möglichkeiten, das zu bewerkstelligen?
-    private final Map<Integer, Integer> bitMask = Stream.of(
-            new SimpleEntry<>(1, 0b1000_0000),
-            new SimpleEntry<>(2, 0b1100_0000),
-            new SimpleEntry<>(3, 0b1110_0000),
-            new SimpleEntry<>(4, 0b1111_0000),
-            new SimpleEntry<>(5, 0b1111_1000),
-            new SimpleEntry<>(6, 0b1111_1100),
-            new SimpleEntry<>(7, 0b1111_1110),
-            new SimpleEntry<>(8, 0b1111_1111)
-    ).collect(Collectors.toMap(SimpleEntry::getKey, SimpleEntry::getValue));
+    public static final int MAX_BITS = 57;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream origin;
     /**
-     * Der Wert des zuletzt gelesenen Bytes. Dies ist notwendig,
-     * da bitweise eingelesen werden kann und das letzte Byte
-     * noch nicht fertig gelesen wurde.
+     * Blockweise aus dem darunterliegenden Stream gelesene Bytes,
+     * von denen die ab bufferPosition noch nicht im Akkumulator stehen.
      */
-    private Integer lastReadByte = null;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition = 0;
+    private int bufferLength = 0;
     /**
-     * Gibt den aktuellen Bit-Index innerhalb des letzten gelesenen Bytes an, der
-     * bereits gelesen wurde.
+     * Die bereits aus dem Puffer gelesenen, aber noch nicht durch den Benutzer der
+     * Klasse gelesenen Bits. Die ältesten Bits stehen dabei an den höchstwertigen
+     * Stellen der bitsInAccumulator niederwertigsten Bits.
      * <p>
      * Bsp.:
-     * Das letzte gelesene Byte ist 0110 0011. Der aktuelle Bit-Index ist 3, das heißt
-     * 011 wurde bereits durch den Benutzer der Klasse gelesen.
+     * Das letzte gelesene Byte ist 0110 0011 und 011 wurde bereits durch den Benutzer
+     * gelesen. Dann ist bitsInAccumulator 5 und accumulator endet auf 0 0011.
+     */
+    private long accumulator = 0;
+    /**
+     * Anzahl der gültigen Bits im Akkumulator.
+     */
+    private int bitsInAccumulator = 0;
+    /**
+     * Gibt an, ob das Ende des darunterliegenden Streams bereits erreicht wurde.
      */
-    private int currentBitOffset = 0;
+    private boolean endOfStream = false;
+    /**
+     * Anzahl der bisher gelesenen oder übersprungenen Bits.
+     */
+    private long numberOfBitsRead = 0;
 
     public BitInputStream(
             InputStream origin
@@ -53,76 +62,111 @@ public class BitInputStream implements AutoCloseable {
     }
 
     /**
-     * Liest die nächsten {@param numberOfBits} aus dem darunterliegenden
-     * Eingabestream aus. Unterstützt werden zwischen 0 und 8 Bits, die gelesen werden.
-     * <p>
-     * Gibt -1 zurück, falls das Ende des Streams erreicht wurde.
+     * Füllt den Akkumulator so weit mit ganzen Bytes auf, wie sie hineinpassen.
+     * Danach stehen mindestens MAX_BITS Bits darin, sofern der darunterliegende
+     * Stream nicht vorher zu Ende ist.
      */
-    public int readBits(int numberOfBits) throws IOException {
-        if (numberOfBits < 0 || numberOfBits > 8) {
-            // Zurzeit wird die Unterstützung von > 8 Bits nicht gebraucht;
-            // lediglich das Schreiben von mehr als 8 Bits, daher wird der
-            // BitInputStream wegen YAGNI nicht erweitert.
-            throw new PropraException("BitInputStream#numberOfBits kann maximal 8 Bits auf einmal lesen. (Tatsächlich wurden " + numberOfBits + " angefragt)");
+    private void fillAccumulator() throws IOException {
+        while (bitsInAccumulator <= 64 - 8) {
+            if (bufferPosition == bufferLength) {
+                if (endOfStream)
+                    return;
+
+                bufferLength = origin.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+
+                if (bufferLength == -1) {
+                    bufferLength = 0;
+                    endOfStream = true;
+                    return;
+                }
+            }
+
+            accumulator = (accumulator << 8) | (buffer[bufferPosition++] & 0xFF);
+            bitsInAccumulator += 8;
         }
+    }
 
-        // Am Beginn des Streams ist das zuletzt gelesene Byte
-        // noch nicht gesetzt; daher muss es hier initial gesetzt werden
-        if (lastReadByte == null) {
-            lastReadByte = origin.read();
+    private static void checkNumberOfBits(int numberOfBits) {
+        if (numberOfBits < 0 || numberOfBits > MAX_BITS) {
+            throw new PropraException("BitInputStream kann maximal " + MAX_BITS + " Bits auf einmal lesen. (Tatsächlich wurden " + numberOfBits + " angefragt)");
         }
+    }
+
+    /**
+     * Liest die nächsten {@param numberOfBits} aus dem darunterliegenden
+     * Eingabestream aus. Unterstützt werden zwischen 0 und MAX_BITS Bits, die gelesen werden.
+     * <p>
+     * Gibt -1 zurück, falls das Ende des Streams erreicht wurde. Reichen die restlichen Bits
+     * nicht aus, wird mit 0-Bits aufgefüllt.
+     */
+    public long readBits(int numberOfBits) throws IOException {
+        checkNumberOfBits(numberOfBits);
 
-        // Das letzte gelesene Byte war bereits das Ende des darunterliegenden
-        // Streams, daher geben teilen wir hier auch das Ende des Streams mit.
-        if (lastReadByte == -1) {
+        if (bitsInAccumulator < Math.max(numberOfBits, 1))
+            fillAccumulator();
+
+        // Alle Bits des darunterliegenden Streams wurden bereits gelesen,
+        // daher teilen wir hier auch das Ende des Streams mit.
+        if (bitsInAccumulator == 0) {
             return -1;
         }
 
-        // Vorgehensweise:
-        // Wir repräsentieren unser aktuelles Byte und ein
-        // ggf. darüberhinausgehendes Byte (falls wir über ein Byte
-        // hinauslesen sollen) in einem 16bit-Format.
-        //
-        // leftByte steht für das akutelle Byte und die ersten 8bit und
-        // rightByte für das nächste Byte und die letzten 8bit (falls relevant)
-        int leftByte = lastReadByte;
-        int rightByte = 0;
-        if (currentBitOffset + numberOfBits >= 8) {
-            // Wir lesen über das aktuelle Byte hinaus
-            // daher müssen wir auch das nächste Byte beachten
-            rightByte = origin.read();
-
-            // Das nächste Byte ist für den nächsten Durchlauf
-            // das aktuelle byte
-            lastReadByte = rightByte;
-
-            if (rightByte == -1) {
-                // Ist das Ende der Datei und wir
-                // lesen Bits darüber ein (Padding),
-                // dann lesen wir einfach nur 0en ein.
-                rightByte = 0;
-            }
+        if (bitsInAccumulator < numberOfBits) {
+            // Ist das Ende der Datei erreicht und wir
+            // lesen Bits darüber ein (Padding),
+            // dann lesen wir einfach nur 0en ein.
+            long retVal = (accumulator << (numberOfBits - bitsInAccumulator)) & ((1L << numberOfBits) - 1);
+            bitsInAccumulator = 0;
+            numberOfBitsRead += numberOfBits;
+
+            return retVal;
         }
-        // Nun stehen in combinedBytes das aktuelle Byte
-        // sowie das nächste Byte hintereinander in 16-Bit
-        int combinedBytes = (leftByte << 8) + rightByte;
-
-        // Gibt eine Maske an, die es bewerkstelligt nur die Bits aus
-        // den Daten zu lesen, die vom Benutzer auch tatsächlich gewollt sind.
-        // Dazu wird die Maske auch entsprechend des aktuellen Bit-Index
-        // positioniert
-        int mask = (bitMask.get(numberOfBits) << 8) >> currentBitOffset;
-
-        // Nun wird die Maske auf die Daten angewendet und danach
-        // die extrahierten Bits an die niederwertigsten Stellen geschoben
-        // Damit haben wir unser Ergebnis.
-        int retVal = (combinedBytes & mask) >> (16 - currentBitOffset - numberOfBits);
-
-        // Nun noch den aktuellen Bit-Index aktualisieren,
-        // denn diese Bits haben wir bereits gelesen.
-        currentBitOffset = (currentBitOffset + numberOfBits) % 8;
-
-        return retVal;
+
+        bitsInAccumulator -= numberOfBits;
+        numberOfBitsRead += numberOfBits;
+
+        return (accumulator >>> bitsInAccumulator) & ((1L << numberOfBits) - 1);
+    }
+
+    /**
+     * Gibt die nächsten {@param numberOfBits} Bits (maximal MAX_BITS) zurück, ohne
+     * sie zu lesen. Der nächste Aufruf von readBits oder peekBits beginnt also wieder
+     * an derselben Stelle; mit skipBits können die Bits anschließend übersprungen werden.
+     * <p>
+     * Gibt -1 zurück, falls vor dem Ende des Streams nicht mehr so viele Bits vorhanden sind.
+     */
+    public long peekBits(int numberOfBits) throws IOException {
+        checkNumberOfBits(numberOfBits);
+
+        if (bitsInAccumulator < numberOfBits) {
+            fillAccumulator();
+
+            if (bitsInAccumulator < numberOfBits)
+                return -1;
+        }
+
+        return (accumulator >>> (bitsInAccumulator - numberOfBits)) & ((1L << numberOfBits) - 1);
+    }
+
+    /**
+     * Überspringt die nächsten {@param numberOfBits} Bits. Es dürfen nur Bits übersprungen
+     * werden, die zuvor mit peekBits erfolgreich vorausgelesen wurden.
+     */
+    public void skipBits(int numberOfBits) {
+        require(numberOfBits >= 0 && numberOfBits <= bitsInAccumulator, "BitInputStream#skipBits kann nur bereits vorausgelesene Bits überspringen.");
+
+        bitsInAccumulator -= numberOfBits;
+        numberOfBitsRead += numberOfBits;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher gelesenen oder übersprungenen Bits zurück. Beim Lesen über
+     * das Ende des Streams hinaus zählen die aufgefüllten 0-Bits mit; liefert readBits
+     * dagegen -1, wurde kein Bit gelesen.
+     */
+    public long getNumberOfBitsRead() {
+        return numberOfBitsRead;
     }
 
     @Override
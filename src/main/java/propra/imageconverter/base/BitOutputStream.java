@@ -6,23 +6,42 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 /**
- * Ermöglicht das Schreiben von Bitströmen mit einer Bitzahl von
- * weniger als einem Byte.
+ * Ermöglicht das Schreiben von Bitströmen mit einer beliebigen Bitzahl
+ * von 0 bis MAX_BITS Bits.
+ * <p>
+ * Die Bits werden in einem 64-Bit-Akkumulator gesammelt, fertige Bytes in einem Puffer,
+ * der blockweise in den darunterliegenden Stream geschrieben wird. Daher muss nach dem
+ * Schreiben flush (oder close) aufgerufen werden. Die Bits eines angefangenen Bytes werden
+ * dabei nicht geschrieben.
  */
 public final class BitOutputStream implements AutoCloseable {
+    /**
+     * Maximale Anzahl an Bits, die auf einmal geschrieben werden können.
+     * Im Akkumulator können noch bis zu 7 Bits eines angefangenen Bytes stehen,
+     * daher ist das weniger als 64.
+     */
+    public static final int MAX_BITS = 57;
+
+    private static final int BUFFER_SIZE = 8192;
+
     private final OutputStream origin;
 
     /**
-     * Das aktuelle Byte, in dem die geschriebenen Bits zunächst gesammelt werden. Wird geschrieben,
-     * wenn alle 8 Bits geschrieben wurden.
+     * Fertige, aber noch nicht in den darunterliegenden Stream geschriebene Bytes.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferLength = 0;
+
+    /**
+     * Die geschriebenen Bits, die noch nicht in den Puffer übernommen wurden. Die ältesten
+     * Bits stehen an den höchstwertigen Stellen der bitsInAccumulator niederwertigsten Bits.
      */
-    private int currentByte = 0;
+    private long accumulator = 0;
 
     /**
-     * Der aktuelle Bit-Index innerhalb des geschriebenen Bytes. Bis dahin sind
-     * die Bits innerhalb dieses Bytes bereits geschrieben.
+     * Anzahl der gültigen Bits im Akkumulator.
      */
-    private int currentBitOffset = 0;
+    private int bitsInAccumulator = 0;
 
     public BitOutputStream(OutputStream origin) {
         this.origin = origin;
@@ -30,89 +49,143 @@ public final class BitOutputStream implements AutoCloseable {
 
     /**
      * Schreibt die nächsten {@param numberOfBits} Bits in den darunterliegenden Ausgabestream mit dem übergebenen
-     * Wert {@param value}. Unterstützt zwischen 0 und 32 Bits.
+     * Wert {@param value}. Unterstützt zwischen 0 und MAX_BITS Bits; höherwertige Bits von {@param value}
+     * werden ignoriert.
      */
-    public void writeBits(int numberOfBits, int value) throws IOException {
-        // 32bit-Unterstützung wird hier einfach dadurch
-        // gewährleistet, dass die darunterliegende Methode writeBits8,
-        // welche lediglich maximal 8 Bits schreiben kann,
-        // mehrmals aufgerufen wird.
-        int first8Bits = (value >> 24) & 0b1111_1111;
-        int second8Bits = (value >> 16) & 0b1111_1111;
-        int third8Bits = (value >> 8) & 0b1111_1111;
-        int fourth8Bits = (value) & 0b1111_1111;
-
-        if (numberOfBits >= 24) {
-            writeBits8(numberOfBits % 24, first8Bits);
-            writeBits8(8, second8Bits);
-            writeBits8(8, third8Bits);
-            writeBits8(8, fourth8Bits);
-            return;
+    public void writeBits(int numberOfBits, long value) throws IOException {
+        if (numberOfBits < 0 || numberOfBits > MAX_BITS) {
+            throw new PropraException("BitOutputStream kann maximal " + MAX_BITS + " Bits auf einmal schreiben. (Tatsächlich wurden " + numberOfBits + " angefragt)");
         }
 
-        if (numberOfBits >= 16) {
-            writeBits8(numberOfBits % 16, second8Bits);
-            writeBits8(8, third8Bits);
-            writeBits8(8, fourth8Bits);
-            return;
-        }
+        if (bitsInAccumulator + numberOfBits > 64)
+            moveBytesToBuffer();
 
-        if (numberOfBits >= 8) {
-            writeBits8(numberOfBits % 8, third8Bits);
-            writeBits8(8, fourth8Bits);
-            return;
-        }
+        accumulator = (accumulator << numberOfBits) | (value & ((1L << numberOfBits) - 1));
+        bitsInAccumulator += numberOfBits;
+    }
 
-        if (numberOfBits > 0) {
-            writeBits8(numberOfBits, fourth8Bits);
+    /**
+     * Schreibt für jedes der {@param length} Bytes ab {@param offset} aus {@param data} den Code
+     * {@param codes}[Byte] mit der Länge {@param codeLengths}[Byte] (jeweils höchstens 32 Bits),
+     * wobei die Bytes vorzeichenlos als Index verwendet werden. Gibt die Anzahl der geschriebenen
+     * Bits zurück.
+     * <p>
+     * Das Ergebnis entspricht einzelnen Aufrufen von writeBits, spart aber die Prüfungen pro Code.
+     */
+    public long writeCodes(byte[] data, int offset, int length, int[] codes, int[] codeLengths) throws IOException {
+        moveBytesToBuffer();
+
+        long accumulator = this.accumulator;
+        int bitsInAccumulator = this.bitsInAccumulator;
+        long writtenBits = 0;
+
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int data8 = data[i] & 0xFF;
+            int codeLength = codeLengths[data8];
+
+            accumulator = (accumulator << codeLength) | (codes[data8] & 0xFFFF_FFFFL);
+            bitsInAccumulator += codeLength;
+            writtenBits += codeLength;
+
+            // Es stehen höchstens 31 + 32 Bits im Akkumulator,
+            // daher übernehmen wir jeweils 4 Bytes am Stück.
+            if (bitsInAccumulator >= 32) {
+                bitsInAccumulator -= 32;
+                int value = (int) (accumulator >>> bitsInAccumulator);
+
+                if (bufferLength + 4 > buffer.length)
+                    writeBuffer();
+
+                buffer[bufferLength] = (byte) (value >>> 24);
+                buffer[bufferLength + 1] = (byte) (value >>> 16);
+                buffer[bufferLength + 2] = (byte) (value >>> 8);
+                buffer[bufferLength + 3] = (byte) value;
+                bufferLength += 4;
+            }
         }
+
+        this.accumulator = accumulator;
+        this.bitsInAccumulator = bitsInAccumulator;
+
+        return writtenBits;
     }
 
     /**
-     * Schreibt die nächsten {@param numberOfBits} Bits in den darunterliegenden Ausgabestream mit dem übergebenen
-     * Wert {@param value}. Unterstützt zwischen 0 und 8 Bits.
+     * Schreibt die ersten {@param numberOfBits} Bits aus {@param data} (beginnend mit dem höchstwertigen
+     * Bit des ersten Bytes) an die aktuelle, beliebige Bitposition. Damit lassen sich getrennt
+     * geschriebene Bitströme aneinanderhängen.
      */
-    private void writeBits8(int numberOfBits, int value) throws IOException {
-        if (numberOfBits < 0 || numberOfBits > 8) {
-            // Zurzeit wird die Unterstützung von > 8 Bits nicht gebraucht;
-            // lediglich das Schreiben von mehr als 8 Bits, daher wird der
-            // BitInputStream wegen YAGNI nicht erweitert.
-            throw new PropraException("BitInputStream#numberOfBits8 kann maximal 8 Bits auf einmal schreiben. (Tatsächlich wurden " + numberOfBits + " angefragt)");
-        }
+    public void writeBitBuffer(byte[] data, long numberOfBits) throws IOException {
+        moveBytesToBuffer();
+
+        long fullBytes = numberOfBits / 8;
+        int remainingBits = (int) (numberOfBits % 8);
 
-        int leftByte = currentByte;
-        // Wir schauen uns das ganze wieder in
-        // einer 16-bittigen Zahl an
-        int combinedBytes = leftByte << 8;
-
-        // Nun verschieben wir den Wert entsprechend
-        // die richtige Stelle.
-        combinedBytes = combinedBytes + (value << (16 - currentBitOffset - numberOfBits));
-
-        // Wir extrahieren die Daten in das aktuelle Byte
-        // und das womöglich nächste Byte
-        int rightByte = combinedBytes & 0b1111_1111;
-        leftByte = (combinedBytes & 0b1111_1111_0000_0000) >> 8;
-
-        if (currentBitOffset + numberOfBits >= 8) {
-            // Es wird über die Byte-Grenze hinaus geschrieben
-            // daher schreiben wir das aktuelle Byte
-            currentBitOffset = (currentBitOffset + numberOfBits) % 8;
-            origin.write(leftByte);
-
-            // und das neue Byte wird das aktuelle Byte für den nächsten
-            // Durchlauf
-            currentByte = rightByte;
+        if (bitsInAccumulator == 0) {
+            // Auf einer Bytegrenze können die Bytes direkt übernommen werden.
+            writeBuffer();
+            origin.write(data, 0, (int) fullBytes);
         } else {
-            // Ansonsten, keine Byte-Grenze überschritten
-            // daher nur das Bit-Offset erhöhen
-            currentBitOffset += numberOfBits;
-            currentByte = leftByte;
+            // Sonst wird jedes Byte um die Bits im Akkumulator verschoben:
+            // es steht danach wieder dieselbe Anzahl an Bits im Akkumulator.
+            long accumulator = this.accumulator;
+            int shift = bitsInAccumulator;
+
+            for (int i = 0; i < fullBytes; i++) {
+                accumulator = (accumulator << 8) | (data[i] & 0xFF);
+
+                if (bufferLength == buffer.length)
+                    writeBuffer();
+
+                buffer[bufferLength++] = (byte) (accumulator >>> shift);
+            }
+
+            this.accumulator = accumulator;
+        }
+
+        if (remainingBits > 0)
+            writeBits(remainingBits, (data[(int) fullBytes] & 0xFF) >>> (8 - remainingBits));
+    }
+
+    /**
+     * Übernimmt alle vollständigen Bytes aus dem Akkumulator in den Puffer;
+     * danach stehen höchstens 7 Bits im Akkumulator.
+     */
+    private void moveBytesToBuffer() throws IOException {
+        while (bitsInAccumulator >= 8) {
+            if (bufferLength == buffer.length)
+                writeBuffer();
+
+            bitsInAccumulator -= 8;
+            buffer[bufferLength++] = (byte) (accumulator >>> bitsInAccumulator);
         }
     }
 
+    /**
+     * Schreibt den Puffer in den darunterliegenden Stream.
+     */
+    private void writeBuffer() throws IOException {
+        origin.write(buffer, 0, bufferLength);
+        bufferLength = 0;
+    }
+
+    /**
+     * Schreibt alle vollständigen Bytes in den darunterliegenden Stream. Die Bits
+     * eines angefangenen Bytes bleiben für weitere Aufrufe von writeBits erhalten.
+     */
+    public void flush() throws IOException {
+        moveBytesToBuffer();
+        writeBuffer();
+        origin.flush();
+    }
+
     @Override
     public void close() throws IOException {
-        origin.close();
+        try {
+            flush();
+        } finally {
+            origin.close();
+        }
     }
 }
@@ -0,0 +1,43 @@
+package propra.imageconverter.binary;
+
+import propra.PropraException;
+
+/**
+ * Gibt an, auf welche Weise die Eingabestreams
+ * einer {@link ReadWriteFile} aus der Datei lesen.
+ */
+public enum InputMode {
+    /**
+     * Die Daten werden über einen gepufferten Eingabestream
+     * aus dem FileChannel gelesen.
+     */
+    BUFFERED,
+    /**
+     * Die Datei wird in den Speicher abgebildet (Memory-Mapping) und die
+     * Daten werden direkt aus der Abbildung gelesen. Nur für Dateien geeignet,
+     * die während des Lesens nicht verändert werden.
+     */
+    MAPPED,
+    /**
+     * Ein eigener Thread liest die folgenden großen Blöcke der Datei im Voraus, während
+     * der aktuelle Block verarbeitet wird (siehe {@link ReadAheadInputStream}).
+     */
+    READ_AHEAD;
+
+    /**
+     * Wandelt ein übergebenes Kommandozeilenargument in
+     * den Enum um.
+     */
+    public static InputMode parseCommandLineArgument(String cmdLineArg) {
+        switch (cmdLineArg) {
+            case "buffered":
+                return BUFFERED;
+            case "mapped":
+                return MAPPED;
+            case "read-ahead":
+                return READ_AHEAD;
+        }
+
+        throw new PropraException("Der Eingabemodus " + cmdLineArg + " wird nicht unterstützt.");
+    }
+}
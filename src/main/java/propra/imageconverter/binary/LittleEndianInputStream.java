@@ -116,10 +116,27 @@ public class LittleEndianInputStream implements AutoCloseable {
      * Wirft eine Exception, falls das Ende der Datei erreicht wird.
      */
     public void readFully(byte[] targetArray) throws IOException {
-        int bytesRead = inputStream.read(targetArray);
+        readFully(targetArray, 0, targetArray.length);
+    }
 
-        if (bytesRead != targetArray.length) {
-            throw new PropraException("Das Dateiende wurde vorzeitig erreicht.");
+    /**
+     * Liest die nächsten {@param length} Bytes des darunterliegenden Eingabestreams in das {@param targetArray}
+     * ab dem Index {@param offset}.
+     * <p>
+     * Wirft eine Exception, falls das Ende der Datei erreicht wird.
+     */
+    public void readFully(byte[] targetArray, int offset, int length) throws IOException {
+        // Ein einzelner Aufruf von read muss nicht alle angeforderten
+        // Bytes liefern, daher lesen wir so lange, bis alle Bytes gelesen wurden.
+        int totalBytesRead = 0;
+        while (totalBytesRead < length) {
+            int bytesRead = inputStream.read(targetArray, offset + totalBytesRead, length - totalBytesRead);
+
+            if (bytesRead == -1) {
+                throw new PropraException("Das Dateiende wurde vorzeitig erreicht.");
+            }
+
+            totalBytesRead += bytesRead;
         }
     }
 
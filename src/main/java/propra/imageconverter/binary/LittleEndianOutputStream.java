@@ -2,8 +2,8 @@ package propra.imageconverter.binary;
 
 import propra.PropraException;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
 
 /**
@@ -12,9 +12,9 @@ import java.math.BigInteger;
  * an.
  */
 public final class LittleEndianOutputStream implements AutoCloseable {
-	private final BufferedOutputStream outputStream;
+	private final OutputStream outputStream;
 
-	public LittleEndianOutputStream(BufferedOutputStream outputStream) {
+	public LittleEndianOutputStream(OutputStream outputStream) {
 		this.outputStream = outputStream;
 	}
 
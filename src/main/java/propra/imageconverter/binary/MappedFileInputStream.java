@@ -0,0 +1,127 @@
+package propra.imageconverter.binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Eingabestream, der die Daten direkt aus einer in den Speicher abgebildeten
+ * Datei (Memory-Mapping) liest. Die Daten müssen damit nicht erst vom Betriebssystem
+ * in einen Puffer des Programms kopiert werden.
+ * <p>
+ * Da ein MappedByteBuffer höchstens 2 GB groß sein kann, wird die Datei in Abschnitten
+ * abgebildet (siehe {@link ReadWriteFile#mappedChunk(int)}); der Stream wechselt beim Lesen
+ * selbstständig in den nächsten Abschnitt.
+ */
+public final class MappedFileInputStream extends InputStream {
+    private final ReadWriteFile readWriteFile;
+
+    /**
+     * Gesamtlänge der abgebildeten Datei.
+     */
+    private final long fileLength;
+
+    /**
+     * Aktuelle Leseposition innerhalb der Datei.
+     */
+    private long position;
+
+    /**
+     * Sicht auf den aktuellen Abschnitt, deren Position der aktuellen
+     * Leseposition entspricht; null, falls noch kein Abschnitt gewählt wurde.
+     */
+    private ByteBuffer currentChunk = null;
+
+    MappedFileInputStream(ReadWriteFile readWriteFile, long fileLength, long position) {
+        this.readWriteFile = readWriteFile;
+        this.fileLength = fileLength;
+        this.position = position;
+    }
+
+    /**
+     * Stellt sicher, dass der aktuelle Abschnitt noch Daten enthält, und
+     * wechselt ansonsten in den Abschnitt der aktuellen Leseposition.
+     * <p>
+     * Gibt false zurück, falls das Ende der Datei erreicht wurde.
+     */
+    private boolean ensureChunkHasRemaining() throws IOException {
+        if (currentChunk != null && currentChunk.hasRemaining())
+            return true;
+
+        if (position >= fileLength)
+            return false;
+
+        long chunkSize = readWriteFile.mappedChunkSize();
+        int chunkIndex = (int) (position / chunkSize);
+        int positionInChunk = (int) (position % chunkSize);
+
+        // Wir arbeiten auf einer eigenen Sicht, damit die Position
+        // des gemeinsam genutzten Abschnitts unverändert bleibt.
+        currentChunk = readWriteFile.mappedChunk(chunkIndex).duplicate();
+        currentChunk.position(positionInChunk);
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureChunkHasRemaining())
+            return -1;
+
+        position++;
+
+        return Byte.toUnsignedInt(currentChunk.get());
+    }
+
+    @Override
+    public int read(byte[] targetArray, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+
+        if (!ensureChunkHasRemaining())
+            return -1;
+
+        int bytesToRead = Math.min(length, currentChunk.remaining());
+        currentChunk.get(targetArray, offset, bytesToRead);
+        position += bytesToRead;
+
+        return bytesToRead;
+    }
+
+    /**
+     * Gibt eine Sicht auf die nächsten (höchstens {@param maxLength}) Bytes der Datei zurück, ohne
+     * sie zu kopieren, und bewegt die Leseposition entsprechend weiter. Es werden nie Bytes über eine
+     * Abschnittsgrenze hinaus zurückgegeben, daher kann die Sicht kürzer sein als angefordert.
+     * <p>
+     * Gibt null zurück, falls das Ende der Datei erreicht wurde.
+     */
+    public ByteBuffer readBuffer(int maxLength) throws IOException {
+        if (!ensureChunkHasRemaining())
+            return null;
+
+        int bytesToRead = Math.min(maxLength, currentChunk.remaining());
+
+        ByteBuffer result = currentChunk.slice();
+        result.limit(bytesToRead);
+
+        currentChunk.position(currentChunk.position() + bytesToRead);
+        position += bytesToRead;
+
+        return result;
+    }
+
+    @Override
+    public long skip(long n) {
+        long bytesToSkip = Math.max(0, Math.min(n, fileLength - position));
+
+        position += bytesToSkip;
+        currentChunk = null;
+
+        return bytesToSkip;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, fileLength - position);
+    }
+}
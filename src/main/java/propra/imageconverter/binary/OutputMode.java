@@ -0,0 +1,35 @@
+package propra.imageconverter.binary;
+
+import propra.PropraException;
+
+/**
+ * Gibt an, auf welche Weise die Ausgabestreams
+ * einer {@link ReadWriteFile} in die Datei schreiben.
+ */
+public enum OutputMode {
+    /**
+     * Die Daten werden über einen gepufferten Ausgabestream
+     * in den FileChannel geschrieben.
+     */
+    BUFFERED,
+    /**
+     * Die Daten werden in Blöcken gesammelt, die ein eigener Thread in die Datei schreibt,
+     * während bereits der nächste Block gefüllt wird (siehe {@link WriteBehindOutputStream}).
+     */
+    WRITE_BEHIND;
+
+    /**
+     * Wandelt ein übergebenes Kommandozeilenargument in
+     * den Enum um.
+     */
+    public static OutputMode parseCommandLineArgument(String cmdLineArg) {
+        switch (cmdLineArg) {
+            case "buffered":
+                return BUFFERED;
+            case "write-behind":
+                return WRITE_BEHIND;
+        }
+
+        throw new PropraException("Der Ausgabemodus " + cmdLineArg + " wird nicht unterstützt.");
+    }
+}
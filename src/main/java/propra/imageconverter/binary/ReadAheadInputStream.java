@@ -0,0 +1,266 @@
+package propra.imageconverter.binary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Eingabestream, bei dem ein eigener Thread die folgenden Blöcke der Datei aus dem FileChannel
+ * liest, während der Aufrufer den aktuellen Block verarbeitet (Double Buffering). Jeder Block
+ * wird mit einem einzigen Lesezugriff gefüllt, was bei hoher Latenz pro Zugriff (etwa bei
+ * Netzlaufwerken) viele kleine Zugriffe eines BufferedInputStream einspart.
+ * <p>
+ * Der Thread liest mit absoluten Positionen und verändert daher die Position des FileChannels
+ * nicht. Er wird nie unterbrochen, da ein Unterbrechen während des Lesens den FileChannel
+ * schließen würde; close wartet stattdessen, bis er den laufenden Lesezugriff beendet hat.
+ * <p>
+ * Fehler beim Lesen werden beim Lesen des betroffenen Blocks und bei jedem weiteren Lesen geworfen.
+ * close beendet den Thread, schließt aber den FileChannel nicht.
+ */
+final class ReadAheadInputStream extends InputStream {
+    /**
+     * Anzahl der Blöcke: einer wird gelesen, während der andere verarbeitet wird.
+     */
+    static final int NUMBER_OF_BLOCKS = 2;
+
+    /**
+     * Beendet den lesenden Thread, sobald er einen freien Block anfordert.
+     */
+    private static final Block STOP = new Block(0);
+
+    private final FileChannel channel;
+
+    private final BlockingQueue<Block> freeBlocks;
+    private final BlockingQueue<Block> filledBlocks;
+
+    private final Thread readingThread;
+
+    /**
+     * Der Block, aus dem gerade gelesen wird; null, falls noch keiner abgeholt wurde.
+     */
+    private Block currentBlock = null;
+
+    private boolean closed = false;
+
+    /**
+     * Erstellt einen ReadAheadInputStream, der ab {@param position} aus {@param channel}
+     * in Blöcken zu je {@param blockSize} Bytes liest.
+     */
+    ReadAheadInputStream(FileChannel channel, long position, int blockSize) {
+        this.channel = channel;
+
+        this.freeBlocks = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS + 1);
+        this.filledBlocks = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS);
+
+        for (int i = 0; i < NUMBER_OF_BLOCKS; i++) {
+            freeBlocks.add(new Block(blockSize));
+        }
+
+        this.readingThread = new Thread(() -> readBlocks(position), "propra-read-ahead");
+        this.readingThread.setDaemon(true);
+        this.readingThread.start();
+    }
+
+    /**
+     * Füllt freie Blöcke ab {@param position}, bis das Dateiende erreicht ist,
+     * ein Fehler auftritt oder STOP angefordert wird.
+     */
+    private void readBlocks(long position) {
+        try {
+            while (true) {
+                Block block = freeBlocks.take();
+
+                if (block == STOP)
+                    return;
+
+                try {
+                    block.fill(channel, position);
+                } catch (Throwable e) {
+                    block.error = e;
+                }
+
+                // Es gibt nie mehr gefüllte Blöcke als Blöcke
+                // insgesamt, daher wartet add nie.
+                filledBlocks.add(block);
+
+                if (block.error != null || block.isLast())
+                    return;
+
+                position += block.length;
+            }
+        } catch (InterruptedException e) {
+            // Der Thread wird beendet.
+        }
+    }
+
+    /**
+     * Stellt sicher, dass der aktuelle Block noch Daten enthält, und holt ansonsten
+     * den nächsten gefüllten Block. Gibt false zurück, falls das Ende der Datei erreicht wurde.
+     */
+    private boolean ensureBlockHasRemaining() throws IOException {
+        if (currentBlock != null) {
+            currentBlock.throwIfFailed();
+
+            if (currentBlock.position < currentBlock.length)
+                return true;
+            if (currentBlock.isLast())
+                return false;
+
+            // Der Block wird für die folgenden Daten wiederverwendet.
+            freeBlocks.add(currentBlock);
+            currentBlock = null;
+        }
+
+        try {
+            currentBlock = filledBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Das Lesen der Eingabedatei wurde unterbrochen.");
+        }
+
+        currentBlock.throwIfFailed();
+
+        return currentBlock.position < currentBlock.length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureBlockHasRemaining())
+            return -1;
+
+        return Byte.toUnsignedInt(currentBlock.data[currentBlock.position++]);
+    }
+
+    @Override
+    public int read(byte[] targetArray, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+
+        if (!ensureBlockHasRemaining())
+            return -1;
+
+        int bytes = Math.min(length, currentBlock.length - currentBlock.position);
+        System.arraycopy(currentBlock.data, currentBlock.position, targetArray, offset, bytes);
+        currentBlock.position += bytes;
+
+        return bytes;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skippedBytes = 0;
+
+        while (skippedBytes < n && ensureBlockHasRemaining()) {
+            int bytes = (int) Math.min(n - skippedBytes, currentBlock.length - currentBlock.position);
+            currentBlock.position += bytes;
+            skippedBytes += bytes;
+        }
+
+        return skippedBytes;
+    }
+
+    @Override
+    public int available() {
+        if (currentBlock == null || currentBlock.error != null)
+            return 0;
+
+        return currentBlock.length - currentBlock.position;
+    }
+
+    /**
+     * Beendet den lesenden Thread, nachdem er einen laufenden Lesezugriff
+     * abgeschlossen hat. Der FileChannel bleibt geöffnet.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+
+        // Für STOP ist in der Warteschlange immer Platz.
+        freeBlocks.add(STOP);
+
+        boolean interrupted = false;
+        while (readingThread.isAlive()) {
+            try {
+                readingThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Ein Block aus Daten der Datei und der Leseposition des Aufrufers darin.
+     */
+    private static final class Block {
+        private final byte[] data;
+        private final ByteBuffer buffer;
+
+        /**
+         * Anzahl der gelesenen Bytes in data.
+         */
+        private int length = 0;
+
+        /**
+         * Nächstes Byte, das der Aufrufer liest.
+         */
+        private int position = 0;
+
+        /**
+         * Fehler beim Lesen dieses Blocks, sonst null.
+         */
+        private Throwable error = null;
+
+        private Block(int size) {
+            this.data = new byte[size];
+            this.buffer = ByteBuffer.wrap(data);
+        }
+
+        /**
+         * Liest den Block ab der Dateiposition {@param filePosition}
+         * vollständig oder bis zum Dateiende.
+         */
+        private void fill(FileChannel channel, long filePosition) throws IOException {
+            buffer.clear();
+            position = 0;
+
+            // read kann weniger Bytes als angefordert
+            // lesen und wird dann wiederholt.
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, filePosition + buffer.position()) < 0)
+                    break;
+            }
+
+            length = buffer.position();
+        }
+
+        /**
+         * Ein nicht vollständig gefüllter Block endet am Dateiende.
+         */
+        private boolean isLast() {
+            return length < data.length;
+        }
+
+        private void throwIfFailed() throws IOException {
+            if (error == null)
+                return;
+            if (error instanceof IOException)
+                throw (IOException) error;
+            if (error instanceof RuntimeException)
+                throw (RuntimeException) error;
+            if (error instanceof Error)
+                throw (Error) error;
+
+            throw new IOException(error);
+        }
+    }
+}
@@ -3,7 +3,14 @@ package propra.imageconverter.binary;
 import propra.PropraException;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static propra.imageconverter.util.RequireUtils.require;
 
 /**
  * Wir wollen die Möglichkeit haben, eine geöffnete Datei
@@ -17,29 +24,137 @@ import java.nio.channels.Channels;
  * <p>
  * Ein Ausgabestream kann nur geöffnet werden, wenn das zugrundeliegende
  * RandomAccessFile im Modus ReadWrite geöffnet wurde.
+ * <p>
+ * Im Eingabemodus MAPPED wird die Datei für Eingabestreams in den Speicher
+ * abgebildet; die Abbildung wird für alle Eingabestreams wiederverwendet.
+ * Im Eingabemodus READ_AHEAD liest ein eigener Thread die folgenden Blöcke
+ * im Voraus, im Ausgabemodus WRITE_BEHIND schreibt ein eigener Thread die
+ * Daten der Ausgabestreams in die Datei. Die Größe dieser Blöcke kann beim
+ * Öffnen festgelegt werden.
  */
 public final class ReadWriteFile implements AutoCloseable {
+    /**
+     * Größe der Abschnitte, in denen die Datei im Eingabemodus MAPPED
+     * abgebildet wird. Ein MappedByteBuffer kann höchstens 2 GB groß sein.
+     */
+    static final long MAPPED_CHUNK_SIZE = 1L << 30;
+
+    /**
+     * Standardgröße der Blöcke in den Modi READ_AHEAD und WRITE_BEHIND in Bytes.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
     private final RandomAccessFile randomAccessFile;
 
+    /**
+     * Pfad der Datei, falls bekannt (siehe {@link #openForReading(Path, InputMode)}), sonst null.
+     */
+    private final Path path;
+
+    private final InputMode inputMode;
+
+    private final OutputMode outputMode;
+
+    /**
+     * Größe der Blöcke in den Modi READ_AHEAD und WRITE_BEHIND in Bytes.
+     */
+    private final int blockSize;
+
+    /**
+     * Größe der Abschnitte im Eingabemodus MAPPED in Bytes; außer in Tests MAPPED_CHUNK_SIZE.
+     */
+    private final long mappedChunkSize;
+
+    /**
+     * Bereits abgebildete Abschnitte der Datei (im Eingabemodus MAPPED oder über mappedInputStream).
+     * Sie werden verworfen, sobald die Datei geschrieben oder ihre Länge verändert wird.
+     */
+    private final Map<Integer, MappedByteBuffer> mappedChunks = new HashMap<>();
+
     /**
      * Aktueller Ausgabestream, falls geöffnet, sonst null.
      */
-    private BufferedOutputStream lastOutputStream = null;
+    private OutputStream lastOutputStream = null;
 
     /**
      * Aktueller Eingabestream, falls geöffnet, sonst null.
      */
     private InputStream lastInputStream = null;
 
-    private ReadWriteFile(RandomAccessFile randomAccessFile) {
+    private ReadWriteFile(RandomAccessFile randomAccessFile, Path path, InputMode inputMode, OutputMode outputMode, int blockSize) {
+        this(randomAccessFile, path, inputMode, outputMode, blockSize, MAPPED_CHUNK_SIZE);
+    }
+
+    private ReadWriteFile(RandomAccessFile randomAccessFile, Path path, InputMode inputMode, OutputMode outputMode, int blockSize, long mappedChunkSize) {
+        require(blockSize > 0, "Die Blockgröße muss größer als 0 sein.");
+        require(mappedChunkSize > 0 && mappedChunkSize <= MAPPED_CHUNK_SIZE, "Die Größe der abgebildeten Abschnitte ist ungültig.");
+
         this.randomAccessFile = randomAccessFile;
+        this.path = path;
+        this.inputMode = inputMode;
+        this.outputMode = outputMode;
+        this.blockSize = blockSize;
+        this.mappedChunkSize = mappedChunkSize;
     }
 
     /**
      * Erstellt eine Instanz von ReadWriteFile.
      */
     public static ReadWriteFile createReadWriteFile(RandomAccessFile randomAccessFile) {
-        return new ReadWriteFile(randomAccessFile);
+        return new ReadWriteFile(randomAccessFile, null, InputMode.BUFFERED, OutputMode.BUFFERED, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Erstellt eine Instanz von ReadWriteFile, deren Eingabestreams
+     * im übergebenen Eingabemodus {@param inputMode} lesen.
+     */
+    public static ReadWriteFile createReadWriteFile(RandomAccessFile randomAccessFile, InputMode inputMode) {
+        return new ReadWriteFile(randomAccessFile, null, inputMode, OutputMode.BUFFERED, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Öffnet die Datei {@param path} zum Lesen im Eingabemodus {@param inputMode}.
+     * Eine so geöffnete Datei kann mit {@link #reopen()} erneut geöffnet werden.
+     */
+    public static ReadWriteFile openForReading(Path path, InputMode inputMode) throws IOException {
+        return openForReading(path, inputMode, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Wie oben, im Eingabemodus READ_AHEAD wird aber in Blöcken zu je {@param blockSize} Bytes gelesen.
+     */
+    public static ReadWriteFile openForReading(Path path, InputMode inputMode, int blockSize) throws IOException {
+        return new ReadWriteFile(new RandomAccessFile(path.toFile(), "r"), path, inputMode, OutputMode.BUFFERED, blockSize);
+    }
+
+    /**
+     * Öffnet dieselbe Datei ein weiteres Mal zum Lesen. Die neue Instanz ist unabhängig
+     * von dieser (eigene Streams und eigene Dateiposition) und kann daher parallel in einem
+     * anderen Thread verwendet werden. Sie muss vom Aufrufer wieder geschlossen werden.
+     * <p>
+     * Nur unterstützt, wenn die Datei mit openForReading geöffnet wurde.
+     */
+    public ReadWriteFile reopen() throws IOException {
+        if (path == null)
+            throw new PropraException("Die Datei kann nicht erneut geöffnet werden, da ihr Pfad nicht bekannt ist.");
+
+        return new ReadWriteFile(new RandomAccessFile(path.toFile(), "r"), path, inputMode, OutputMode.BUFFERED, blockSize, mappedChunkSize);
+    }
+
+    /**
+     * Öffnet die Datei {@param path} im Eingabemodus MAPPED, bildet sie aber in Abschnitten zu je
+     * {@param mappedChunkSize} Bytes ab. Damit lassen sich die Abschnittsgrenzen ohne Dateien
+     * von über einem GB testen.
+     */
+    static ReadWriteFile openMappedForReading(Path path, long mappedChunkSize) throws IOException {
+        return new ReadWriteFile(new RandomAccessFile(path.toFile(), "r"), path, InputMode.MAPPED, OutputMode.BUFFERED, DEFAULT_BLOCK_SIZE, mappedChunkSize);
+    }
+
+    /**
+     * Gibt die Größe der Abschnitte zurück, in denen die Datei im Eingabemodus MAPPED abgebildet wird.
+     */
+    long mappedChunkSize() {
+        return mappedChunkSize;
     }
 
     /**
@@ -47,9 +162,23 @@ public final class ReadWriteFile implements AutoCloseable {
      * dass die Inhalte der Datei zuvor gelöscht werden.
      */
     public static ReadWriteFile overwriteReadWriteFile(RandomAccessFile randomAccessFile) throws IOException {
+        return overwriteReadWriteFile(randomAccessFile, OutputMode.BUFFERED);
+    }
+
+    /**
+     * Wie oben, die Ausgabestreams schreiben aber im Ausgabemodus {@param outputMode}.
+     */
+    public static ReadWriteFile overwriteReadWriteFile(RandomAccessFile randomAccessFile, OutputMode outputMode) throws IOException {
+        return overwriteReadWriteFile(randomAccessFile, outputMode, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Wie oben, im Ausgabemodus WRITE_BEHIND wird aber in Blöcken zu je {@param blockSize} Bytes geschrieben.
+     */
+    public static ReadWriteFile overwriteReadWriteFile(RandomAccessFile randomAccessFile, OutputMode outputMode, int blockSize) throws IOException {
         randomAccessFile.setLength(0);
 
-        return new ReadWriteFile(randomAccessFile);
+        return new ReadWriteFile(randomAccessFile, null, InputMode.BUFFERED, outputMode, blockSize);
     }
 
     /**
@@ -71,6 +200,22 @@ public final class ReadWriteFile implements AutoCloseable {
     public InputStream inputStream(long filePosition) throws IOException {
         throwIfStreamOpened();
 
+        if (inputMode == InputMode.MAPPED) {
+            // Es wird kein Puffer benötigt, die Daten
+            // werden direkt aus der Abbildung gelesen.
+            lastInputStream = new MappedFileInputStream(this, randomAccessFile.length(), filePosition);
+
+            return lastInputStream;
+        }
+
+        if (inputMode == InputMode.READ_AHEAD) {
+            // Liest mit absoluten Positionen, daher
+            // muss die Datei nicht gewechselt werden.
+            lastInputStream = new ReadAheadInputStream(randomAccessFile.getChannel(), filePosition, blockSize);
+
+            return lastInputStream;
+        }
+
         // Zuerst an diese Stelle der Datei wechseln
         randomAccessFile.seek(filePosition);
 
@@ -84,10 +229,57 @@ public final class ReadWriteFile implements AutoCloseable {
         return lastInputStream;
     }
 
+    /**
+     * Gibt wie inputStream einen Eingabestream ab der Position [filePosition] zurück, der aber
+     * unabhängig vom Eingabemodus aus einer Abbildung der Datei in den Speicher liest. Damit können
+     * etwa Prüfsummen über gerade geschriebene Daten parallel berechnet werden.
+     * <p>
+     * Auch dieser Eingabestream muss mittels releaseInputStream wieder freigegeben werden.
+     */
+    public InputStream mappedInputStream(long filePosition) throws IOException {
+        throwIfStreamOpened();
+
+        lastInputStream = new MappedFileInputStream(this, randomAccessFile.length(), filePosition);
+
+        return lastInputStream;
+    }
+
+    /**
+     * Gibt die aktuelle Länge der Datei in Bytes zurück.
+     */
+    public long length() throws IOException {
+        return randomAccessFile.length();
+    }
+
+    /**
+     * Gibt den Abschnitt {@param chunkIndex} der in den Speicher abgebildeten Datei
+     * zurück. Der Abschnitt wird beim ersten Zugriff abgebildet und danach wiederverwendet.
+     */
+    MappedByteBuffer mappedChunk(int chunkIndex) throws IOException {
+        MappedByteBuffer mappedChunk = mappedChunks.get(chunkIndex);
+
+        if (mappedChunk == null) {
+            long chunkStart = chunkIndex * mappedChunkSize;
+            long chunkLength = Math.min(mappedChunkSize, randomAccessFile.length() - chunkStart);
+
+            mappedChunk = randomAccessFile
+                    .getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkLength);
+
+            mappedChunks.put(chunkIndex, mappedChunk);
+        }
+
+        return mappedChunk;
+    }
+
     /**
      * Gibt den Eingabestream wieder frei.
      */
     public void releaseInputStream() {
+        // Beendet den lesenden Thread, schließt aber nicht den FileChannel.
+        if (lastInputStream instanceof ReadAheadInputStream)
+            ((ReadAheadInputStream) lastInputStream).close();
+
         lastInputStream = null;
 
         // BufferedInputStream darf nicht geschlossen werden,
@@ -103,18 +295,23 @@ public final class ReadWriteFile implements AutoCloseable {
      * <p>
      * Nur unterstützt, wenn die Datei für Schreiben geöffnet ist.
      */
-    public BufferedOutputStream outputStream(long filePosition) throws IOException {
+    public OutputStream outputStream(long filePosition) throws IOException {
         throwIfStreamOpened();
 
+        // Die Abschnitte wurden mit der alten Dateilänge abgebildet.
+        mappedChunks.clear();
+
         // Zuerst an diese Stelle der Datei wechseln
         randomAccessFile.seek(filePosition);
 
+        OutputStream channelOutputStream = Channels.newOutputStream(randomAccessFile.getChannel());
+
         // Dann öffnen wir den Ausgabestream an dieser Position
-        lastOutputStream = new BufferedOutputStream(
-                Channels.newOutputStream(
-                        randomAccessFile.getChannel()
-                )
-        );
+        if (outputMode == OutputMode.WRITE_BEHIND) {
+            lastOutputStream = new WriteBehindOutputStream(channelOutputStream, blockSize, WriteBehindOutputStream.DEFAULT_NUMBER_OF_BLOCKS);
+        } else {
+            lastOutputStream = new BufferedOutputStream(channelOutputStream);
+        }
 
         return lastOutputStream;
     }
@@ -123,13 +320,62 @@ public final class ReadWriteFile implements AutoCloseable {
      * Gibt den Ausgabestream wieder frei.
      */
     public void releaseOutputStream() throws IOException {
-        // Noch nicht gespeicherte Daten des
-        // Ausgabestreams schreiben
-        lastOutputStream.flush();
-        lastOutputStream = null;
+        try {
+            finishOutputStream();
+        } finally {
+            lastOutputStream = null;
+        }
+    }
 
-        // Der Stream darf nicht geschlossen werden,
+    /**
+     * Schreibt noch nicht gespeicherte Daten des Ausgabestreams. Der WriteBehindOutputStream
+     * wird dafür geschlossen, was seinen Thread beendet, aber nicht den FileChannel schließt.
+     */
+    private void finishOutputStream() throws IOException {
+        // Ein BufferedOutputStream darf nicht geschlossen werden,
         // da sonst der zugrundeliegende FileChannel geschlossen würde.
+        if (lastOutputStream instanceof WriteBehindOutputStream)
+            lastOutputStream.close();
+        else
+            lastOutputStream.flush();
+    }
+
+    /**
+     * Kopiert {@param count} Bytes ab der Position {@param filePosition} dieser Datei an die Position
+     * {@param targetPosition} der Datei {@param target}. Die Bytes werden mit FileChannel.transferTo
+     * kopiert und müssen dadurch (je nach Betriebssystem) nicht durch den Arbeitsspeicher des
+     * Programms. Für beide Dateien darf dabei kein Stream geöffnet sein.
+     */
+    public void transferTo(long filePosition, long count, ReadWriteFile target, long targetPosition) throws IOException {
+        throwIfStreamOpened();
+        target.throwIfStreamOpened();
+
+        FileChannel sourceChannel = randomAccessFile.getChannel();
+        FileChannel targetChannel = target.randomAccessFile.getChannel();
+
+        long transferredBytes = 0;
+        while (transferredBytes < count) {
+            // transferTo kann weniger Bytes als angefordert
+            // kopieren und wird dann wiederholt.
+            targetChannel.position(targetPosition + transferredBytes);
+            long bytes = sourceChannel.transferTo(filePosition + transferredBytes, count - transferredBytes, targetChannel);
+
+            if (bytes <= 0)
+                throw new PropraException("Das Dateiende wurde vorzeitig erreicht.");
+
+            transferredBytes += bytes;
+        }
+    }
+
+    /**
+     * Kürzt oder verlängert die Datei auf {@param length} Bytes.
+     * Nur unterstützt, wenn die Datei für Schreiben geöffnet ist.
+     */
+    public void setLength(long length) throws IOException {
+        throwIfStreamOpened();
+
+        mappedChunks.clear();
+        randomAccessFile.setLength(length);
     }
 
     /**
@@ -139,11 +385,15 @@ public final class ReadWriteFile implements AutoCloseable {
     public void close() throws IOException {
         // Noch nicht gespeicherte Daten des
         // Ausgabestreams schreiben
-        if (lastOutputStream != null) {
-            lastOutputStream.flush();
-        }
+        try {
+            if (lastOutputStream != null)
+                finishOutputStream();
+        } finally {
+            if (lastInputStream != null)
+                releaseInputStream();
 
-        randomAccessFile.close();
+            randomAccessFile.close();
+        }
     }
 
 }
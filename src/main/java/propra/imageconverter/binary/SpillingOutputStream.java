@@ -0,0 +1,145 @@
+package propra.imageconverter.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Ausgabestream, der die geschriebenen Daten zwischenspeichert, um sie
+ * später an ein anderes Ziel weiterzugeben (siehe {@link #copyTo(OutputStream)}).
+ * <p>
+ * Die Daten werden zunächst im Arbeitsspeicher gehalten. Überschreiten sie die
+ * Grenze {@code memoryLimit}, werden sie in eine temporäre Datei ausgelagert. Die
+ * temporäre Datei wird mit {@link #discard()} wieder gelöscht.
+ */
+public final class SpillingOutputStream extends OutputStream {
+    private final int memoryLimit;
+
+    /**
+     * Daten im Arbeitsspeicher; null, sobald die Daten ausgelagert wurden.
+     */
+    private ByteArrayOutputStream memoryData = new ByteArrayOutputStream();
+
+    /**
+     * Temporäre Datei und Ausgabestream in diese Datei, falls die Daten ausgelagert wurden.
+     */
+    private Path spillFile = null;
+    private OutputStream spillStream = null;
+
+    private long length = 0;
+
+    public SpillingOutputStream(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        spillIfNeeded(1);
+
+        if (spillStream != null) {
+            spillStream.write(b);
+        } else {
+            memoryData.write(b);
+        }
+
+        length++;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        spillIfNeeded(length);
+
+        if (spillStream != null) {
+            spillStream.write(data, offset, length);
+        } else {
+            memoryData.write(data, offset, length);
+        }
+
+        this.length += length;
+    }
+
+    /**
+     * Lagert die Daten in eine temporäre Datei aus, falls durch das
+     * Schreiben von {@param additionalBytes} Bytes die Grenze überschritten würde.
+     */
+    private void spillIfNeeded(int additionalBytes) throws IOException {
+        if (spillStream != null || length + additionalBytes <= memoryLimit)
+            return;
+
+        spillFile = Files.createTempFile("propra", ".tmp");
+        spillFile.toFile().deleteOnExit();
+
+        spillStream = new BufferedOutputStream(Files.newOutputStream(spillFile));
+        memoryData.writeTo(spillStream);
+        memoryData = null;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher geschriebenen Bytes zurück.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Gibt an, ob die Daten in eine temporäre Datei ausgelagert wurden.
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (spillStream != null)
+            spillStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Schreibt alle zwischengespeicherten Daten in den Ausgabestream {@param target}.
+     * <p>
+     * Ausgelagerte Daten werden mittels FileChannel.transferTo übertragen, ohne
+     * sie dafür vollständig in den Arbeitsspeicher zu laden.
+     */
+    public void copyTo(OutputStream target) throws IOException {
+        if (spillFile == null) {
+            memoryData.writeTo(target);
+            return;
+        }
+
+        spillStream.flush();
+
+        WritableByteChannel targetChannel = Channels.newChannel(target);
+        try (FileChannel sourceChannel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            long position = 0;
+
+            // transferTo überträgt nicht zwingend alle Bytes auf einmal
+            while (position < length) {
+                position += sourceChannel.transferTo(position, length - position, targetChannel);
+            }
+        }
+    }
+
+    /**
+     * Verwirft die zwischengespeicherten Daten und löscht die temporäre Datei, falls vorhanden.
+     */
+    public void discard() throws IOException {
+        memoryData = null;
+
+        if (spillFile != null) {
+            spillStream.close();
+            Files.deleteIfExists(spillFile);
+        }
+    }
+}
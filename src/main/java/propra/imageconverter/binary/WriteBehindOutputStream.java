@@ -0,0 +1,237 @@
+package propra.imageconverter.binary;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Ausgabestream, der die geschriebenen Daten in Blöcken sammelt und volle Blöcke an einen
+ * eigenen Thread übergibt, der sie in den darunterliegenden Stream schreibt. Währenddessen
+ * kann der Aufrufer bereits den nächsten Block füllen.
+ * <p>
+ * Es gibt eine feste Anzahl an Blöcken, die zwischen Aufrufer und Thread im Kreis weitergereicht
+ * werden; ist kein freier Block vorhanden, wartet der Aufrufer, bis der Thread einen Block
+ * geschrieben hat. Der Speicherbedarf ist damit begrenzt.
+ * <p>
+ * Fehler beim Schreiben werden beim nächsten Aufruf von write, flush oder close geworfen.
+ * close beendet den Thread, schließt aber den darunterliegenden Stream nicht.
+ */
+final class WriteBehindOutputStream extends OutputStream {
+    /**
+     * Standardanzahl der Blöcke.
+     */
+    static final int DEFAULT_NUMBER_OF_BLOCKS = 4;
+
+    /**
+     * Markiert das Ende der Blöcke für den schreibenden Thread.
+     */
+    private static final Block END_OF_BLOCKS = new Block(0);
+
+    private final OutputStream origin;
+    private final int numberOfBlocks;
+
+    private final BlockingQueue<Block> freeBlocks;
+    private final BlockingQueue<Block> filledBlocks;
+
+    private final Thread writingThread;
+
+    /**
+     * Der Block, der gerade gefüllt wird; null, falls noch kein freier Block geholt wurde.
+     */
+    private Block currentBlock = null;
+
+    /**
+     * Der erste Fehler des schreibenden Threads, sonst null.
+     */
+    private volatile Throwable writeError = null;
+
+    private boolean closed = false;
+
+    /**
+     * Erstellt einen WriteBehindOutputStream mit {@param numberOfBlocks} Blöcken
+     * zu je {@param blockSize} Bytes, der in {@param origin} schreibt.
+     */
+    WriteBehindOutputStream(OutputStream origin, int blockSize, int numberOfBlocks) {
+        this.origin = origin;
+        this.numberOfBlocks = numberOfBlocks;
+
+        this.freeBlocks = new ArrayBlockingQueue<>(numberOfBlocks);
+        this.filledBlocks = new ArrayBlockingQueue<>(numberOfBlocks + 1);
+
+        for (int i = 0; i < numberOfBlocks; i++) {
+            freeBlocks.add(new Block(blockSize));
+        }
+
+        this.writingThread = new Thread(this::writeBlocks, "propra-write-behind");
+        this.writingThread.setDaemon(true);
+        this.writingThread.start();
+    }
+
+    /**
+     * Schreibt die übergebenen Blöcke in der Reihenfolge der Übergabe, bis END_OF_BLOCKS
+     * übergeben wird. Nach einem Fehler werden die folgenden Blöcke nur noch freigegeben.
+     */
+    private void writeBlocks() {
+        try {
+            while (true) {
+                Block block = filledBlocks.take();
+
+                if (block == END_OF_BLOCKS)
+                    return;
+
+                try {
+                    if (writeError == null)
+                        origin.write(block.data, 0, block.length);
+                } catch (Throwable e) {
+                    writeError = e;
+                } finally {
+                    block.length = 0;
+                    freeBlocks.add(block);
+                }
+            }
+        } catch (InterruptedException e) {
+            writeError = e;
+        }
+    }
+
+    private void throwIfWriteFailed() throws IOException {
+        Throwable error = writeError;
+
+        if (error == null)
+            return;
+        if (error instanceof IOException)
+            throw (IOException) error;
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+
+        throw new IOException("Das Schreiben der Ausgabedatei wurde unterbrochen.", error);
+    }
+
+    /**
+     * Gibt einen Block mit freiem Platz zurück; wartet, falls alle Blöcke belegt sind.
+     */
+    private Block blockWithSpace() throws IOException {
+        if (currentBlock != null && currentBlock.length < currentBlock.data.length)
+            return currentBlock;
+
+        if (currentBlock != null)
+            handOverCurrentBlock();
+
+        try {
+            currentBlock = freeBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Das Schreiben der Ausgabedatei wurde unterbrochen.");
+        }
+
+        return currentBlock;
+    }
+
+    /**
+     * Übergibt den aktuellen Block an den schreibenden Thread.
+     */
+    private void handOverCurrentBlock() {
+        // Es gibt nie mehr gefüllte Blöcke als Blöcke
+        // insgesamt, daher wartet add nie.
+        filledBlocks.add(currentBlock);
+        currentBlock = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        throwIfWriteFailed();
+
+        Block block = blockWithSpace();
+        block.data[block.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        throwIfWriteFailed();
+
+        while (len > 0) {
+            Block block = blockWithSpace();
+            int bytes = Math.min(len, block.data.length - block.length);
+
+            System.arraycopy(b, off, block.data, block.length, bytes);
+            block.length += bytes;
+            off += bytes;
+            len -= bytes;
+        }
+    }
+
+    /**
+     * Übergibt den angefangenen Block und wartet, bis der Thread alle Blöcke
+     * geschrieben hat. Danach wird der darunterliegende Stream geleert.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (currentBlock != null && currentBlock.length > 0)
+            handOverCurrentBlock();
+
+        // Sind alle Blöcke wieder frei, wurden alle geschrieben.
+        Block[] blocks = new Block[numberOfBlocks];
+        int blocksTaken = currentBlock != null ? 1 : 0;
+
+        if (currentBlock != null)
+            blocks[0] = currentBlock;
+
+        try {
+            while (blocksTaken < numberOfBlocks) {
+                blocks[blocksTaken++] = freeBlocks.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Das Schreiben der Ausgabedatei wurde unterbrochen.");
+        } finally {
+            currentBlock = null;
+
+            for (int i = 0; i < blocksTaken; i++) {
+                freeBlocks.add(blocks[i]);
+            }
+        }
+
+        throwIfWriteFailed();
+
+        origin.flush();
+    }
+
+    /**
+     * Schreibt alle Blöcke und beendet den schreibenden Thread.
+     * Der darunterliegende Stream bleibt geöffnet.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        try {
+            flush();
+        } finally {
+            closed = true;
+            filledBlocks.add(END_OF_BLOCKS);
+
+            try {
+                writingThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ein Block aus Daten und der Anzahl der gültigen Bytes.
+     */
+    private static final class Block {
+        private final byte[] data;
+        private int length = 0;
+
+        private Block(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
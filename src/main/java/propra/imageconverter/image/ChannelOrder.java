@@ -0,0 +1,66 @@
+package propra.imageconverter.image;
+
+/**
+ * Gibt die Reihenfolge der Farbkanäle eines Bildpunkts an, wie
+ * sie in einer Bilddatei abgelegt ist.
+ * <p>
+ * ImageReader liefern die Bildzeilen in der Reihenfolge ihres Formats und
+ * die Writer fordern die Reihenfolge ihres Formats an. Damit muss pro Bildpunkt
+ * höchstens eine Umsortierung vorgenommen werden; bei gleicher Reihenfolge keine.
+ */
+public enum ChannelOrder {
+    RGB(0, 1, 2),
+    BGR(2, 1, 0),
+    GBR(1, 2, 0);
+
+    /**
+     * Gibt für jede Position innerhalb des Bildpunkts an,
+     * welcher Farbkanal dort abgelegt ist (0 = Rot, 1 = Grün, 2 = Blau).
+     */
+    private final int[] channelAtPosition;
+
+    ChannelOrder(int firstChannel, int secondChannel, int thirdChannel) {
+        this.channelAtPosition = new int[]{firstChannel, secondChannel, thirdChannel};
+    }
+
+    /**
+     * Gibt die Position des Farbkanals {@param channel} innerhalb
+     * eines Bildpunkts in dieser Reihenfolge zurück.
+     */
+    private int positionOfChannel(int channel) {
+        for (int position = 0; position < 3; position++) {
+            if (channelAtPosition[position] == channel)
+                return position;
+        }
+
+        // Kann nicht vorkommen, da jede Reihenfolge alle Kanäle enthält.
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Wandelt {@param numberOfPixels} Bildpunkte im Array {@param pixels} ab dem Index {@param offset}
+     * von dieser Reihenfolge direkt im Array in die Reihenfolge {@param targetOrder} um.
+     * Stimmen die Reihenfolgen überein, wird nichts getan.
+     */
+    public void convert(byte[] pixels, int offset, int numberOfPixels, ChannelOrder targetOrder) {
+        if (this == targetOrder)
+            return;
+
+        // Für jede Zielposition die Quellposition des entsprechenden Kanals;
+        // so wird jeder Bildpunkt mit einer einzigen Permutation umgewandelt.
+        int sourceOfFirst = positionOfChannel(targetOrder.channelAtPosition[0]);
+        int sourceOfSecond = positionOfChannel(targetOrder.channelAtPosition[1]);
+        int sourceOfThird = positionOfChannel(targetOrder.channelAtPosition[2]);
+
+        int end = offset + numberOfPixels * 3;
+        for (int i = offset; i < end; i += 3) {
+            byte first = pixels[i + sourceOfFirst];
+            byte second = pixels[i + sourceOfSecond];
+            byte third = pixels[i + sourceOfThird];
+
+            pixels[i] = first;
+            pixels[i + 1] = second;
+            pixels[i + 2] = third;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package propra.imageconverter.image;
+
+import propra.PropraException;
+
+/**
+ * Gibt an, wie die Bilddaten der Eingabedatei dekodiert werden.
+ */
+public enum DecodingMode {
+    /**
+     * Die Bildzeilen werden nacheinander in einem Thread dekodiert.
+     */
+    SERIAL,
+    /**
+     * Die Zeilengrenzen werden vorab bestimmt und Bänder aus Bildzeilen parallel
+     * dekodiert (siehe {@link ParallelImageReader}). Huffman-kodierte Daten, deren
+     * Zeilengrenzen sich nicht ohne Dekodieren bestimmen lassen, werden in Abschnitten
+     * spekulativ parallel dekodiert (siehe
+     * {@link propra.imageconverter.image.compression.huffman.ParallelHuffmanCompressionReader}).
+     */
+    PARALLEL;
+
+    /**
+     * Wandelt ein übergebenes Kommandozeilenargument in
+     * den Enum um.
+     */
+    public static DecodingMode parseCommandLineArgument(String cmdLineArg) {
+        switch (cmdLineArg) {
+            case "serial":
+                return SERIAL;
+            case "parallel":
+                return PARALLEL;
+        }
+
+        throw new PropraException("Der Dekodiermodus " + cmdLineArg + " wird nicht unterstützt.");
+    }
+}
@@ -0,0 +1,35 @@
+package propra.imageconverter.image;
+
+import propra.PropraException;
+
+/**
+ * Gibt an, wie die Schritte einer Konvertierung auf Threads verteilt werden.
+ */
+public enum ExecutionMode {
+    /**
+     * Dekodieren, Umwandeln der Farbkanäle, Kodieren und Schreiben
+     * erfolgen nacheinander in einem Thread.
+     */
+    SEQUENTIAL,
+    /**
+     * Dekodieren und Umwandeln der Farbkanäle laufen als eigene Stufen auf eigenen Threads
+     * (siehe {@link PipelinedImageReader}), ebenso das Schreiben der Ausgabedatei (siehe
+     * {@link propra.imageconverter.binary.OutputMode#WRITE_BEHIND}). Der aufrufende Thread kodiert.
+     */
+    PIPELINED;
+
+    /**
+     * Wandelt ein übergebenes Kommandozeilenargument in
+     * den Enum um.
+     */
+    public static ExecutionMode parseCommandLineArgument(String cmdLineArg) {
+        switch (cmdLineArg) {
+            case "sequential":
+                return SEQUENTIAL;
+            case "pipelined":
+                return PIPELINED;
+        }
+
+        throw new PropraException("Der Ausführungsmodus " + cmdLineArg + " wird nicht unterstützt.");
+    }
+}
@@ -1,6 +1,10 @@
 package propra.imageconverter.image;
 
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.compression.CompressionType;
+
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Ermöglicht das pixelweise Einlesen einer Bilddatei.
@@ -20,10 +24,28 @@ public interface ImageReader extends AutoCloseable {
     int getHeight();
 
     /**
-     * Liest den nächsten Pixel im RGB-Format und erhöht den
-     * internen Cursor zum nächsten Pixel.
+     * Gibt die Reihenfolge der Farbkanäle an, in der die
+     * Bildpunkte von readRow geliefert werden. Das ist die
+     * Reihenfolge des eingelesenen Formats.
+     */
+    ChannelOrder getChannelOrder();
+
+    /**
+     * Gibt die Kompression an, mit der die Bilddaten
+     * in der eingelesenen Datei gespeichert sind.
      */
-    byte[] readNextPixel() throws IOException;
+    CompressionType getCompressionType();
+
+    /**
+     * Liest die nächste Bildzeile in das übergebene Array
+     * {@param targetRow} ab dem Index {@param offset} ein und erhöht den internen
+     * Cursor um eine Bildzeile. Es werden genau getWidth() * 3 Bytes geschrieben;
+     * die Farbkanäle liegen in der Reihenfolge von getChannelOrder() vor.
+     * <p>
+     * Das Array gehört dem Aufrufer und kann für jede Zeile wiederverwendet werden;
+     * pro Bildpunkt wird kein neues Array angelegt.
+     */
+    void readRow(byte[] targetRow, int offset) throws IOException;
 
     /**
      * Gibt an, ob es einen nächsten Pixel gibt
@@ -36,4 +58,56 @@ public interface ImageReader extends AutoCloseable {
      * Bilddaten zurück.
      */
     void reset() throws IOException;
+
+    /**
+     * Setzt den Bilddatenstrom auf den Beginn der Bildzeile {@param row}, die mit dem
+     * nächsten Aufruf von readRow gelesen wird.
+     * <p>
+     * Mit einem zur Bilddatei gehörenden Zeilenindex {@param rowIndex} wird ab dem letzten Eintrag
+     * vor der Bildzeile dekodiert, ohne Zeilenindex (null) ab dem Beginn der Bilddaten. Wird
+     * über den Zeilenindex gesprungen, kann eine Prüfsumme erst nach einem reset wieder
+     * überprüft werden.
+     */
+    void seekToRow(int row, RowIndex rowIndex) throws IOException;
+
+    /**
+     * Erstellt in einem Durchlauf über die Bilddaten einen Zeilenindex für jede {@param interval}-te
+     * Bildzeile, ohne die Bilddaten zu dekodieren. Gibt null zurück, falls sich die Zeilengrenzen
+     * der Kompression nur durch Dekodieren bestimmen lassen (Huffman-Kodierung).
+     * <p>
+     * Der Lesezeiger wird danach auf den Anfang der Bilddaten zurückgesetzt. Eine Prüfsumme,
+     * die beim Dekodieren überprüft würde, wird schon bei diesem Durchlauf überprüft.
+     */
+    RowIndex scanRowIndex(int interval) throws IOException;
+
+    /**
+     * Kopiert das kodierte Datensegment unverändert an die Position {@param targetPosition}
+     * der Datei {@param target}, ohne es zu dekodieren (siehe {@link ReadWriteFile#transferTo}), und
+     * gibt seine Länge in Bytes zurück. Gibt -1 zurück, ohne etwas zu kopieren, falls sich die Länge
+     * des Datensegments nur durch Dekodieren bestimmen lässt.
+     * <p>
+     * Der Lesezeiger wird danach auf den Anfang der Bilddaten zurückgesetzt. Eine Prüfsumme,
+     * die beim Dekodieren überprüft würde, wird vor dem Kopieren überprüft.
+     */
+    long transferEncodedData(ReadWriteFile target, long targetPosition) throws IOException;
+
+    /**
+     * Kopiert RLE-kodierte Bilddaten paketweise nach {@param outputStream}, ohne sie zu dekodieren;
+     * dabei werden nur die Farbkanäle der Bildpunkte in die Reihenfolge {@param targetOrder} gebracht
+     * (siehe {@link propra.imageconverter.image.compression.rle.RLECompressionReader#transcode}).
+     * Gibt die Anzahl der geschriebenen Bytes zurück oder -1, falls die Bilddaten nicht RLE-kodiert
+     * sind oder nicht paketweise kopiert werden können; im zweiten Fall kann bereits ein Teil
+     * geschrieben worden sein.
+     * <p>
+     * Der Lesezeiger wird danach auf den Anfang der Bilddaten zurückgesetzt. Eine Prüfsumme,
+     * die beim Dekodieren überprüft würde, wird beim Kopieren überprüft.
+     */
+    long transcodeEncodedData(OutputStream outputStream, ChannelOrder targetOrder) throws IOException;
+
+    /**
+     * Öffnet einen unabhängigen ImageReader über dieselbe Bilddatei. Er besitzt eine
+     * eigene Leseposition (am Anfang der Bilddaten) und kann parallel in einem anderen
+     * Thread verwendet werden. Der Aufrufer muss ihn wieder schließen.
+     */
+    ImageReader reopen() throws IOException;
 }
@@ -14,8 +14,42 @@ public interface ImageWriter {
      * die übergebene Datei {@param outputFile}. Die übergebene Datei muss durch
      * den Aufrufer wieder geschlossen werden.
      */
-    void write(
+    default void write(
             ImageReader imageReader,
             ReadWriteFile outputFile
+    ) throws IOException {
+        write(imageReader, outputFile, RowIndex.Builder.disabled());
+    }
+
+    /**
+     * Wie oben, zusätzlich werden die Bildzeilen dem Zeilenindex {@param rowIndex} gemeldet.
+     * Gibt den fertigen Zeilenindex zurück (null, falls {@param rowIndex} keine Einträge aufnimmt);
+     * der Aufrufer muss ihn selbst speichern (siehe {@link RowIndex#sidecarPathFor}).
+     */
+    RowIndex write(
+            ImageReader imageReader,
+            ReadWriteFile outputFile,
+            RowIndex.Builder rowIndex
     ) throws IOException;
+
+    /**
+     * Schreibt die Bilddaten aus dem übergebenen {@param imageReader} in die Datei {@param outputFile},
+     * ohne sie zu dekodieren und neu zu kodieren. Das ist nur möglich, wenn die Eingabedatei bereits mit
+     * der Kompression dieses Writers gespeichert ist (nicht für AUTO): Stimmt die Reihenfolge der
+     * Farbkanäle überein, wird das Datensegment unverändert kopiert, RLE-kodierte Daten werden
+     * paketweise übertragen (siehe {@link ImageReader#transcodeEncodedData}).
+     * <p>
+     * Gibt false zurück, falls die Bilddaten so nicht übertragen werden können. Die Ausgabedatei
+     * kann dann bereits teilweise beschrieben sein und muss vom Aufrufer zurückgesetzt werden.
+     */
+    boolean transcode(
+            ImageReader imageReader,
+            ReadWriteFile outputFile
+    ) throws IOException;
+
+    /**
+     * Gibt die Reihenfolge der Farbkanäle zurück, in der die Bildpunkte in die Datei
+     * geschrieben werden. Liefert der ImageReader diese Reihenfolge, entfällt die Umwandlung.
+     */
+    ChannelOrder getChannelOrder();
 }
@@ -0,0 +1,302 @@
+package propra.imageconverter.image;
+
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.compression.CompressionType;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static propra.imageconverter.util.RequireUtils.require;
+
+/**
+ * ImageReader, der die Bilddaten eines anderen ImageReaders in Bändern aus
+ * mehreren Bildzeilen parallel auf eigenen Threads dekodiert.
+ * <p>
+ * Die Zeilengrenzen werden vorab in einem Durchlauf über die Steuerbytes bestimmt
+ * (siehe {@link ImageReader#scanRowIndex(int)}); jedes Band wird dann von einem eigenen,
+ * mit reopen geöffneten Reader ab seinem Eintrag im Zeilenindex dekodiert. Die Bänder
+ * werden in der Reihenfolge der Bildzeilen ausgeliefert und es werden höchstens doppelt
+ * so viele Bänder wie Threads gleichzeitig im Speicher gehalten.
+ * <p>
+ * Die Threads gehören dem Reader (ein Thread je Prozessor) und werden bei close beendet.
+ * Da sie aus Dateien lesen, blockieren sie anders als die Threads des gemeinsamen
+ * Fork-Join-Pools damit keine anderen Aufgaben.
+ */
+public final class ParallelImageReader implements ImageReader {
+    /**
+     * Ungefähre Größe eines Bands in Bytes.
+     */
+    private static final int BAND_SIZE = 1 << 20;
+
+    private final ImageReader origin;
+    private final RowIndex rowIndex;
+    private final ExecutorService executor;
+
+    private final int rowLength;
+    private final int rowsPerBand;
+    private final int numberOfBands;
+    private final int maxBandsInFlight;
+
+    /**
+     * Mit reopen geöffnete Reader, die gerade kein Band dekodieren. Sie
+     * werden wiederverwendet und erst beim Schließen geschlossen.
+     */
+    private final ConcurrentLinkedQueue<ImageReader> idleReaders = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Die Bänder, die gerade dekodiert werden, in der Reihenfolge der Bildzeilen.
+     */
+    private final Deque<Future<byte[]>> pendingBands = new ArrayDeque<>();
+
+    /**
+     * Das nächste Band, das noch nicht zum Dekodieren übergeben wurde.
+     */
+    private int nextBandToSubmit = 0;
+
+    /**
+     * Das dekodierte Band der aktuellen Bildzeile; null, falls es noch nicht abgeholt wurde.
+     */
+    private byte[] currentBand = null;
+
+    /**
+     * Die nächste Bildzeile, die mit readRow gelesen wird.
+     */
+    private int currentRow = 0;
+
+    private ParallelImageReader(ImageReader origin, RowIndex rowIndex, int numberOfThreads) {
+        this.origin = origin;
+        this.rowIndex = rowIndex;
+        this.executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+            Thread thread = new Thread(runnable, "propra-parallel-decoding");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        this.rowLength = origin.getWidth() * 3;
+        this.rowsPerBand = rowIndex.getInterval();
+        this.numberOfBands = (origin.getHeight() + rowsPerBand - 1) / rowsPerBand;
+        this.maxBandsInFlight = Math.max(2, numberOfThreads * 2);
+    }
+
+    /**
+     * Gibt einen ImageReader zurück, der die Bilddaten von {@param origin} parallel auf
+     * einem Thread je Prozessor dekodiert. Lassen sich die Zeilengrenzen nicht ohne Dekodieren
+     * bestimmen, wird {@param origin} selbst zurückgegeben.
+     * <p>
+     * Der zurückgegebene Reader übernimmt {@param origin} und schließt ihn beim Schließen.
+     */
+    public static ImageReader create(ImageReader origin) throws IOException {
+        return create(origin, Math.max(1, BAND_SIZE / (origin.getWidth() * 3)));
+    }
+
+    /**
+     * Wie oben, ein Band besteht aber aus {@param rowsPerBand} Bildzeilen.
+     */
+    static ImageReader create(ImageReader origin, int rowsPerBand) throws IOException {
+        RowIndex rowIndex = origin.scanRowIndex(rowsPerBand);
+
+        if (rowIndex == null)
+            return origin;
+
+        return new ParallelImageReader(origin, rowIndex, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public int getWidth() {
+        return origin.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return origin.getHeight();
+    }
+
+    @Override
+    public ChannelOrder getChannelOrder() {
+        return origin.getChannelOrder();
+    }
+
+    @Override
+    public CompressionType getCompressionType() {
+        return origin.getCompressionType();
+    }
+
+    @Override
+    public void readRow(byte[] targetRow, int offset) throws IOException {
+        require(currentRow < getHeight(), "Es wurden bereits alle Bildzeilen gelesen.");
+
+        if (currentBand == null)
+            currentBand = takeNextBand();
+
+        System.arraycopy(currentBand, (currentRow % rowsPerBand) * rowLength, targetRow, offset, rowLength);
+        currentRow++;
+
+        if (currentRow % rowsPerBand == 0)
+            currentBand = null;
+    }
+
+    /**
+     * Übergibt Bänder zum Dekodieren, bis maxBandsInFlight Bänder ausstehen,
+     * und wartet dann auf das älteste.
+     */
+    private byte[] takeNextBand() throws IOException {
+        while (pendingBands.size() < maxBandsInFlight && nextBandToSubmit < numberOfBands) {
+            int band = nextBandToSubmit++;
+            pendingBands.addLast(executor.submit(() -> decodeBand(band)));
+        }
+
+        try {
+            return pendingBands.removeFirst().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Das Dekodieren der Bilddaten wurde unterbrochen.");
+        }
+    }
+
+    /**
+     * Dekodiert die Bildzeilen des Bands {@param band} in ein neues Array.
+     */
+    private byte[] decodeBand(int band) throws IOException {
+        ImageReader reader = idleReaders.poll();
+
+        if (reader == null)
+            reader = origin.reopen();
+
+        try {
+            int firstRow = band * rowsPerBand;
+            int rows = Math.min(rowsPerBand, getHeight() - firstRow);
+            byte[] data = new byte[rows * rowLength];
+
+            reader.seekToRow(firstRow, rowIndex);
+
+            for (int i = 0; i < rows; i++) {
+                reader.readRow(data, i * rowLength);
+            }
+
+            return data;
+        } finally {
+            idleReaders.add(reader);
+        }
+    }
+
+    /**
+     * Wartet auf alle ausstehenden Bänder und verwirft sie.
+     */
+    private void discardPendingBands() {
+        boolean interrupted = false;
+
+        for (Future<byte[]> pendingBand : pendingBands) {
+            while (true) {
+                try {
+                    pendingBand.get();
+                    break;
+                } catch (ExecutionException e) {
+                    // Fehler eines verworfenen Bands sind nicht von Bedeutung.
+                    break;
+                } catch (InterruptedException e) {
+                    // Ein Band, das noch aus der Datei liest, muss
+                    // trotzdem abgewartet werden.
+                    interrupted = true;
+                }
+            }
+        }
+
+        pendingBands.clear();
+        currentBand = null;
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    @Override
+    public boolean hasNextPixel() {
+        return currentRow < getHeight();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        seekToRow(0, null);
+    }
+
+    /**
+     * Der Zeilenindex {@param rowIndex} wird nicht benötigt, da der eigene
+     * Zeilenindex alle Bänder enthält.
+     */
+    @Override
+    public void seekToRow(int row, RowIndex rowIndex) throws IOException {
+        require(row >= 0 && row < getHeight(), "Die Bildzeile " + row + " liegt außerhalb des Bilds.");
+
+        discardPendingBands();
+
+        nextBandToSubmit = row / rowsPerBand;
+        currentRow = row;
+    }
+
+    @Override
+    public RowIndex scanRowIndex(int interval) throws IOException {
+        return origin.scanRowIndex(interval);
+    }
+
+    @Override
+    public long transferEncodedData(ReadWriteFile target, long targetPosition) throws IOException {
+        return origin.transferEncodedData(target, targetPosition);
+    }
+
+    @Override
+    public long transcodeEncodedData(OutputStream outputStream, ChannelOrder targetOrder) throws IOException {
+        return origin.transcodeEncodedData(outputStream, targetOrder);
+    }
+
+    @Override
+    public ImageReader reopen() throws IOException {
+        return new ParallelImageReader(origin.reopen(), rowIndex, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void close() throws Exception {
+        discardPendingBands();
+
+        // Es läuft kein Band mehr, daher enden die Threads sofort. Sie werden nicht
+        // unterbrochen, da ein Unterbrechen während des Lesens den FileChannel schließen würde.
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Exception firstException = null;
+
+        for (ImageReader reader = idleReaders.poll(); reader != null; reader = idleReaders.poll()) {
+            try {
+                reader.close();
+            } catch (Exception e) {
+                if (firstException == null)
+                    firstException = e;
+            }
+        }
+
+        origin.close();
+
+        if (firstException != null)
+            throw firstException;
+    }
+}
@@ -0,0 +1,403 @@
+package propra.imageconverter.image;
+
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.compression.CompressionType;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static propra.imageconverter.util.RequireUtils.require;
+
+/**
+ * ImageReader, der die Bilddaten eines anderen ImageReaders in zwei Stufen auf eigenen Threads
+ * liefert: ein Thread dekodiert Blöcke aus Bildzeilen, ein zweiter wandelt ihre Farbkanäle in die
+ * Zielreihenfolge um. Der Aufrufer (etwa die Kompression) liest die umgewandelten Bildzeilen,
+ * während die Stufen bereits die folgenden Blöcke bearbeiten.
+ * <p>
+ * Die Stufen reichen eine feste Anzahl wiederverwendbarer Blöcke im Kreis weiter: frei, dekodiert,
+ * umgewandelt und nach dem Lesen wieder frei. Ist in einer Warteschlange kein Block, wartet die
+ * folgende Stufe blockierend; so bleibt der Speicherbedarf begrenzt und die Reihenfolge der
+ * Bildzeilen erhalten. Ein Fehler wird als Block mit gesetztem Fehler weitergereicht.
+ * <p>
+ * Die Threads werden beim ersten Lesen gestartet und bei reset, seekToRow und close beendet:
+ * die erste Stufe erhält STOP als nächsten freien Block, die zweite wird unterbrochen. Die erste
+ * Stufe wird nicht unterbrochen, da ein Unterbrechen während des Lesens den FileChannel der
+ * Eingabedatei schließen würde; die zweite wartet nur auf Warteschlangen und arbeitet im Speicher.
+ */
+public final class PipelinedImageReader implements ImageReader {
+    /**
+     * Ungefähre Größe eines Blocks in Bytes.
+     */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Anzahl der Blöcke, die zwischen den Stufen weitergereicht werden.
+     */
+    private static final int NUMBER_OF_BLOCKS = 4;
+
+    /**
+     * Beendet die erste Stufe, sobald sie einen freien Block anfordert.
+     */
+    private static final RowBlock STOP = new RowBlock(0);
+
+    private final ImageReader origin;
+    private final ChannelOrder targetOrder;
+
+    private final int rowLength;
+    private final int rowsPerBlock;
+
+    private final RowBlock[] blocks;
+    private final BlockingQueue<RowBlock> freeBlocks;
+    private final BlockingQueue<RowBlock> decodedBlocks;
+    private final BlockingQueue<RowBlock> convertedBlocks;
+
+    private Thread decodingThread = null;
+    private Thread convertingThread = null;
+
+    /**
+     * Der Block, aus dem gerade gelesen wird; null, falls er noch nicht abgeholt wurde.
+     */
+    private RowBlock currentBlock = null;
+
+    /**
+     * Die nächste Bildzeile innerhalb von currentBlock.
+     */
+    private int rowInBlock = 0;
+
+    /**
+     * Die nächste Bildzeile, die mit readRow gelesen wird.
+     */
+    private int currentRow = 0;
+
+    private PipelinedImageReader(ImageReader origin, ChannelOrder targetOrder, int rowsPerBlock) {
+        this.origin = origin;
+        this.targetOrder = targetOrder;
+
+        this.rowLength = origin.getWidth() * 3;
+        this.rowsPerBlock = rowsPerBlock;
+
+        this.blocks = new RowBlock[NUMBER_OF_BLOCKS];
+        // Jede Warteschlange fasst alle Blöcke, daher wartet put nie; in freeBlocks ist auch für STOP Platz.
+        this.freeBlocks = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS + 1);
+        this.decodedBlocks = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS);
+        this.convertedBlocks = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS);
+    }
+
+    /**
+     * Gibt einen ImageReader zurück, der die Bilddaten von {@param origin} auf eigenen Threads
+     * dekodiert und in die Reihenfolge {@param targetOrder} umwandelt.
+     * <p>
+     * Der zurückgegebene Reader übernimmt {@param origin} und schließt ihn beim Schließen.
+     */
+    public static ImageReader create(ImageReader origin, ChannelOrder targetOrder) {
+        return create(origin, targetOrder, Math.max(1, BLOCK_SIZE / Math.max(1, origin.getWidth() * 3)));
+    }
+
+    /**
+     * Wie oben, ein Block besteht aber aus {@param rowsPerBlock} Bildzeilen.
+     */
+    static ImageReader create(ImageReader origin, ChannelOrder targetOrder, int rowsPerBlock) {
+        return new PipelinedImageReader(origin, targetOrder, rowsPerBlock);
+    }
+
+    @Override
+    public int getWidth() {
+        return origin.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return origin.getHeight();
+    }
+
+    /**
+     * Die Bildzeilen werden bereits in der Zielreihenfolge geliefert.
+     */
+    @Override
+    public ChannelOrder getChannelOrder() {
+        return targetOrder;
+    }
+
+    @Override
+    public CompressionType getCompressionType() {
+        return origin.getCompressionType();
+    }
+
+    @Override
+    public void readRow(byte[] targetRow, int offset) throws IOException {
+        require(currentRow < getHeight(), "Es wurden bereits alle Bildzeilen gelesen.");
+
+        if (decodingThread == null)
+            startStages();
+
+        if (currentBlock == null) {
+            currentBlock = takeConvertedBlock();
+            rowInBlock = 0;
+        }
+
+        System.arraycopy(currentBlock.data, rowInBlock * rowLength, targetRow, offset, rowLength);
+        rowInBlock++;
+        currentRow++;
+
+        if (rowInBlock == currentBlock.rows) {
+            // Der Block wird für die nächsten Bildzeilen wiederverwendet.
+            freeBlocks.add(currentBlock);
+            currentBlock = null;
+        }
+    }
+
+    /**
+     * Wartet auf den nächsten umgewandelten Block und wirft
+     * den Fehler einer Stufe, falls sie fehlgeschlagen ist.
+     */
+    private RowBlock takeConvertedBlock() throws IOException {
+        RowBlock block;
+
+        // Die Stufen legen bis zur letzten Bildzeile oder bis zu
+        // einem Fehlerblock immer einen Block ab, daher endet take.
+        try {
+            block = convertedBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Das Dekodieren der Bilddaten wurde unterbrochen.");
+        }
+
+        Throwable error = block.error;
+
+        if (error == null)
+            return block;
+
+        // Die Stufen sind beendet. Der Block bleibt in der Warteschlange,
+        // damit auch jeder weitere Aufruf den Fehler wirft.
+        convertedBlocks.add(block);
+
+        if (error instanceof IOException)
+            throw (IOException) error;
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+
+        throw new IOException(error);
+    }
+
+    /**
+     * Startet die Stufen ab der aktuellen Bildzeile, auf der origin stehen muss.
+     */
+    private void startStages() {
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i] == null)
+                blocks[i] = new RowBlock(rowsPerBlock * rowLength);
+
+            freeBlocks.add(blocks[i]);
+        }
+
+        int firstRow = currentRow;
+
+        decodingThread = new Thread(() -> decodeBlocks(firstRow), "propra-decode");
+        convertingThread = new Thread(() -> convertBlocks(firstRow), "propra-convert");
+
+        decodingThread.setDaemon(true);
+        convertingThread.setDaemon(true);
+
+        decodingThread.start();
+        convertingThread.start();
+    }
+
+    /**
+     * Beendet die Stufen, falls sie laufen, und verwirft alle bereits bearbeiteten Blöcke.
+     * Danach steht origin auf einer unbestimmten Bildzeile.
+     */
+    private void stopStages() {
+        if (decodingThread == null)
+            return;
+
+        // Nur der Aufrufer gibt Blöcke frei, daher ist STOP
+        // danach der nächste freie Block der ersten Stufe.
+        freeBlocks.clear();
+        freeBlocks.add(STOP);
+
+        convertingThread.interrupt();
+
+        boolean interrupted = false;
+        for (Thread thread : new Thread[]{decodingThread, convertingThread}) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        decodingThread = null;
+        convertingThread = null;
+        currentBlock = null;
+
+        freeBlocks.clear();
+        decodedBlocks.clear();
+        convertedBlocks.clear();
+    }
+
+    /**
+     * Erste Stufe: dekodiert die Bildzeilen ab {@param firstRow} blockweise.
+     */
+    private void decodeBlocks(int firstRow) {
+        try {
+            for (int row = firstRow; row < getHeight(); ) {
+                RowBlock block = freeBlocks.take();
+
+                if (block == STOP)
+                    return;
+
+                block.rows = Math.min(rowsPerBlock, getHeight() - row);
+                block.error = null;
+
+                try {
+                    for (int i = 0; i < block.rows; i++) {
+                        origin.readRow(block.data, i * rowLength);
+                    }
+                } catch (Throwable e) {
+                    // Der Fehler wird wie ein Block weitergereicht und
+                    // beim Lesen dieses Blocks geworfen.
+                    block.error = e;
+                    decodedBlocks.put(block);
+                    return;
+                }
+
+                int rows = block.rows;
+
+                decodedBlocks.put(block);
+                row += rows;
+            }
+        } catch (InterruptedException e) {
+            // Wird nicht unterbrochen (siehe stopStages).
+        }
+    }
+
+    /**
+     * Zweite Stufe: wandelt die Farbkanäle der dekodierten Blöcke in die Zielreihenfolge um.
+     */
+    private void convertBlocks(int firstRow) {
+        ChannelOrder sourceOrder = origin.getChannelOrder();
+
+        try {
+            for (int row = firstRow; row < getHeight(); ) {
+                RowBlock block = decodedBlocks.take();
+
+                if (block.error == null) {
+                    try {
+                        sourceOrder.convert(block.data, 0, block.rows * getWidth(), targetOrder);
+                    } catch (Throwable e) {
+                        block.error = e;
+                    }
+                }
+
+                // Nach der Übergabe kann der Block bereits gelesen, freigegeben und
+                // von der ersten Stufe wiederverwendet werden; danach werden daher
+                // nur noch die vorher gemerkten Werte verwendet.
+                boolean failed = block.error != null;
+                int rows = block.rows;
+
+                convertedBlocks.put(block);
+
+                if (failed)
+                    return;
+
+                row += rows;
+            }
+        } catch (InterruptedException e) {
+            // Die Stufe wird von stopStages beendet.
+        }
+    }
+
+    @Override
+    public boolean hasNextPixel() {
+        return currentRow < getHeight();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        stopStages();
+
+        origin.reset();
+        currentRow = 0;
+    }
+
+    @Override
+    public void seekToRow(int row, RowIndex rowIndex) throws IOException {
+        require(row >= 0 && row < getHeight(), "Die Bildzeile " + row + " liegt außerhalb des Bilds.");
+
+        stopStages();
+
+        origin.seekToRow(row, rowIndex);
+        currentRow = row;
+    }
+
+    @Override
+    public RowIndex scanRowIndex(int interval) throws IOException {
+        stopStages();
+
+        return origin.scanRowIndex(interval);
+    }
+
+    /**
+     * Das kodierte Datensegment liegt in der Reihenfolge von origin vor, nicht in der
+     * von getChannelOrder(); es wird daher nur kopiert, falls beide übereinstimmen.
+     */
+    @Override
+    public long transferEncodedData(ReadWriteFile target, long targetPosition) throws IOException {
+        if (origin.getChannelOrder() != targetOrder)
+            return -1;
+
+        stopStages();
+
+        return origin.transferEncodedData(target, targetPosition);
+    }
+
+    @Override
+    public long transcodeEncodedData(OutputStream outputStream, ChannelOrder targetOrder) throws IOException {
+        stopStages();
+
+        return origin.transcodeEncodedData(outputStream, targetOrder);
+    }
+
+    @Override
+    public ImageReader reopen() throws IOException {
+        return new PipelinedImageReader(origin.reopen(), targetOrder, rowsPerBlock);
+    }
+
+    @Override
+    public void close() throws Exception {
+        stopStages();
+
+        origin.close();
+    }
+
+    /**
+     * Ein Block aus Bildzeilen, der zwischen den Stufen weitergereicht wird.
+     */
+    private static final class RowBlock {
+        private final byte[] data;
+
+        /**
+         * Anzahl der gültigen Bildzeilen in data.
+         */
+        private int rows = 0;
+
+        /**
+         * Fehler einer Stufe, sonst null.
+         */
+        private Throwable error = null;
+
+        private RowBlock(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
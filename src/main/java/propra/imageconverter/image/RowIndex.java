@@ -0,0 +1,281 @@
+package propra.imageconverter.image;
+
+import propra.imageconverter.binary.LittleEndianInputStream;
+import propra.imageconverter.binary.LittleEndianOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static propra.imageconverter.util.RequireUtils.require;
+
+/**
+ * Der Zeilenindex speichert für jede interval-te Bildzeile, an welcher Stelle des
+ * Datensegments sie beginnt und in welchem Zustand sich der Dekodierer dort befindet.
+ * Damit kann ein ImageReader (siehe {@link ImageReader#seekToRow(int, RowIndex)}) eine
+ * Bildzeile lesen, ohne alle vorherigen Bildzeilen zu dekodieren.
+ * <p>
+ * Der Index wird beim Schreiben einer Bilddatei erstellt und in einer eigenen Datei
+ * neben der Bilddatei abgelegt (siehe {@link #sidecarPathFor(Path)}). Die Datei besteht aus
+ * der Formatkennung, Breite und Höhe (je 2 Bytes), dem Intervall und der Anzahl der Einträge
+ * (je 4 Bytes), der Länge des Datensegments (8 Bytes) und den Einträgen; alle Werte
+ * werden wie in den Bildformaten als Little Endian gespeichert.
+ */
+public final class RowIndex {
+    /**
+     * Der statische Beginn einer Indexdatei.
+     */
+    private static final byte[] MAGIC_HEADER = "ProPraIdx1".getBytes();
+
+    /**
+     * Die Dateiendung, die an den Namen der Bilddatei angehängt wird.
+     */
+    public static final String FILE_EXTENSION = "idx";
+
+    private final int width;
+    private final int height;
+    private final int interval;
+    private final long lengthOfContent;
+
+    /**
+     * Der Eintrag an der Stelle i gehört zur Bildzeile i * interval.
+     */
+    private final Entry[] entries;
+
+    private RowIndex(int width, int height, int interval, long lengthOfContent, Entry[] entries) {
+        this.width = width;
+        this.height = height;
+        this.interval = interval;
+        this.lengthOfContent = lengthOfContent;
+        this.entries = entries;
+    }
+
+    /**
+     * Gibt den Pfad der Indexdatei für die Bilddatei {@param imageFile} zurück.
+     */
+    public static Path sidecarPathFor(Path imageFile) {
+        return imageFile.resolveSibling(imageFile.getFileName() + "." + FILE_EXTENSION);
+    }
+
+    /**
+     * Liest den Zeilenindex aus der Datei {@param indexFile}.
+     */
+    public static RowIndex read(Path indexFile) throws IOException {
+        try (LittleEndianInputStream inputStream
+                     = new LittleEndianInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            byte[] magicHeader = new byte[MAGIC_HEADER.length];
+            inputStream.readFully(magicHeader);
+            require(Arrays.equals(magicHeader, MAGIC_HEADER), "Die Datei " + indexFile + " ist kein Zeilenindex.");
+
+            int width = inputStream.readUShort();
+            int height = inputStream.readUShort();
+            int interval = (int) inputStream.readUInt();
+            long numberOfEntries = inputStream.readUInt();
+            long lengthOfContent = inputStream.readULong().longValueExact();
+
+            require(interval > 0, "Das Intervall des Zeilenindex muss größer als 0 sein.");
+            require(numberOfEntries == numberOfEntries(height, interval), "Die Anzahl der Einträge des Zeilenindex passt nicht zur Höhe des Bilds.");
+
+            Entry[] entries = new Entry[(int) numberOfEntries];
+            for (int i = 0; i < entries.length; i++) {
+                long bitPosition = inputStream.readULong().longValueExact();
+                int remainingRepetitions = inputStream.readUByte();
+                int remainingNonRepeatedPixels = inputStream.readUByte();
+                byte[] repeatedPixel = new byte[3];
+                inputStream.readFully(repeatedPixel);
+
+                entries[i] = new Entry(i * interval, bitPosition, remainingRepetitions, remainingNonRepeatedPixels, repeatedPixel);
+            }
+
+            return new RowIndex(width, height, interval, lengthOfContent, entries);
+        }
+    }
+
+    /**
+     * Schreibt den Zeilenindex in die Datei {@param indexFile}; eine bestehende
+     * Datei wird überschrieben.
+     */
+    public void write(Path indexFile) throws IOException {
+        try (LittleEndianOutputStream outputStream
+                     = new LittleEndianOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+            outputStream.writeFully(MAGIC_HEADER);
+            outputStream.writeUShort(width);
+            outputStream.writeUShort(height);
+            outputStream.writeUInt(interval);
+            outputStream.writeUInt(entries.length);
+            outputStream.writeULong(BigInteger.valueOf(lengthOfContent));
+
+            for (Entry entry : entries) {
+                outputStream.writeULong(BigInteger.valueOf(entry.bitPosition));
+                outputStream.writeUByte(entry.remainingRepetitions);
+                outputStream.writeUByte(entry.remainingNonRepeatedPixels);
+                outputStream.writeFully(entry.repeatedPixel);
+            }
+        }
+    }
+
+    /**
+     * Anzahl der Einträge für ein Bild der Höhe {@param height}.
+     */
+    private static long numberOfEntries(int height, int interval) {
+        return (height + (long) interval - 1) / interval;
+    }
+
+    /**
+     * Gibt an, ob der Index zu einem Bild mit der Breite {@param width}, der Höhe {@param height}
+     * und einem Datensegment der Länge {@param lengthOfContent} gehören kann. Ein veralteter Index
+     * einer inzwischen überschriebenen Bilddatei wird so in den meisten Fällen erkannt.
+     */
+    public boolean matches(int width, int height, long lengthOfContent) {
+        return this.width == width && this.height == height && this.lengthOfContent == lengthOfContent;
+    }
+
+    /**
+     * Gibt den letzten Eintrag zurück, der nicht hinter der Bildzeile {@param row} liegt.
+     */
+    public Entry entryForRow(int row) {
+        require(row >= 0 && row < height, "Die Bildzeile " + row + " liegt außerhalb des Bilds.");
+
+        return entries[row / interval];
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Ein Eintrag des Zeilenindex.
+     */
+    public static final class Entry {
+        private final int row;
+        private final long bitPosition;
+        private final int remainingRepetitions;
+        private final int remainingNonRepeatedPixels;
+        private final byte[] repeatedPixel;
+
+        private Entry(int row, long bitPosition, int remainingRepetitions, int remainingNonRepeatedPixels, byte[] repeatedPixel) {
+            this.row = row;
+            this.bitPosition = bitPosition;
+            this.remainingRepetitions = remainingRepetitions;
+            this.remainingNonRepeatedPixels = remainingNonRepeatedPixels;
+            this.repeatedPixel = repeatedPixel;
+        }
+
+        /**
+         * Die Bildzeile, an deren Beginn der Eintrag gilt.
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Die Position des ersten noch nicht gelesenen Bits ab dem Beginn
+         * des Datensegments. Außer bei der Huffman-Kodierung ist sie immer
+         * ein Vielfaches von 8.
+         */
+        public long getBitPosition() {
+            return bitPosition;
+        }
+
+        /**
+         * Die noch ausstehenden Wiederholungen eines RLE-Wiederholungszählers.
+         */
+        public int getRemainingRepetitions() {
+            return remainingRepetitions;
+        }
+
+        /**
+         * Die noch ausstehenden Bildpunkte eines RLE-Datenzählers.
+         */
+        public int getRemainingNonRepeatedPixels() {
+            return remainingNonRepeatedPixels;
+        }
+
+        /**
+         * Der wiederholte Bildpunkt, falls getRemainingRepetitions() > 0.
+         */
+        public byte[] getRepeatedPixel() {
+            return repeatedPixel.clone();
+        }
+    }
+
+    /**
+     * Sammelt die Einträge, während eine Kompression die Bildzeilen schreibt. Die
+     * Kompression meldet dafür jede Bildzeile in aufsteigender Reihenfolge, aufgenommen
+     * wird aber nur jede interval-te.
+     */
+    public static final class Builder {
+        private static final byte[] NO_PIXEL = new byte[3];
+
+        private final int interval;
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Builder(int interval) {
+            this.interval = interval;
+        }
+
+        /**
+         * Erstellt einen Builder, der jede {@param interval}-te Bildzeile aufnimmt.
+         */
+        public static Builder everyNthRow(int interval) {
+            require(interval > 0, "Das Intervall des Zeilenindex muss größer als 0 sein.");
+
+            return new Builder(interval);
+        }
+
+        /**
+         * Erstellt einen Builder, der keine Einträge aufnimmt; build gibt dann null zurück.
+         */
+        public static Builder disabled() {
+            return new Builder(0);
+        }
+
+        /**
+         * Gibt an, ob Einträge aufgenommen werden. Eine Kompression kann damit
+         * Aufwand sparen, der nur für den Index nötig ist.
+         */
+        public boolean isEnabled() {
+            return interval > 0;
+        }
+
+        /**
+         * Meldet den Beginn der Bildzeile {@param row} an der Bitposition {@param bitPosition}
+         * des Datensegments, an der sich der Dekodierer in seinem Ausgangszustand befindet.
+         */
+        public void recordRow(int row, long bitPosition) {
+            recordRow(row, bitPosition, 0, 0, NO_PIXEL);
+        }
+
+        /**
+         * Wie oben, ein RLE-Paket der vorherigen Bildzeile reicht aber noch in diese Bildzeile hinein.
+         * Vom wiederholten Bildpunkt {@param repeatedPixel} werden die ersten 3 Bytes übernommen.
+         */
+        public void recordRow(int row, long bitPosition, int remainingRepetitions, int remainingNonRepeatedPixels, byte[] repeatedPixel) {
+            if (!isEnabled() || row % interval != 0)
+                return;
+
+            require(row / interval == entries.size(), "Die Bildzeilen müssen dem Zeilenindex in aufsteigender Reihenfolge gemeldet werden.");
+
+            entries.add(new Entry(row, bitPosition, remainingRepetitions, remainingNonRepeatedPixels, Arrays.copyOf(repeatedPixel, 3)));
+        }
+
+        /**
+         * Erstellt den Zeilenindex für das geschriebene Bild mit der Breite {@param width},
+         * der Höhe {@param height} und der Länge des Datensegments {@param lengthOfContent}.
+         */
+        public RowIndex build(int width, int height, long lengthOfContent) {
+            if (!isEnabled())
+                return null;
+
+            require(entries.size() == numberOfEntries(height, interval), "Es wurden nicht alle Bildzeilen für den Zeilenindex gemeldet.");
+
+            return new RowIndex(width, height, interval, lengthOfContent, entries.toArray(new Entry[0]));
+        }
+    }
+}
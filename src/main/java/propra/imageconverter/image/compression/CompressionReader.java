@@ -8,8 +8,13 @@ import java.io.IOException;
  */
 public interface CompressionReader {
     /**
-     * Lese das nächste Pixel unter Beachtung des Kompressions-
-     * algorithmus aus dem übergebenen {@param inputStream} aus.
+     * Liest die nächsten {@param numberOfPixels} Bildpunkte unter Beachtung
+     * des Kompressionsalgorithmus in das übergebene Array {@param target} ab
+     * dem Index {@param offset} ein. Es werden genau 3 * {@param numberOfPixels} Bytes
+     * geschrieben; die Bildpunkte werden im Format der Datei (ohne Konvertierung) geliefert.
+     * <p>
+     * Das Array gehört dem Aufrufer, es werden für das Einlesen keine
+     * weiteren Arrays angelegt.
      */
-    byte[] readNextPixel() throws IOException;
+    void readPixels(byte[] target, int offset, int numberOfPixels) throws IOException;
 }
@@ -4,6 +4,7 @@ import propra.PropraException;
 import propra.imageconverter.image.compression.huffman.HuffmanCompressionWriter;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
 import propra.imageconverter.image.compression.rle.RLECompressionWriter;
+import propra.imageconverter.image.compression.selector.AutoSelectionMode;
 import propra.imageconverter.image.compression.selector.CompressionSelector;
 import propra.imageconverter.image.compression.uncompressed.NoCompressionWriter;
 
@@ -77,6 +78,18 @@ public enum CompressionType {
 	public CompressionWriter getCompressionWriterWithAuto(
 			List<CompressionType> supportedCompressions,
 			PixelIterator pixelIterator
+	) throws IOException {
+		return getCompressionWriterWithAuto(supportedCompressions, pixelIterator, AutoSelectionMode.ESTIMATE);
+	}
+
+	/**
+	 * Wie oben, für den Kompressionstyp AUTO wird die Kompression dabei
+	 * entsprechend {@param autoSelectionMode} ausgewählt.
+	 */
+	public CompressionWriter getCompressionWriterWithAuto(
+			List<CompressionType> supportedCompressions,
+			PixelIterator pixelIterator,
+			AutoSelectionMode autoSelectionMode
 	) throws IOException {
 		if (this != AUTO)
 			return getCompressionWriter();
@@ -88,7 +101,6 @@ public enum CompressionType {
 				.collect(Collectors.toList());
 
 		return CompressionSelector
-				.findOptimalCompression(supportedCompressionsWithoutAuto, pixelIterator)
-				.getCompressionWriter();
+				.findOptimalCompressionWriter(supportedCompressionsWithoutAuto, pixelIterator, autoSelectionMode);
 	}
 }
@@ -1,9 +1,10 @@
 package propra.imageconverter.image.compression;
 
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Ermöglicht das Schreiben von Bilddaten mit
@@ -15,9 +16,21 @@ public interface CompressionWriter {
      * mit der entsprechenden Komprimierung in den übergebenen {@param outputStream}.
      * Gibt die Anzahl an Bytes zurück, die geschrieben wurden.
      */
+    default long write(
+            PixelIterator pixelData,
+            OutputStream outputStream
+    ) throws IOException {
+        return write(pixelData, outputStream, RowIndex.Builder.disabled());
+    }
+
+    /**
+     * Wie oben, zusätzlich wird der Beginn jeder Bildzeile (mit dem Zustand des Dekodierers
+     * an dieser Stelle) dem Zeilenindex {@param rowIndex} gemeldet.
+     */
     long write(
             PixelIterator pixelData,
-            BufferedOutputStream outputStream
+            OutputStream outputStream,
+            RowIndex.Builder rowIndex
     ) throws IOException;
 
     /**
@@ -4,6 +4,8 @@ import propra.imageconverter.image.compression.iterator.PixelIterator;
 
 import java.io.IOException;
 
+import static propra.imageconverter.util.RequireUtils.require;
+
 /**
  * Der ByteIterator macht aus den Daten eines PixelIterator einen
  * Bytestrom. Das macht es für den Verwender leichter, mit den Daten
@@ -14,42 +16,58 @@ class ByteIterator {
     private final PixelIterator origin;
 
     /**
-     * Aktueller Pixel, der in 3 einzelne Bytes
-     * gesplittet wird.
+     * Aktuelle Bildzeile, deren Bytes
+     * einzeln zurückgegeben werden.
      */
-    private byte[] currentPixel;
+    private final byte[] currentRow;
 
     /**
-     * Aktuelles Byte innerhalb des Pixel.
+     * Aktuelles Byte innerhalb der Bildzeile.
      */
-    private int currentIndexOfPixel = -1;
+    private int currentIndexOfRow;
 
     ByteIterator(PixelIterator origin) {
         this.origin = origin;
+        this.currentRow = new byte[origin.getWidth() * 3];
+        this.currentIndexOfRow = currentRow.length;
     }
 
     /**
      * Liest das nächste Byte aus dem Datenstrom aus.
      */
     byte readNextByte() throws IOException {
-        if (currentIndexOfPixel == -1 || currentIndexOfPixel == 3) {
-            currentPixel = origin.readNextPixel();
-            currentIndexOfPixel = 0;
+        if (currentIndexOfRow == currentRow.length) {
+            origin.readNextRow(currentRow);
+            currentIndexOfRow = 0;
         }
 
-        byte result = currentPixel[currentIndexOfPixel];
+        byte result = currentRow[currentIndexOfRow];
 
-        currentIndexOfPixel++;
+        currentIndexOfRow++;
 
         return result;
     }
 
+    /**
+     * Liest die nächste Bildzeile am Stück und gibt sie zurück. Das zurückgegebene
+     * Array wird beim nächsten Lesen wiederverwendet und darf nicht verändert werden.
+     * <p>
+     * Darf nur aufgerufen werden, wenn die aktuelle Bildzeile vollständig gelesen wurde.
+     */
+    byte[] readNextRow() throws IOException {
+        require(currentIndexOfRow == currentRow.length, "Die aktuelle Bildzeile wurde noch nicht vollständig gelesen.");
+
+        origin.readNextRow(currentRow);
+
+        return currentRow;
+    }
+
     /**
      * Gibt an, ob ein weiteres Byte
      * im Datenstrom vorhanden ist.
      */
     public boolean hasNextByte() {
-        return currentIndexOfPixel < 3 || origin.hasNextPixel();
+        return currentIndexOfRow < currentRow.length || origin.hasNextRow();
     }
 
     /**
@@ -58,6 +76,6 @@ class ByteIterator {
      */
     public void reset() throws IOException {
         origin.reset();
-        currentIndexOfPixel = -1;
+        currentIndexOfRow = currentRow.length;
     }
 }
@@ -2,6 +2,7 @@ package propra.imageconverter.image.compression.huffman;
 
 import propra.imageconverter.base.BitInputStream;
 import propra.imageconverter.image.compression.CompressionReader;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanDecodingTable;
 import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
 import propra.imageconverter.image.compression.huffman.tree.Node;
 
@@ -17,26 +18,53 @@ public class HuffmanCompressionReader implements CompressionReader {
      */
     private Node huffmanTree;
 
+    /**
+     * Aus dem Huffman-Baum erstellte Tabellen zum Dekodieren; null, falls
+     * der Baum noch nicht eingelesen wurde oder nur aus einem Blatt besteht.
+     */
+    private HuffmanDecodingTable decodingTable;
+
     public HuffmanCompressionReader(InputStream inputStream) {
         this.inputStream = new BitInputStream(inputStream);
     }
 
+    /**
+     * Erstellt einen HuffmanCompressionReader, der mit dem bereits gelesenen Baum {@param huffmanTree}
+     * mitten im Datensegment weiterliest. {@param inputStream} beginnt mit dem Byte, das die nächste
+     * Bitposition enthält; davon werden zuerst {@param bitOffset} (0 bis 7) Bits übersprungen.
+     */
+    public static HuffmanCompressionReader resumeAt(InputStream inputStream, Node huffmanTree, int bitOffset) throws IOException {
+        HuffmanCompressionReader reader = new HuffmanCompressionReader(inputStream);
+
+        reader.huffmanTree = huffmanTree;
+        reader.decodingTable = HuffmanDecodingTable.constructForTree(huffmanTree);
+        reader.inputStream.readBits(bitOffset);
+
+        return reader;
+    }
+
     @Override
-    public byte[] readNextPixel() throws IOException {
+    public void readPixels(byte[] target, int offset, int numberOfPixels) throws IOException {
         // Zuerst lesen wir den Huffman-Baum komplett ein.
         if (huffmanTree == null) {
             huffmanTree = HuffmanTree.constructFromStream(inputStream);
+            decodingTable = HuffmanDecodingTable.constructForTree(huffmanTree);
         }
 
-        // Nun verbleibt das Auslesen von jeweils 3 Bytes (= 1 Pixel).
-        int firstColorValue = huffmanTree.readEncodedData(inputStream);
-        int secondColorValue = huffmanTree.readEncodedData(inputStream);
-        int thirdColorValue = huffmanTree.readEncodedData(inputStream);
+        // Nun verbleibt das Auslesen von jeweils 3 Bytes (= 1 Pixel)
+        // pro angefordertem Bildpunkt.
+        int end = offset + numberOfPixels * 3;
+
+        if (decodingTable != null) {
+            for (int i = offset; i < end; i++) {
+                target[i] = (byte) decodingTable.readEncodedData(inputStream);
+            }
 
-        return new byte[]{
-                (byte) firstColorValue,
-                (byte) secondColorValue,
-                (byte) thirdColorValue
-        };
+            return;
+        }
+
+        for (int i = offset; i < end; i++) {
+            target[i] = (byte) huffmanTree.readEncodedData(inputStream);
+        }
     }
 }
@@ -1,22 +1,122 @@
 package propra.imageconverter.image.compression.huffman;
 
 import propra.imageconverter.base.BitOutputStream;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.CompressionWriter;
-import propra.imageconverter.image.compression.huffman.tree.BitPattern;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanCodeTable;
 import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
 import propra.imageconverter.image.compression.huffman.tree.Node;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import static propra.imageconverter.util.RequireUtils.require;
+
+/**
+ * Implementiert einen CompressionWriter mit Huffman-Kodierung. Die Daten werden zweimal
+ * gelesen: zuerst für die Häufigkeiten der Bytes, dann zum Kodieren.
+ * <p>
+ * Hat der Fork-Join-Pool mehr als einen Thread, werden beide Durchläufe in Bändern aus
+ * mehreren Bildzeilen parallel ausgeführt: die Häufigkeiten der Bänder werden zusammengezählt,
+ * die Bänder in eigene Bitpuffer kodiert und diese dann an der jeweiligen Bitposition
+ * aneinandergehängt. Das Ergebnis ist dasselbe wie beim zeilenweisen Kodieren.
+ */
 public class HuffmanCompressionWriter implements CompressionWriter {
+    /**
+     * Ungefähre Größe eines Bands aus Bildzeilen in Bytes, das am Stück verarbeitet wird.
+     */
+    private static final int BAND_SIZE = 1 << 20;
+
+    /**
+     * Maximale Länge der Codes in Bits.
+     */
+    private final int maxCodeLength;
+
+    /**
+     * Der Pool, auf dem die Bänder verarbeitet werden.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Anzahl der Bildzeilen eines Bands; 0, falls sie anhand von BAND_SIZE bestimmt wird.
+     */
+    private final int rowsPerBand;
+
+    public HuffmanCompressionWriter() {
+        this(HuffmanTree.DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    /**
+     * Erstellt einen HuffmanCompressionWriter, dessen Codes höchstens {@param maxCodeLength}
+     * Bits lang sind (zwischen HuffmanTree.MIN_MAX_CODE_LENGTH und HuffmanTree.MAX_MAX_CODE_LENGTH).
+     */
+    public HuffmanCompressionWriter(int maxCodeLength) {
+        require(maxCodeLength >= HuffmanTree.MIN_MAX_CODE_LENGTH && maxCodeLength <= HuffmanTree.MAX_MAX_CODE_LENGTH,
+                "Die maximale Länge eines Huffman-Codes muss zwischen " + HuffmanTree.MIN_MAX_CODE_LENGTH + " und " + HuffmanTree.MAX_MAX_CODE_LENGTH + " Bits liegen.");
+
+        this.maxCodeLength = maxCodeLength;
+        this.pool = ForkJoinPool.commonPool();
+        this.rowsPerBand = 0;
+    }
+
+    /**
+     * Erstellt einen HuffmanCompressionWriter mit Codes von höchstens HuffmanTree.DEFAULT_MAX_CODE_LENGTH
+     * Bits, der Bänder aus {@param rowsPerBand} Bildzeilen (0 = automatisch) auf dem Pool {@param pool} verarbeitet.
+     */
+    public HuffmanCompressionWriter(ForkJoinPool pool, int rowsPerBand) {
+        this.maxCodeLength = HuffmanTree.DEFAULT_MAX_CODE_LENGTH;
+        this.pool = pool;
+        this.rowsPerBand = rowsPerBand;
+    }
+
     @Override
-    public long write(PixelIterator pixelData, BufferedOutputStream outputStream) throws IOException {
-        return write(new ByteIterator(pixelData), new BitOutputStream(outputStream));
+    public long write(PixelIterator pixelData, OutputStream outputStream, RowIndex.Builder rowIndex) throws IOException {
+        int rowsPerBand = this.rowsPerBand > 0 ? this.rowsPerBand : Math.max(1, BAND_SIZE / (pixelData.getWidth() * 3));
+
+        // Nur mit mehreren Threads und mehr als einem Band
+        // lohnt sich das Aufteilen in Bänder.
+        if (pool.getParallelism() > 1 && pixelData.getHeight() > rowsPerBand)
+            return writeInBands(pixelData, new BitOutputStream(outputStream), rowIndex, rowsPerBand);
+
+        return write(new ByteIterator(pixelData), new BitOutputStream(outputStream), rowIndex);
+    }
+
+    /**
+     * Berechnet die Anzahl der Bytes, die beim Schreiben von Daten mit der Häufigkeitsverteilung
+     * {@param byteOccurences} (Anzahl der Vorkommnisse je vorzeichenlosem Byte) entstehen würden,
+     * wenn Codes höchstens HuffmanTree.DEFAULT_MAX_CODE_LENGTH Bits lang sind.
+     */
+    public static long calcEncodedLength(long[] byteOccurences) {
+        return calcEncodedLength(byteOccurences, HuffmanTree.DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    /**
+     * Wie oben, allerdings mit Codes von höchstens {@param maxCodeLength} Bits.
+     * <p>
+     * Dafür wird derselbe Baum wie beim Schreiben aufgebaut, aber nichts kodiert. Der gespeicherte
+     * Baum belegt bei n Blättern n * 9 Bits für die Blätter und n - 1 Bits für die inneren Knoten,
+     * die Daten die Summe aus Anzahl der Vorkommnisse und Länge des Codes über alle Bytes.
+     */
+    public static long calcEncodedLength(long[] byteOccurences, int maxCodeLength) {
+        HuffmanCodeTable codeTable
+                = HuffmanCodeTable.constructForTree(HuffmanTree.constructForHistogram(byteOccurences, maxCodeLength));
+
+        long numberOfLeaves = codeTable.getNumberOfCodes();
+        long writtenBits = numberOfLeaves * 9 + (numberOfLeaves - 1) + codeTable.calcEncodedBits(byteOccurences);
+
+        // Auffüllen wie in write
+        long paddingBits = (8 - writtenBits % 8) % 8;
+        writtenBits += paddingBits;
+
+        return writtenBits / 8;
     }
 
     @Override
@@ -24,17 +124,15 @@ public class HuffmanCompressionWriter implements CompressionWriter {
         return CompressionType.HUFFMAN;
     }
 
-    private long write(ByteIterator byteData, BitOutputStream outputStream) throws IOException {
-        Map<Byte, Integer> byteToOccurences
-                = new HashMap<>();
+    private long write(ByteIterator byteData, BitOutputStream outputStream, RowIndex.Builder rowIndex) throws IOException {
+        long[] histogram = new long[256];
 
         // Zuerst schauen wir, wie oft ein Byte des Datenstroms
         // in ihm vorkommt
         while (byteData.hasNextByte()) {
-            byte currentByte = byteData.readNextByte();
-
-            int oldNumberOfOccurences = byteToOccurences.getOrDefault(currentByte, 0);
-            byteToOccurences.put(currentByte, oldNumberOfOccurences + 1);
+            for (byte currentByte : byteData.readNextRow()) {
+                histogram[currentByte & 0xFF]++;
+            }
         }
 
         // Wir setzen den Datenstrom zurück, denn jetzt müssen
@@ -43,34 +141,230 @@ public class HuffmanCompressionWriter implements CompressionWriter {
 
         // Mit den entsprechenden Anzahlen können wir den Huffman-Baum generieren.
         Node huffmanTree
-                = HuffmanTree.constructForOccurenceMap(byteToOccurences);
+                = HuffmanTree.constructForHistogram(histogram, maxCodeLength);
 
         // Dann schreiben wir ihn in die Datei
         long writtenBits
                 = huffmanTree.writeTree(outputStream);
 
-        Map<Byte, BitPattern> huffmanMap
-                = huffmanTree.constructHuffmanMap();
+        HuffmanCodeTable codeTable
+                = HuffmanCodeTable.constructForTree(huffmanTree);
 
         // Nun müssen wir nurnoch die Daten des Stroms
-        // kodiert in die Datei schreiben.
+        // zeilenweise kodiert in die Datei schreiben. Zum Dekodieren ab einer
+        // Bildzeile genügen der Baum am Beginn und die Bitposition der Zeile.
+        int rowNumber = 0;
         while (byteData.hasNextByte()) {
-            BitPattern selectedPattern
-                    = huffmanMap.get(byteData.readNextByte());
+            rowIndex.recordRow(rowNumber++, writtenBits);
 
-            outputStream.writeBits(
-                    selectedPattern.getNumberOfBits(),
-                    selectedPattern.getBitPattern()
-            );
+            byte[] row = byteData.readNextRow();
 
-            writtenBits += selectedPattern.getNumberOfBits();
+            writtenBits += codeTable.encode(row, 0, row.length, outputStream);
         }
 
-        // Und dann füllen wir mit Nullen auf.
-        long paddingBits = writtenBits % 8;
+        // Und dann füllen wir mit Nullen bis zum nächsten vollen Byte auf,
+        // damit auch die letzten Bits geschrieben werden.
+        long paddingBits = (8 - writtenBits % 8) % 8;
         outputStream.writeBits((int) paddingBits, 0);
         writtenBits += paddingBits;
 
+        outputStream.flush();
+
         return writtenBits / 8;
     }
+
+    /**
+     * Wie write, beide Durchläufe werden aber in Bändern aus {@param rowsPerBand} Bildzeilen parallel
+     * ausgeführt. Der aufrufende Thread liest die Bänder, zählt die Häufigkeiten der Bänder zusammen
+     * und hängt die kodierten Bänder in der Reihenfolge der Bildzeilen aneinander; es werden höchstens
+     * doppelt so viele Bänder wie der Pool Threads hat gleichzeitig verarbeitet.
+     */
+    private long writeInBands(
+            PixelIterator pixelData,
+            BitOutputStream outputStream,
+            RowIndex.Builder rowIndex,
+            int rowsPerBand
+    ) throws IOException {
+        int maxBandsInFlight = pool.getParallelism() * 2;
+        long[] histogram = new long[256];
+
+        Deque<ForkJoinTask<long[]>> pendingHistograms = new ArrayDeque<>();
+
+        try {
+            byte[] band;
+            while ((band = readBand(pixelData, rowsPerBand)) != null) {
+                byte[] currentBand = band;
+                pendingHistograms.addLast(pool.submit(() -> countBytes(currentBand)));
+
+                if (pendingHistograms.size() >= maxBandsInFlight)
+                    addHistogram(histogram, pendingHistograms.removeFirst().join());
+            }
+
+            while (!pendingHistograms.isEmpty()) {
+                addHistogram(histogram, pendingHistograms.removeFirst().join());
+            }
+        } finally {
+            // Bei einem Fehler warten wir noch auf die übrigen Bänder.
+            for (ForkJoinTask<long[]> pendingHistogram : pendingHistograms) {
+                pendingHistogram.quietlyJoin();
+            }
+        }
+
+        pixelData.reset();
+
+        // Baum und Codes entstehen aus denselben Häufigkeiten wie beim
+        // zeilenweisen Kodieren und sind daher identisch.
+        Node huffmanTree
+                = HuffmanTree.constructForHistogram(histogram, maxCodeLength);
+
+        long writtenBits
+                = huffmanTree.writeTree(outputStream);
+
+        HuffmanCodeTable codeTable
+                = HuffmanCodeTable.constructForTree(huffmanTree);
+
+        int rowLength = pixelData.getWidth() * 3;
+        Deque<ForkJoinTask<EncodedBand>> pendingBands = new ArrayDeque<>();
+        int rowNumber = 0;
+
+        try {
+            byte[] band;
+            while ((band = readBand(pixelData, rowsPerBand)) != null) {
+                byte[] currentBand = band;
+                pendingBands.addLast(pool.submit(() -> encodeBand(currentBand, rowLength, codeTable)));
+
+                if (pendingBands.size() >= maxBandsInFlight) {
+                    EncodedBand encodedBand = pendingBands.removeFirst().join();
+                    rowNumber = encodedBand.recordRows(rowIndex, rowNumber, writtenBits);
+                    writtenBits += encodedBand.writeTo(outputStream);
+                }
+            }
+
+            while (!pendingBands.isEmpty()) {
+                EncodedBand encodedBand = pendingBands.removeFirst().join();
+                rowNumber = encodedBand.recordRows(rowIndex, rowNumber, writtenBits);
+                writtenBits += encodedBand.writeTo(outputStream);
+            }
+        } finally {
+            for (ForkJoinTask<EncodedBand> pendingBand : pendingBands) {
+                pendingBand.quietlyJoin();
+            }
+        }
+
+        // Auffüllen wie in write
+        long paddingBits = (8 - writtenBits % 8) % 8;
+        outputStream.writeBits((int) paddingBits, 0);
+        writtenBits += paddingBits;
+
+        outputStream.flush();
+
+        return writtenBits / 8;
+    }
+
+    /**
+     * Liest bis zu {@param rowsPerBand} Bildzeilen am Stück in ein neues Array. Gibt null
+     * zurück, falls keine Bildzeile mehr vorhanden ist.
+     */
+    private static byte[] readBand(PixelIterator pixelData, int rowsPerBand) throws IOException {
+        if (!pixelData.hasNextRow())
+            return null;
+
+        int rowLength = pixelData.getWidth() * 3;
+        byte[] row = new byte[rowLength];
+        byte[] band = new byte[rowsPerBand * rowLength];
+        int rows = 0;
+
+        while (rows < rowsPerBand && pixelData.hasNextRow()) {
+            pixelData.readNextRow(row);
+            System.arraycopy(row, 0, band, rows * rowLength, rowLength);
+            rows++;
+        }
+
+        return rows == rowsPerBand ? band : Arrays.copyOf(band, rows * rowLength);
+    }
+
+    /**
+     * Zählt, wie oft jedes (vorzeichenlose) Byte in {@param band} vorkommt.
+     */
+    private static long[] countBytes(byte[] band) {
+        long[] histogram = new long[256];
+
+        for (byte currentByte : band) {
+            histogram[currentByte & 0xFF]++;
+        }
+
+        return histogram;
+    }
+
+    private static void addHistogram(long[] histogram, long[] bandHistogram) {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += bandHistogram[i];
+        }
+    }
+
+    /**
+     * Kodiert die Bildzeilen der Länge {@param rowLength} des Bands {@param band}
+     * mit der Tabelle {@param codeTable} in einen eigenen Bitpuffer.
+     */
+    private static EncodedBand encodeBand(byte[] band, int rowLength, HuffmanCodeTable codeTable) throws IOException {
+        int rows = band.length / rowLength;
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(band.length);
+        BitOutputStream bitOutputStream = new BitOutputStream(data);
+        long[] rowStarts = new long[rows];
+        long numberOfBits = 0;
+
+        for (int i = 0; i < rows; i++) {
+            rowStarts[i] = numberOfBits;
+            numberOfBits += codeTable.encode(band, i * rowLength, rowLength, bitOutputStream);
+        }
+
+        // Die Bits des angefangenen Bytes werden nur mit dem Auffüllen geschrieben;
+        // beim Aneinanderhängen zählt aber nur numberOfBits.
+        bitOutputStream.writeBits((int) ((8 - numberOfBits % 8) % 8), 0);
+        bitOutputStream.flush();
+
+        return new EncodedBand(data.toByteArray(), numberOfBits, rowStarts);
+    }
+
+    /**
+     * Die kodierten Bildzeilen eines Bands.
+     */
+    private static final class EncodedBand {
+        private final byte[] data;
+
+        /**
+         * Anzahl der gültigen Bits in data.
+         */
+        private final long numberOfBits;
+
+        /**
+         * Beginn jeder Bildzeile innerhalb von data in Bits.
+         */
+        private final long[] rowStarts;
+
+        private EncodedBand(byte[] data, long numberOfBits, long[] rowStarts) {
+            this.data = data;
+            this.numberOfBits = numberOfBits;
+            this.rowStarts = rowStarts;
+        }
+
+        /**
+         * Meldet die Bildzeilen ab {@param firstRow} dem Zeilenindex {@param rowIndex}, wenn das Band
+         * an der Bitposition {@param bandStart} geschrieben wird. Gibt die nächste Bildzeile zurück.
+         */
+        private int recordRows(RowIndex.Builder rowIndex, int firstRow, long bandStart) {
+            for (int i = 0; i < rowStarts.length; i++) {
+                rowIndex.recordRow(firstRow + i, bandStart + rowStarts[i]);
+            }
+
+            return firstRow + rowStarts.length;
+        }
+
+        private long writeTo(BitOutputStream outputStream) throws IOException {
+            outputStream.writeBitBuffer(data, numberOfBits);
+
+            return numberOfBits;
+        }
+    }
 }
@@ -0,0 +1,416 @@
+package propra.imageconverter.image.compression.huffman;
+
+import propra.imageconverter.base.BitInputStream;
+import propra.imageconverter.image.compression.CompressionReader;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanDecodingTable;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
+import propra.imageconverter.image.compression.huffman.tree.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static propra.imageconverter.util.RequireUtils.require;
+
+/**
+ * Implementiert einen CompressionReader für Huffman-kodierte Daten, der das Datensegment
+ * ohne Zeilenindex parallel dekodiert und dabei genau dieselben Bytes liefert wie der
+ * HuffmanCompressionReader.
+ * <p>
+ * Das Datensegment wird in Abschnitte fester Länge aufgeteilt. Wo im Bitstrom der erste Code
+ * eines Abschnitts beginnt, ist erst bekannt, wenn der vorherige Abschnitt dekodiert wurde;
+ * jeder Abschnitt wird daher spekulativ ab seinem ersten Bit dekodiert. Huffman-Codes
+ * synchronisieren sich in der Regel nach wenigen Codes selbst: Sobald ein spekulativ
+ * gefundener Codebeginn mit einem tatsächlichen übereinstimmt, sind auch alle folgenden
+ * Codes richtig dekodiert.
+ * <p>
+ * Beim Abholen eines Abschnitts (in der Reihenfolge des Datensegments) ist die tatsächliche
+ * Position seines ersten Codes bekannt. Von dort wird seriell dekodiert, bis ein Codebeginn
+ * mit der spekulativen Dekodierung übereinstimmt; ab dort wird deren Ergebnis übernommen.
+ * Gibt es keine Übereinstimmung, wird der ganze Abschnitt seriell dekodiert.
+ * <p>
+ * Der Eingabestream wird nur vom aufrufenden Thread und der Reihe nach gelesen; es werden
+ * höchstens doppelt so viele Abschnitte wie der Pool Threads hat gleichzeitig im Speicher gehalten.
+ */
+public final class ParallelHuffmanCompressionReader implements CompressionReader {
+    /**
+     * Standardgröße eines Abschnitts in Bytes.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Ein Huffman-Baum aus höchstens 256 Blättern ist mit weniger als 512 Bytes gespeichert;
+     * der erste Abschnitt enthält ihn damit immer vollständig.
+     */
+    static final int MIN_CHUNK_SIZE = 512;
+
+    /**
+     * Anzahl der Bytes des folgenden Abschnitts, die zusätzlich in einen Abschnitt kopiert
+     * werden. Ein Code, der im Abschnitt beginnt, ist höchstens 255 Bits lang, dazu kommen
+     * die Bits, die HuffmanDecodingTable vorausliest. Bis zum Ende dieses Überhangs verhält
+     * sich der BitInputStream also wie über dem vollständigen Datensegment.
+     */
+    private static final int OVERLAP = 48;
+
+    /**
+     * Für so viele Codes am Beginn eines Abschnitts wird gespeichert, wo sie beginnen.
+     * Synchronisiert sich die spekulative Dekodierung erst danach, wird der Abschnitt seriell dekodiert.
+     */
+    private static final int SYNCHRONIZATION_WINDOW = 4096;
+
+    /**
+     * Anzahl der Bytes, die nach dem Ende des Datensegments auf einmal dekodiert werden.
+     */
+    private static final int END_OF_DATA_BLOCK_SIZE = 4096;
+
+    private final InputStream inputStream;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    private Node huffmanTree;
+    private HuffmanDecodingTable decodingTable;
+
+    /**
+     * Der bereits gelesene, aber noch nicht übergebene Abschnitt; null, falls das
+     * Ende des Datensegments erreicht wurde.
+     */
+    private byte[] nextChunk;
+    private long nextChunkStart = 0;
+
+    /**
+     * Die Abschnitte, die gerade spekulativ dekodiert werden, in der Reihenfolge des Datensegments.
+     */
+    private final Deque<ForkJoinTask<DecodedChunk>> pendingChunks = new ArrayDeque<>();
+
+    /**
+     * Die Bitposition des ersten noch nicht gelieferten Codes im Datensegment.
+     */
+    private long bitPosition;
+
+    /**
+     * Die dekodierten Bytes des aktuellen Abschnitts, die ab currentPosition noch nicht geliefert wurden.
+     */
+    private byte[] current = new byte[0];
+    private int currentPosition = 0;
+    private int currentLength = 0;
+
+    /**
+     * Nach dem letzten Abschnitt wird (wie beim HuffmanCompressionReader) über das
+     * Ende des Datensegments hinaus weitergelesen; null, solange es noch Abschnitte gibt.
+     */
+    private BitInputStream endOfData = null;
+
+    public ParallelHuffmanCompressionReader(InputStream inputStream) {
+        this(inputStream, ForkJoinPool.commonPool(), CHUNK_SIZE);
+    }
+
+    /**
+     * Wie oben, die Abschnitte werden aber auf dem Pool {@param pool} dekodiert und
+     * sind {@param chunkSize} (mindestens MIN_CHUNK_SIZE) Bytes lang.
+     */
+    ParallelHuffmanCompressionReader(InputStream inputStream, ForkJoinPool pool, int chunkSize) {
+        require(chunkSize >= MIN_CHUNK_SIZE, "Ein Abschnitt muss mindestens " + MIN_CHUNK_SIZE + " Bytes lang sein.");
+
+        this.inputStream = inputStream;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = Math.max(2, pool.getParallelism() * 2);
+    }
+
+    @Override
+    public void readPixels(byte[] target, int offset, int numberOfPixels) throws IOException {
+        // Zuerst lesen wir den Huffman-Baum am Beginn des ersten Abschnitts ein.
+        if (huffmanTree == null)
+            readHuffmanTree();
+
+        int currentOffset = offset;
+        int remainingBytes = numberOfPixels * 3;
+
+        while (remainingBytes > 0) {
+            if (currentPosition == currentLength) {
+                nextDecodedBytes();
+                continue;
+            }
+
+            int bytesToCopy = Math.min(remainingBytes, currentLength - currentPosition);
+            System.arraycopy(current, currentPosition, target, currentOffset, bytesToCopy);
+
+            currentPosition += bytesToCopy;
+            currentOffset += bytesToCopy;
+            remainingBytes -= bytesToCopy;
+        }
+    }
+
+    /**
+     * Liest den ersten Abschnitt und daraus den Huffman-Baum ein.
+     */
+    private void readHuffmanTree() throws IOException {
+        nextChunk = readChunk();
+
+        byte[] firstChunk = nextChunk == null ? new byte[0] : nextChunk;
+        BitInputStream treeInputStream = new BitInputStream(new ByteArrayInputStream(firstChunk));
+
+        huffmanTree = HuffmanTree.constructFromStream(treeInputStream);
+        decodingTable = HuffmanDecodingTable.constructForTree(huffmanTree);
+        bitPosition = treeInputStream.getNumberOfBitsRead();
+
+        // Ein Baum aus nur einem Blatt liest keine Bits, das Ergebnis
+        // ist also unabhängig vom Rest des Datensegments.
+        if (decodingTable == null) {
+            nextChunk = null;
+            endOfData = new BitInputStream(new ByteArrayInputStream(new byte[0]));
+        }
+    }
+
+    /**
+     * Liest den nächsten Abschnitt aus dem Eingabestream; null am Ende des Datensegments.
+     */
+    private byte[] readChunk() throws IOException {
+        byte[] chunk = new byte[chunkSize];
+        int length = inputStream.readNBytes(chunk, 0, chunkSize);
+
+        if (length == 0)
+            return null;
+
+        return length == chunkSize ? chunk : Arrays.copyOf(chunk, length);
+    }
+
+    /**
+     * Stellt die nächsten dekodierten Bytes in current bereit.
+     */
+    private void nextDecodedBytes() throws IOException {
+        if (endOfData != null) {
+            // Über das Ende des Datensegments hinaus dekodieren wir wie der
+            // HuffmanCompressionReader weiter. Es werden keine Bits mehr gelesen,
+            // daher schadet es nicht, mehr als benötigt zu dekodieren.
+            if (current.length < END_OF_DATA_BLOCK_SIZE)
+                current = new byte[END_OF_DATA_BLOCK_SIZE];
+
+            for (int i = 0; i < END_OF_DATA_BLOCK_SIZE; i++) {
+                current[i] = (byte) decode(endOfData);
+            }
+
+            currentPosition = 0;
+            currentLength = END_OF_DATA_BLOCK_SIZE;
+
+            return;
+        }
+
+        submitChunks();
+
+        if (pendingChunks.isEmpty()) {
+            endOfData = new BitInputStream(new ByteArrayInputStream(new byte[0]));
+            return;
+        }
+
+        DecodedChunk chunk = join(pendingChunks.removeFirst());
+        submitChunks();
+
+        currentPosition = 0;
+        currentLength = 0;
+
+        // Der vorherige Abschnitt endete mit einem Code, der über diesen
+        // Abschnitt hinausreicht; der Abschnitt enthält keinen Codebeginn.
+        if (bitPosition >= chunk.endBit)
+            return;
+
+        if (bitPosition == chunk.startBit) {
+            current = chunk.decoded;
+            currentLength = chunk.length;
+            bitPosition = chunk.endPosition;
+
+            return;
+        }
+
+        synchronize(chunk);
+    }
+
+    /**
+     * Dekodiert den Abschnitt {@param chunk} ab der tatsächlichen Position bitPosition, bis ein
+     * Codebeginn mit der spekulativen Dekodierung übereinstimmt oder das Ende des Abschnitts erreicht ist.
+     */
+    private void synchronize(DecodedChunk chunk) throws IOException {
+        BitInputStream bitInputStream = chunk.bitInputStreamAt(bitPosition);
+        long streamStart = bitPosition - bitInputStream.getNumberOfBitsRead();
+
+        byte[] prefix = new byte[64];
+        int prefixLength = 0;
+
+        long position = bitPosition;
+        int symbol = 0;
+
+        while (position < chunk.endBit) {
+            while (symbol < chunk.numberOfSynchronizationPoints && chunk.startBit + chunk.synchronizationPoints[symbol] < position) {
+                symbol++;
+            }
+
+            if (symbol < chunk.numberOfSynchronizationPoints && chunk.startBit + chunk.synchronizationPoints[symbol] == position) {
+                // Ab hier stimmt die spekulative Dekodierung.
+                current = Arrays.copyOf(prefix, prefixLength + chunk.length - symbol);
+                System.arraycopy(chunk.decoded, symbol, current, prefixLength, chunk.length - symbol);
+                currentLength = current.length;
+                bitPosition = chunk.endPosition;
+
+                return;
+            }
+
+            if (prefixLength == prefix.length)
+                prefix = Arrays.copyOf(prefix, prefix.length * 2);
+
+            prefix[prefixLength++] = (byte) decode(bitInputStream);
+            position = streamStart + bitInputStream.getNumberOfBitsRead();
+        }
+
+        current = prefix;
+        currentLength = prefixLength;
+        bitPosition = position;
+    }
+
+    /**
+     * Übergibt Abschnitte zum Dekodieren, bis maxChunksInFlight Abschnitte ausstehen.
+     */
+    private void submitChunks() throws IOException {
+        while (pendingChunks.size() < maxChunksInFlight && nextChunk != null) {
+            byte[] chunk = nextChunk;
+            long chunkStart = nextChunkStart;
+
+            nextChunk = readChunk();
+            nextChunkStart += chunk.length;
+
+            // Der Abschnitt erhält zusätzlich den Beginn des folgenden Abschnitts.
+            int overlap = nextChunk == null ? 0 : Math.min(OVERLAP, nextChunk.length);
+            byte[] data = Arrays.copyOf(chunk, chunk.length + overlap);
+            if (overlap > 0)
+                System.arraycopy(nextChunk, 0, data, chunk.length, overlap);
+
+            // Im ersten Abschnitt ist der Beginn des ersten Codes bekannt.
+            long startBit = chunkStart == 0 ? bitPosition : chunkStart * 8;
+            long endBit = (chunkStart + chunk.length) * 8;
+
+            pendingChunks.addLast(pool.submit(() -> decodeChunk(data, chunkStart, startBit, endBit)));
+        }
+    }
+
+    /**
+     * Dekodiert spekulativ ab dem Bit {@param startBit} bis zum ersten Code, der nicht
+     * vor dem Bit {@param endBit} beginnt. {@param data} enthält das Datensegment ab dem
+     * Byte {@param dataStart}.
+     */
+    private DecodedChunk decodeChunk(byte[] data, long dataStart, long startBit, long endBit) throws IOException {
+        DecodedChunk chunk = new DecodedChunk(data, dataStart, startBit, endBit);
+        BitInputStream bitInputStream = chunk.bitInputStreamAt(startBit);
+        long streamStart = startBit - bitInputStream.getNumberOfBitsRead();
+
+        byte[] decoded = new byte[(int) Math.min(Integer.MAX_VALUE - 8, (endBit - startBit) / 4 + 16)];
+        int length = 0;
+        int[] synchronizationPoints = new int[SYNCHRONIZATION_WINDOW];
+
+        long position = startBit;
+
+        while (position < endBit) {
+            if (length < SYNCHRONIZATION_WINDOW)
+                synchronizationPoints[length] = (int) (position - startBit);
+
+            if (length == decoded.length)
+                decoded = Arrays.copyOf(decoded, decoded.length * 2);
+
+            decoded[length++] = (byte) decodingTable.readEncodedData(bitInputStream);
+            position = streamStart + bitInputStream.getNumberOfBitsRead();
+        }
+
+        chunk.decoded = decoded;
+        chunk.length = length;
+        chunk.endPosition = position;
+        chunk.synchronizationPoints = synchronizationPoints;
+        chunk.numberOfSynchronizationPoints = Math.min(length, SYNCHRONIZATION_WINDOW);
+
+        return chunk;
+    }
+
+    /**
+     * Liest das nächste kodierte Byte wie der HuffmanCompressionReader.
+     */
+    private int decode(BitInputStream bitInputStream) throws IOException {
+        if (decodingTable != null)
+            return decodingTable.readEncodedData(bitInputStream);
+
+        return huffmanTree.readEncodedData(bitInputStream);
+    }
+
+    /**
+     * Wartet auf die Dekodierung eines Abschnitts.
+     */
+    private static DecodedChunk join(ForkJoinTask<DecodedChunk> task) throws IOException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Das Dekodieren der Bilddaten wurde unterbrochen.");
+        }
+    }
+
+    /**
+     * Ein Abschnitt des Datensegments und das Ergebnis seiner spekulativen Dekodierung.
+     */
+    private static final class DecodedChunk {
+        /**
+         * Die Bytes des Abschnitts und des Überhangs, beginnend mit dem Byte dataStart des Datensegments.
+         */
+        private final byte[] data;
+        private final long dataStart;
+
+        /**
+         * Die Bitposition, ab der spekulativ dekodiert wurde, und die Bitposition des folgenden Abschnitts.
+         */
+        private final long startBit;
+        private final long endBit;
+
+        private byte[] decoded;
+        private int length;
+
+        /**
+         * Die Bitposition des ersten Codes, der nicht vor endBit beginnt.
+         */
+        private long endPosition;
+
+        /**
+         * Für die ersten Codes der Beginn relativ zu startBit.
+         */
+        private int[] synchronizationPoints;
+        private int numberOfSynchronizationPoints;
+
+        private DecodedChunk(byte[] data, long dataStart, long startBit, long endBit) {
+            this.data = data;
+            this.dataStart = dataStart;
+            this.startBit = startBit;
+            this.endBit = endBit;
+        }
+
+        /**
+         * Erstellt einen BitInputStream über die Daten des Abschnitts, der als
+         * nächstes das Bit {@param bit} des Datensegments liest.
+         */
+        private BitInputStream bitInputStreamAt(long bit) throws IOException {
+            int byteOffset = (int) (bit / 8 - dataStart);
+            BitInputStream bitInputStream = new BitInputStream(new ByteArrayInputStream(data, byteOffset, data.length - byteOffset));
+            bitInputStream.readBits((int) (bit % 8));
+
+            return bitInputStream;
+        }
+    }
+}
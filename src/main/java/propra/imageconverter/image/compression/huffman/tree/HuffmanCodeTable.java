@@ -0,0 +1,66 @@
+package propra.imageconverter.image.compression.huffman.tree;
+
+import propra.imageconverter.base.BitOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Enthält für jedes (vorzeichenlose) Byte den Code und die Länge des Codes,
+ * mit denen es anhand eines Huffman-Baums kodiert wird. Damit lassen sich
+ * Daten ohne eine Map-Abfrage pro Byte kodieren.
+ */
+public final class HuffmanCodeTable {
+    private final int[] codes = new int[256];
+    private final int[] codeLengths = new int[256];
+
+    private HuffmanCodeTable() {
+    }
+
+    /**
+     * Erstellt die Tabelle für den übergebenen Huffman-Baum {@param huffmanTree}.
+     */
+    public static HuffmanCodeTable constructForTree(Node huffmanTree) {
+        HuffmanCodeTable codeTable = new HuffmanCodeTable();
+
+        huffmanTree.constructCodeTable(codeTable.codes, codeTable.codeLengths, 0, 0);
+
+        return codeTable;
+    }
+
+    /**
+     * Gibt die Anzahl der Bytes zurück, für die es einen Code gibt (die Anzahl der Blätter).
+     * Da die Wurzel immer ein innerer Knoten ist, ist jeder Code mindestens ein Bit lang.
+     */
+    public int getNumberOfCodes() {
+        int numberOfCodes = 0;
+
+        for (int codeLength : codeLengths) {
+            if (codeLength > 0)
+                numberOfCodes++;
+        }
+
+        return numberOfCodes;
+    }
+
+    /**
+     * Gibt die Anzahl der Bits zurück, die das Kodieren von Daten mit dem Histogramm
+     * {@param histogram} (Anzahl der Vorkommnisse je vorzeichenlosem Byte) ergibt.
+     */
+    public long calcEncodedBits(long[] histogram) {
+        long encodedBits = 0;
+
+        for (int i = 0; i < codeLengths.length; i++) {
+            encodedBits += histogram[i] * codeLengths[i];
+        }
+
+        return encodedBits;
+    }
+
+    /**
+     * Kodiert die {@param length} Bytes ab {@param offset} aus {@param data} in den
+     * Ausgabestrom {@param outputStream} und gibt die Anzahl der geschriebenen Bits zurück.
+     */
+    public long encode(byte[] data, int offset, int length, BitOutputStream outputStream) throws IOException {
+        return outputStream.writeCodes(data, offset, length, codes, codeLengths);
+    }
+}
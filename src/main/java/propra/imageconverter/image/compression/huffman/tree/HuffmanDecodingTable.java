@@ -0,0 +1,159 @@
+package propra.imageconverter.image.compression.huffman.tree;
+
+import propra.imageconverter.base.BitInputStream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ermöglicht das Dekodieren von Huffman-kodierten Daten mithilfe von Tabellen
+ * statt eines bitweisen Abstiegs durch den Huffman-Baum.
+ * <p>
+ * Die Primärtabelle wird mit den nächsten PRIMARY_TABLE_BITS Bits indiziert und liefert
+ * für alle Codes bis zu dieser Länge direkt das Byte und die Länge des Codes. Für längere
+ * Codes verweist der Eintrag auf eine Sekundärtabelle für den entsprechenden Teilbaum,
+ * die mit den darauffolgenden Bits (maximal SECONDARY_TABLE_BITS) indiziert wird usw.
+ * <p>
+ * Stehen vor dem Ende des Datenstroms nicht mehr genug Bits für einen Tabellenzugriff
+ * zur Verfügung, wird ab dem Teilbaum der aktuellen Tabelle wie bisher bitweise gelesen.
+ */
+public final class HuffmanDecodingTable {
+    private static final int PRIMARY_TABLE_BITS = 10;
+    private static final int SECONDARY_TABLE_BITS = 8;
+
+    /**
+     * Ein Tabelleneintrag enthält entweder in den niederwertigsten 8 Bits das dekodierte Byte und
+     * darüber die Länge des Codes innerhalb der Tabelle oder (mit gesetztem LINK-Bit) den Index der
+     * Tabelle, mit der weiter dekodiert wird. Ein Eintrag 0 ist nicht belegt.
+     */
+    private static final int LINK = 1 << 31;
+    private static final int LENGTH_SHIFT = 8;
+
+    private final int[][] tables;
+    private final int[] tableBits;
+    /**
+     * Der innere Knoten, für dessen Teilbaum die jeweilige Tabelle erstellt wurde.
+     */
+    private final Node[] tableRoots;
+
+    private HuffmanDecodingTable(List<int[]> tables, List<Integer> tableBits, List<Node> tableRoots) {
+        this.tables = tables.toArray(new int[0][]);
+        this.tableBits = tableBits.stream().mapToInt(Integer::intValue).toArray();
+        this.tableRoots = tableRoots.toArray(new Node[0]);
+    }
+
+    /**
+     * Erstellt die Tabellen für den übergebenen Huffman-Baum {@param huffmanTree}.
+     * <p>
+     * Besteht der Baum nur aus einem Blatt, wird kein Bit gelesen; in diesem Fall
+     * (und nur dann) wird null zurückgegeben und es muss direkt der Baum verwendet werden.
+     */
+    public static HuffmanDecodingTable constructForTree(Node huffmanTree) {
+        if (!(huffmanTree instanceof InnerNode))
+            return null;
+
+        Builder builder = new Builder();
+        builder.addTable((InnerNode) huffmanTree, PRIMARY_TABLE_BITS);
+
+        return new HuffmanDecodingTable(builder.tables, builder.tableBits, builder.tableRoots);
+    }
+
+    /**
+     * Liest das nächste kodierte Byte aus dem Eingabestrom. Das Ergebnis entspricht
+     * dem von Node#readEncodedData für den Baum, aus dem die Tabellen erstellt wurden.
+     */
+    public int readEncodedData(BitInputStream inputStream) throws IOException {
+        int tableIndex = 0;
+
+        while (true) {
+            int bits = tableBits[tableIndex];
+            int peekedBits = (int) inputStream.peekBits(bits);
+
+            // Kurz vor dem Ende des Datenstroms lesen wir bitweise weiter,
+            // damit sich das Verhalten beim Auffüllen nicht ändert.
+            if (peekedBits < 0)
+                return tableRoots[tableIndex].readEncodedData(inputStream);
+
+            int entry = tables[tableIndex][peekedBits];
+
+            if ((entry & LINK) != 0) {
+                inputStream.skipBits(bits);
+                tableIndex = entry & ~LINK;
+                continue;
+            }
+
+            int length = entry >>> LENGTH_SHIFT;
+
+            // Unvollständiger Baum: nicht belegte Einträge
+            // behandeln wir wie bisher über den Baum.
+            if (length == 0)
+                return tableRoots[tableIndex].readEncodedData(inputStream);
+
+            inputStream.skipBits(length);
+
+            return (byte) entry;
+        }
+    }
+
+    /**
+     * Sammelt die Tabellen beim Erstellen.
+     */
+    private static final class Builder {
+        private final List<int[]> tables = new ArrayList<>();
+        private final List<Integer> tableBits = new ArrayList<>();
+        private final List<Node> tableRoots = new ArrayList<>();
+
+        /**
+         * Fügt eine Tabelle für den Teilbaum unterhalb von {@param root} hinzu, die mit höchstens
+         * {@param maxBits} Bits indiziert wird, und gibt ihren Index zurück.
+         */
+        private int addTable(InnerNode root, int maxBits) {
+            int bits = Math.min(maxBits, HuffmanTree.depth(root));
+            int tableIndex = tables.size();
+
+            tables.add(new int[1 << bits]);
+            tableBits.add(bits);
+            tableRoots.add(root);
+
+            fill(tableIndex, bits, root.getLeft(), 1, 0);
+            fill(tableIndex, bits, root.getRight(), 1, 1);
+
+            return tableIndex;
+        }
+
+        /**
+         * Trägt den Knoten {@param node}, der mit den {@param depth} Bits {@param prefix} innerhalb
+         * der Tabelle erreicht wird, in die Tabelle {@param tableIndex} ein.
+         */
+        private void fill(int tableIndex, int bits, Node node, int depth, int prefix) {
+            if (node == null)
+                return;
+
+            if (node instanceof Leaf) {
+                int entry = (depth << LENGTH_SHIFT) | (((Leaf) node).getData() & 0xFF);
+                int first = prefix << (bits - depth);
+                int last = first + (1 << (bits - depth));
+
+                int[] table = tables.get(tableIndex);
+                for (int i = first; i < last; i++) {
+                    table[i] = entry;
+                }
+
+                return;
+            }
+
+            InnerNode innerNode = (InnerNode) node;
+
+            if (depth == bits) {
+                int linkedTableIndex = addTable(innerNode, SECONDARY_TABLE_BITS);
+                tables.get(tableIndex)[prefix] = LINK | linkedTableIndex;
+
+                return;
+            }
+
+            fill(tableIndex, bits, innerNode.getLeft(), depth + 1, prefix << 1);
+            fill(tableIndex, bits, innerNode.getRight(), depth + 1, (prefix << 1) | 1);
+        }
+    }
+}
@@ -1,52 +1,31 @@
 package propra.imageconverter.image.compression.huffman.tree;
 
-import propra.PropraException;
 import propra.imageconverter.base.BitInputStream;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
 
 import static propra.imageconverter.util.RequireUtils.require;
 
 public final class HuffmanTree {
-    private HuffmanTree() {
-    }
+    /**
+     * Maximale Länge eines Codes, wenn beim Erstellen keine andere angegeben wird. Damit
+     * passen Codes beim Kodieren und Dekodieren sicher in ein 64-Bit-Register.
+     */
+    public static final int DEFAULT_MAX_CODE_LENGTH = 24;
 
     /**
-     * Hilfsmethode, die innerhalb einer Liste von Knoten eines
-     * Huffman-Baums, die beiden Knoten zurückgibt, deren Anzahl
-     * an Vorkomnissen am kleinsten ist.
-     * <p>
-     * Das Ergebnis der Methode ist undefiniert, falls die Liste
-     * keine zwei Elemente mehr enthält.
+     * Kleinste (256 Blätter benötigen 8 Bits) und größte (Codes werden
+     * als int gespeichert) einstellbare maximale Länge eines Codes.
      */
-    private static List<Node> getSmallestTwoNodes(
-            List<Node> nodes
-    ) {
-        int firstValue = Integer.MAX_VALUE;
-        Node firstNode = null;
-
-        int secondValue = Integer.MAX_VALUE;
-        Node secondNode = null;
-
-        for (Node node : nodes) {
-            if (node.getNumberOfOccurences() < firstValue) {
-                secondNode = firstNode;
-                secondValue = firstValue;
-
-                firstNode = node;
-                firstValue = node.getNumberOfOccurences();
-            } else if (node.getNumberOfOccurences() < secondValue) {
-                secondNode = node;
-                secondValue = node.getNumberOfOccurences();
-            }
-        }
+    public static final int MIN_MAX_CODE_LENGTH = 8;
+    public static final int MAX_MAX_CODE_LENGTH = 32;
 
-        return Arrays.asList(firstNode, secondNode);
+    private HuffmanTree() {
     }
 
     /**
@@ -57,58 +36,229 @@ public final class HuffmanTree {
     public static Node constructForOccurenceMap(
             Map<Byte, Integer> occurenceMap
     ) {
-        require(occurenceMap.size() > 0, "Es muss für die Erstellung eines Huffman-Baums mindestens ein Byte in den Daten vorhanden sein.");
+        long[] histogram = new long[256];
+
+        occurenceMap.forEach((data, occurences) -> histogram[Byte.toUnsignedInt(data)] = occurences);
+
+        return constructForHistogram(histogram, DEFAULT_MAX_CODE_LENGTH);
+    }
+
+    /**
+     * Erstellt einen Huffman-Baum für ein Histogramm {@param histogram}, das für jedes
+     * (vorzeichenlose) Byte die Anzahl der Vorkomnisse innerhalb des Datenstroms enthält.
+     * <p>
+     * Es werden jeweils die beiden Knoten mit den wenigsten Vorkomnissen zusammengefasst, die
+     * dafür in einem Heap verwaltet werden. Bei gleicher Anzahl wird zuerst das kleinere Byte
+     * und dann ein Blatt vor einem inneren Knoten (in der Reihenfolge der Erstellung) gewählt;
+     * der Baum hängt damit nur vom Histogramm ab.
+     * <p>
+     * Wäre ein Code dabei länger als {@param maxCodeLength} Bits, wird stattdessen ein Baum mit
+     * optimalen Codes dieser maximalen Länge erstellt (siehe constructLengthLimited).
+     */
+    public static Node constructForHistogram(
+            long[] histogram,
+            int maxCodeLength
+    ) {
+        require(maxCodeLength >= MIN_MAX_CODE_LENGTH && maxCodeLength <= MAX_MAX_CODE_LENGTH,
+                "Die maximale Länge eines Huffman-Codes muss zwischen " + MIN_MAX_CODE_LENGTH + " und " + MAX_MAX_CODE_LENGTH + " Bits liegen.");
+
+        Node huffmanTree = constructUnlimited(histogram);
+
+        if (depth(huffmanTree) <= maxCodeLength)
+            return huffmanTree;
+
+        return constructLengthLimited(histogram, maxCodeLength);
+    }
+
+    /**
+     * Erstellt den Huffman-Baum für das Histogramm {@param histogram} ohne
+     * Beschränkung der Länge der Codes.
+     */
+    private static Node constructUnlimited(
+            long[] histogram
+    ) {
+        PriorityQueue<WeightedNode> nodes = new PriorityQueue<>(
+                Comparator.comparingLong((WeightedNode it) -> it.weight)
+                        .thenComparingInt(it -> it.order)
+        );
+
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0)
+                nodes.add(new WeightedNode(new Leaf(null, (byte) i), histogram[i], i));
+        }
+
+        require(nodes.size() > 0, "Es muss für die Erstellung eines Huffman-Baums mindestens ein Byte in den Daten vorhanden sein.");
 
         // Wir behandeln den Spezialfall, dass es mindestens
         // einen inneren Knoten geben muss. Wir machen das,
         // indem wir einfach ein weiteres - noch nicht genutztes -
         // Byte hinzufügen.
-        if (occurenceMap.size() == 1) {
-            byte onlyByte = occurenceMap
-                    .keySet()
-                    .stream()
-                    .findFirst()
-                    // Kann nicht passieren, da es zwingend genau ein Element gibt.
-                    // (Das gilt zumindest solange kein Multihreading ins Spiel kommt)
-                    .orElseThrow(() -> new PropraException("Es ist eine Race-Condition aufgetreten. Bitte kontaktieren Sie einen Entwickler."));
-
+        if (nodes.size() == 1) {
             // Wir nutzen hier absichtlich den Overflow-Mechanismus
             // so vermeiden wir immer, dass wir ein Byte hinzufügen,
             // welches wir noch nicht verwendet haben
-            occurenceMap.put((byte) (onlyByte + 1), 0);
+            int otherByte = (nodes.peek().order + 1) & 0xFF;
+            nodes.add(new WeightedNode(new Leaf(null, (byte) otherByte), 0, otherByte));
         }
 
-        List<Node> nodes = occurenceMap
-                .entrySet()
-                .stream()
-                .map(it -> new Leaf(null, it.getKey(), it.getValue()))
-                .sorted(Comparator.comparingInt(Leaf::getNumberOfOccurences))
-                .collect(Collectors.toList());
+        // Innere Knoten werden nach allen Blättern einsortiert.
+        int nextOrder = histogram.length;
 
         // Nun wenden wir den Algorithmus zum Herstellen
         // des möglichst optimalen? Baums an.
         while (nodes.size() > 1) {
-            List<Node> smallestTwo = getSmallestTwoNodes(nodes);
-
-            Node first = smallestTwo.get(0);
-            Node second = smallestTwo.get(1);
+            WeightedNode first = nodes.poll();
+            WeightedNode second = nodes.poll();
 
             InnerNode parentNode
                     = new InnerNode(null);
 
-            parentNode.setLeft(first);
-            parentNode.setRight(second);
+            parentNode.setLeft(first.node);
+            parentNode.setRight(second.node);
 
-            first.setParent(parentNode);
-            second.setParent(parentNode);
+            first.node.setParent(parentNode);
+            second.node.setParent(parentNode);
 
-            nodes.remove(first);
-            nodes.remove(second);
+            nodes.add(new WeightedNode(parentNode, first.weight + second.weight, nextOrder++));
+        }
 
-            nodes.add(parentNode);
+        return nodes.poll().node;
+    }
+
+    /**
+     * Erstellt einen Baum mit den (bei gegebener maximaler Länge {@param maxCodeLength}) kürzesten
+     * Codes für das Histogramm {@param histogram} mit dem Package-Merge-Algorithmus.
+     * <p>
+     * Dabei stellt jedes Blatt eine Münze mit dem Wert seines Gewichts für jede der maxCodeLength
+     * Ebenen dar. Von der tiefsten Ebene an werden jeweils zwei benachbarte Elemente der nach Gewicht
+     * sortierten Liste zu einem Paket zusammengefasst und mit den Blättern zur Liste der nächsthöheren
+     * Ebene gemischt. Von der obersten Liste werden die 2n - 2 leichtesten Elemente gewählt; die
+     * Länge des Codes eines Bytes ist die Anzahl der gewählten Elemente, in denen es enthalten ist.
+     * <p>
+     * Aus den Längen wird anschließend ein kanonischer Baum aufgebaut.
+     */
+    private static Node constructLengthLimited(
+            long[] histogram,
+            int maxCodeLength
+    ) {
+        List<PackageMergeItem> leaves = new ArrayList<>();
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0)
+                leaves.add(new PackageMergeItem(histogram[i], i, null, null));
         }
+        leaves.sort(Comparator.comparingLong((PackageMergeItem it) -> it.weight).thenComparingInt(it -> it.data));
 
-        return nodes.get(0);
+        List<PackageMergeItem> currentLevel = leaves;
+        for (int level = 1; level < maxCodeLength; level++) {
+            List<PackageMergeItem> packages = new ArrayList<>();
+            for (int i = 0; i + 1 < currentLevel.size(); i += 2) {
+                PackageMergeItem first = currentLevel.get(i);
+                PackageMergeItem second = currentLevel.get(i + 1);
+
+                packages.add(new PackageMergeItem(first.weight + second.weight, -1, first, second));
+            }
+
+            currentLevel = merge(leaves, packages);
+        }
+
+        int[] codeLengths = new int[histogram.length];
+        for (int i = 0; i < 2 * leaves.size() - 2; i++) {
+            currentLevel.get(i).countCodeLengths(codeLengths);
+        }
+
+        return constructForCodeLengths(codeLengths);
+    }
+
+    /**
+     * Mischt die beiden nach Gewicht sortierten Listen {@param leaves} und {@param packages};
+     * bei gleichem Gewicht kommen die Blätter zuerst.
+     */
+    private static List<PackageMergeItem> merge(
+            List<PackageMergeItem> leaves,
+            List<PackageMergeItem> packages
+    ) {
+        List<PackageMergeItem> merged = new ArrayList<>(leaves.size() + packages.size());
+        int leafIndex = 0;
+        int packageIndex = 0;
+
+        while (leafIndex < leaves.size() || packageIndex < packages.size()) {
+            if (packageIndex == packages.size()
+                    || (leafIndex < leaves.size() && leaves.get(leafIndex).weight <= packages.get(packageIndex).weight)) {
+                merged.add(leaves.get(leafIndex++));
+            } else {
+                merged.add(packages.get(packageIndex++));
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Erstellt einen kanonischen Huffman-Baum aus den Längen der Codes {@param codeLengths}
+     * je vorzeichenlosem Byte (0 für nicht verwendete Bytes). Die Codes werden dabei nach
+     * Länge und dann nach Byte aufsteigend vergeben.
+     */
+    private static Node constructForCodeLengths(int[] codeLengths) {
+        InnerNode rootNode = new InnerNode(null);
+        int code = 0;
+        int previousLength = 0;
+
+        for (int length = 1; length <= MAX_MAX_CODE_LENGTH; length++) {
+            for (int data = 0; data < codeLengths.length; data++) {
+                if (codeLengths[data] != length)
+                    continue;
+
+                code <<= length - previousLength;
+                previousLength = length;
+
+                insertLeaf(rootNode, code, length, (byte) data);
+                code++;
+            }
+        }
+
+        return rootNode;
+    }
+
+    /**
+     * Fügt unterhalb von {@param rootNode} ein Blatt mit den Daten {@param data} ein, das
+     * über die {@param length} Bits des Codes {@param code} erreicht wird.
+     */
+    private static void insertLeaf(InnerNode rootNode, int code, int length, byte data) {
+        InnerNode currentNode = rootNode;
+
+        for (int bit = length - 1; bit > 0; bit--) {
+            boolean right = ((code >>> bit) & 1) == 1;
+            Node child = right ? currentNode.getRight() : currentNode.getLeft();
+
+            if (child == null) {
+                child = new InnerNode(currentNode);
+
+                if (right)
+                    currentNode.setRight(child);
+                else
+                    currentNode.setLeft(child);
+            }
+
+            currentNode = (InnerNode) child;
+        }
+
+        Leaf leaf = new Leaf(currentNode, data);
+        if ((code & 1) == 1)
+            currentNode.setRight(leaf);
+        else
+            currentNode.setLeft(leaf);
+    }
+
+    /**
+     * Gibt die Länge des längsten Codes im Baum {@param node} zurück.
+     */
+    public static int depth(Node node) {
+        if (!(node instanceof InnerNode))
+            return 0;
+
+        InnerNode innerNode = (InnerNode) node;
+
+        return 1 + Math.max(depth(innerNode.getLeft()), depth(innerNode.getRight()));
     }
 
     /**
@@ -180,4 +330,51 @@ public final class HuffmanTree {
             }
         }
     }
+
+    /**
+     * Ein Blatt (data ist das vorzeichenlose Byte) oder ein Paket aus zwei
+     * Elementen (data ist -1) des Package-Merge-Algorithmus.
+     */
+    private static final class PackageMergeItem {
+        private final long weight;
+        private final int data;
+        private final PackageMergeItem first;
+        private final PackageMergeItem second;
+
+        private PackageMergeItem(long weight, int data, PackageMergeItem first, PackageMergeItem second) {
+            this.weight = weight;
+            this.data = data;
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * Erhöht die Länge des Codes für jedes im Element enthaltene Blatt um eins.
+         */
+        private void countCodeLengths(int[] codeLengths) {
+            if (data >= 0) {
+                codeLengths[data]++;
+                return;
+            }
+
+            first.countCodeLengths(codeLengths);
+            second.countCodeLengths(codeLengths);
+        }
+    }
+
+    /**
+     * Ein Knoten während des Aufbaus zusammen mit der Anzahl der Vorkomnisse
+     * der Bytes seines Teilbaums und seiner Position in der Reihenfolge.
+     */
+    private static final class WeightedNode {
+        private final Node node;
+        private final long weight;
+        private final int order;
+
+        private WeightedNode(Node node, long weight, int order) {
+            this.node = node;
+            this.weight = weight;
+            this.order = order;
+        }
+    }
 }
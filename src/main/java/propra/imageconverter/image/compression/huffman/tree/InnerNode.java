@@ -2,7 +2,6 @@ package propra.imageconverter.image.compression.huffman.tree;
 
 import propra.imageconverter.base.BitInputStream;
 import propra.imageconverter.base.BitOutputStream;
-import propra.imageconverter.util.RequireUtils;
 
 import java.io.IOException;
 import java.util.Map;
@@ -47,7 +46,7 @@ public final class InnerNode implements Node {
 
     @Override
     public int readEncodedData(BitInputStream inputStream) throws IOException {
-        int bit = inputStream.readBits(1);
+        long bit = inputStream.readBits(1);
 
         if (bit == 0) {
             return getLeft().readEncodedData(inputStream);
@@ -90,21 +89,18 @@ public final class InnerNode implements Node {
     }
 
     @Override
-    public int getNumberOfOccurences() {
-        int numberOfOccurences = 0;
-
-        if (left != null) {
-            numberOfOccurences += left.getNumberOfOccurences();
-
-            RequireUtils.require(left.getNumberOfOccurences() != -1, "Die Anzahl an Vorkomnissen muss für alle Knoten gesetzt sein, falls getNumberOfOccurences genutzt wird.");
+    public void constructCodeTable(
+            int[] codes,
+            int[] codeLengths,
+            int currentBitPattern,
+            int currentNumberOfBits
+    ) {
+        if (getLeft() != null) {
+            getLeft().constructCodeTable(codes, codeLengths, (currentBitPattern << 1), currentNumberOfBits + 1);
         }
 
-        if (right != null) {
-            numberOfOccurences += right.getNumberOfOccurences();
-
-            RequireUtils.require(right.getNumberOfOccurences() != -1, "Die Anzahl an Vorkomnissen muss für alle Knoten gesetzt sein, falls getNumberOfOccurences genutzt wird.");
+        if (getRight() != null) {
+            getRight().constructCodeTable(codes, codeLengths, (currentBitPattern << 1) | 1, currentNumberOfBits + 1);
         }
-
-        return numberOfOccurences;
     }
 }
@@ -11,22 +11,11 @@ import java.util.Map;
  */
 public final class Leaf implements Node {
     private final byte data;
-    private final int numberOfOccurences;
     private InnerNode parent;
 
     Leaf(InnerNode parent, byte data) {
         this.parent = parent;
         this.data = data;
-        this.numberOfOccurences = -1;
-    }
-
-    /**
-     * Konstruktor mit der Anzahl der Vorkomnisse der Bytes im Ausgabestrom.
-     */
-    Leaf(InnerNode parent, byte data, int numberOfOccurences) {
-        this.parent = parent;
-        this.data = data;
-        this.numberOfOccurences = numberOfOccurences;
     }
 
     @Override
@@ -61,15 +50,21 @@ public final class Leaf implements Node {
         byteToBitPattern.put(data, new BitPattern(currentBitPattern, currentNumberOfBits));
     }
 
+    @Override
+    public void constructCodeTable(
+            int[] codes,
+            int[] codeLengths,
+            int currentBitPattern,
+            int currentNumberOfBits
+    ) {
+        codes[Byte.toUnsignedInt(data)] = currentBitPattern;
+        codeLengths[Byte.toUnsignedInt(data)] = currentNumberOfBits;
+    }
+
     /**
      * Gibt die im Blatt gespeicherten Daten zurück.
      */
     public int getData() {
         return data;
     }
-
-    @Override
-    public int getNumberOfOccurences() {
-        return numberOfOccurences;
-    }
 }
@@ -22,13 +22,6 @@ public interface Node {
      */
     void setParent(InnerNode node);
 
-    /**
-     * Gibt die Anzahl der Vorkomnisse der Daten der darunterliegenden Blattknoten
-     * im Eingangsdatenstrom zurück. Dieser Wert ist nur für zu schreibende Huffman-Bäume
-     * gesetzt und relevant.
-     */
-    int getNumberOfOccurences();
-
     /**
      * Liest mithilfe des aktuellen (Teil)baums den Eingabestrom
      * das nächste kodierte Byte ein.
@@ -55,6 +48,18 @@ public interface Node {
             int currentNumberOfBits
     );
 
+    /**
+     * Trägt für jedes Byte des durch den Knoten repräsentierten Teilbaums den Code
+     * in {@param codes} und dessen Länge in {@param codeLengths} ein (Index ist das
+     * vorzeichenlose Byte). Anders als constructHuffmanMap wird dabei nichts erzeugt.
+     */
+    void constructCodeTable(
+            int[] codes,
+            int[] codeLengths,
+            int currentBitPattern,
+            int currentNumberOfBits
+    );
+
     /**
      * Erstellt eine Map, die für jedes verwendete Byte, das entsprechende
      * BitPattern zurück gibt, mit dem das Byte in der Datei kodiert wird.
@@ -0,0 +1,89 @@
+package propra.imageconverter.image.compression.iterator;
+
+import propra.imageconverter.image.ChannelOrder;
+import propra.imageconverter.image.ImageReader;
+
+import java.io.IOException;
+
+/**
+ * Siehe die Beschreibung von {@link PixelIterator}. Liest die Bildzeilen
+ * aus einem ImageReader und wandelt sie direkt im Puffer des Aufrufers
+ * in die Kanalreihenfolge des Dateityps um.
+ * <p>
+ * Die Umwandlung erfolgt mit einer einzigen Permutation pro Bildpunkt von
+ * der Reihenfolge des ImageReaders in die Zielreihenfolge; stimmen beide
+ * überein, entfällt sie ganz.
+ */
+public abstract class ConvertingPixelIterator implements PixelIterator {
+    private final ImageReader imageReader;
+
+    /**
+     * Die Kanalreihenfolge, die der Dateityp erwartet.
+     */
+    private final ChannelOrder targetChannelOrder;
+
+    /**
+     * Gibt an, ob der ImageReader mit reopen für diesen PixelIterator
+     * geöffnet wurde und daher von ihm geschlossen werden muss.
+     */
+    private final boolean ownsImageReader;
+
+    /**
+     * Anzahl der bereits gelesenen Bildzeilen.
+     */
+    private int rowsRead = 0;
+
+    protected ConvertingPixelIterator(ImageReader imageReader, ChannelOrder targetChannelOrder) {
+        this(imageReader, targetChannelOrder, false);
+    }
+
+    private ConvertingPixelIterator(ImageReader imageReader, ChannelOrder targetChannelOrder, boolean ownsImageReader) {
+        this.imageReader = imageReader;
+        this.targetChannelOrder = targetChannelOrder;
+        this.ownsImageReader = ownsImageReader;
+    }
+
+    @Override
+    public final void reset() throws IOException {
+        imageReader.reset();
+
+        this.rowsRead = 0;
+    }
+
+    @Override
+    public final void readNextRow(byte[] targetRow) throws IOException {
+        imageReader.readRow(targetRow, 0);
+        rowsRead++;
+
+        imageReader
+                .getChannelOrder()
+                .convert(targetRow, 0, imageReader.getWidth(), targetChannelOrder);
+    }
+
+    @Override
+    public final boolean hasNextRow() {
+        return rowsRead < imageReader.getHeight();
+    }
+
+    @Override
+    public final int getWidth() {
+        return imageReader.getWidth();
+    }
+
+    @Override
+    public final int getHeight() {
+        return imageReader.getHeight();
+    }
+
+    @Override
+    public final PixelIterator reopen() throws IOException {
+        return new ConvertingPixelIterator(imageReader.reopen(), targetChannelOrder, true) {
+        };
+    }
+
+    @Override
+    public final void close() throws Exception {
+        if (ownsImageReader)
+            imageReader.close();
+    }
+}
@@ -3,34 +3,27 @@ package propra.imageconverter.image.compression.iterator;
 import java.io.IOException;
 
 /**
- * Das Interface PixelIterator ermöglicht das bildpunktweise Auslesen eines
+ * Das Interface PixelIterator ermöglicht das zeilenweise Auslesen eines
  * Bildes. Es ist sehr ähnlich zum ImageReader, wird aber konzeptuell auf der Ebene zwischen
  * dem Schreiben des Bildes und dem Kompressionsalgorithmus verwendet. Insofern gibt das Interface
- * die Daten nicht im RGB-Format sondern im Format des Dateityps zurück; außerdem erlaubt es das
- * Vorausschauen auf den nächsten Bildpunkt (Peek).
+ * die Daten nicht im RGB-Format sondern im Format des Dateityps zurück.
+ * <p>
+ * Die Bildzeilen werden in vom Aufrufer bereitgestellte Puffer geschrieben, damit
+ * während der Kompression pro Bildpunkt keine Objekte angelegt werden müssen.
  */
-public interface PixelIterator {
+public interface PixelIterator extends AutoCloseable {
 	/**
-	 * Gibt den nächsten Bildpunkt zurück und bewegt den internen
-	 * Cursor nach vorne.
-	 * <p>
-	 * Gibt null zurück, falls das Ende des Bildes erreicht wurde.
-	 */
-	byte[] readNextPixel() throws IOException;
-
-	/**
-	 * Gibt den nächsten Bildpunkt zurück, ohne den internen Cursor
-	 * vorzubewegen.
-	 * <p>
-	 * Gibt null zurück, falls das Ende des Bildes erreicht wurde.
+	 * Liest die nächste Bildzeile in das übergebene Array {@param targetRow} und
+	 * bewegt den internen Cursor um eine Zeile nach vorne. Es werden genau
+	 * getWidth() * 3 Bytes geschrieben.
 	 */
-	byte[] peekPixel();
+	void readNextRow(byte[] targetRow) throws IOException;
 
 	/**
 	 * Gibt an ob es im zugrundeliegenden Pixelstrom,
-	 * noch einen weiteren Pixel gibt.
+	 * noch eine weitere Bildzeile gibt.
 	 */
-	boolean hasNextPixel();
+	boolean hasNextRow();
 
 	/**
 	 * Wir setzen den PixelIterator
@@ -50,4 +43,37 @@ public interface PixelIterator {
 	 * Bildes in Pixeln zurück.
 	 */
 	int getHeight();
+
+	/**
+	 * Öffnet einen unabhängigen PixelIterator über dieselben Bilddaten, der einen eigenen
+	 * Lesezeiger besitzt und daher parallel in einem anderen Thread gelesen werden kann.
+	 * Er muss vom Aufrufer mit close geschlossen werden.
+	 * <p>
+	 * Gibt null zurück, falls der PixelIterator das nicht unterstützt.
+	 */
+	default PixelIterator reopen() throws IOException {
+		return null;
+	}
+
+	/**
+	 * Schließt die Ressourcen eines mit reopen geöffneten PixelIterators. Für alle
+	 * anderen PixelIteratoren hat die Methode keine Wirkung, die Bilddaten gehören
+	 * dort dem Aufrufer.
+	 */
+	@Override
+	default void close() throws Exception {
+	}
+
+	/**
+	 * Gibt den Bildpunkt an der Stelle {@param pixelIndex} der Bildzeile {@param row}
+	 * als gepackten 24-Bit-Wert zurück. Damit lassen sich zwei Bildpunkte
+	 * mit einem einfachen Vergleich zweier int-Werte vergleichen.
+	 */
+	static int packedPixelAt(byte[] row, int pixelIndex) {
+		int offset = pixelIndex * 3;
+
+		return ((row[offset] & 0xFF) << 16)
+				| ((row[offset + 1] & 0xFF) << 8)
+				| (row[offset + 2] & 0xFF);
+	}
 }
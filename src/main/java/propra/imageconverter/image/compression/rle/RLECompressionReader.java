@@ -1,18 +1,35 @@
 package propra.imageconverter.image.compression.rle;
 
 import propra.imageconverter.binary.LittleEndianInputStream;
+import propra.imageconverter.image.ChannelOrder;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionReader;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
+import java.io.OutputStream;
 
 /**
  * Implementiert einen CompressionReader für
  * RLE-komprimierte Daten.
+ * <p>
+ * Wiederholungen werden mit wenigen, sich verdoppelnden Kopien in das Zielarray
+ * geschrieben, unkomprimierte Bildpunkte am Stück gelesen. Der Eingabestream
+ * (siehe ReadWriteFile) ist bereits gepuffert, daher puffert der Reader nicht selbst.
  */
 public class RLECompressionReader implements CompressionReader {
+    /**
+     * Maximale Anzahl an Bildpunkten, die ein Steuerbyte anzeigen kann.
+     */
+    private static final int MAX_PIXELS_PER_PACKET = 128;
+
+    /**
+     * Größe der Blöcke, in denen transcode die kopierten Pakete schreibt.
+     */
+    private static final int TRANSCODE_CHUNK_SIZE = 65536;
+
     private final LittleEndianInputStream inputStream;
+
     // Speichert im Fall, dass sich der Reader
     // im Wiederholungsmodus befindet, den wiederholten
     // Bildpunkt.
@@ -29,34 +46,182 @@ public class RLECompressionReader implements CompressionReader {
         this.inputStream = new LittleEndianInputStream(inputStream);
     }
 
-    @Override
-    public byte[] readNextPixel() throws IOException {
-        // Reader befindet sich im Wiederholungsmodus
-        if (remainingRepetitions > 0) {
-            this.remainingRepetitions--;
-
-            // Wir machen mal wieder Defensive Programmierung
-            // und geben nur eine Kopie des Arrays zurück, damit
-            // der Aufrufer unser Array nicht überschreibt.
-            return Arrays.copyOf(this.repeatedPixel, 3);
+    /**
+     * Erstellt einen RLECompressionReader, der an der Stelle des Zeilenindex-Eintrags
+     * {@param entry} weiterliest. {@param inputStream} muss an dieser Stelle beginnen;
+     * ein dort noch nicht abgeschlossenes Paket wird aus dem Eintrag übernommen.
+     */
+    public static RLECompressionReader resumeAt(InputStream inputStream, RowIndex.Entry entry) {
+        RLECompressionReader reader = new RLECompressionReader(inputStream);
+
+        reader.remainingRepetitions = entry.getRemainingRepetitions();
+        reader.remainingNonRepeatedPixels = entry.getRemainingNonRepeatedPixels();
+        System.arraycopy(entry.getRepeatedPixel(), 0, reader.repeatedPixel, 0, 3);
+
+        return reader;
+    }
+
+    /**
+     * Meldet dem Zeilenindex {@param rowIndex} den Beginn jeder Bildzeile der RLE-kodierten Daten
+     * {@param inputStream} eines Bilds der Breite {@param width} und der Höhe {@param height}.
+     * <p>
+     * Dafür werden nur die Steuerbytes ausgewertet, die Bildpunkte selbst werden überlesen.
+     * Reicht ein Paket über eine Zeilengrenze, wird der Zustand des Readers an dieser
+     * Stelle mitgemeldet.
+     */
+    public static void scanRowStarts(InputStream inputStream, int width, int height, RowIndex.Builder rowIndex) throws IOException {
+        LittleEndianInputStream littleEndianInputStream = new LittleEndianInputStream(inputStream);
+        byte[] packetData = new byte[MAX_PIXELS_PER_PACKET * 3];
+
+        long numberOfPixels = (long) width * height;
+
+        // Position des aktuellen Steuerbytes in Bytes und Anzahl
+        // der Bildpunkte vor dem aktuellen Paket
+        long position = 0;
+        long pixelsBeforePacket = 0;
+        int row = 0;
+
+        while (pixelsBeforePacket < numberOfPixels) {
+            int controlByte = littleEndianInputStream.readUByte();
+            boolean isRepetitionCounter = (controlByte & 0b1000_0000) > 0;
+            int pixelsOfPacket = (controlByte & 0b0111_1111) + 1;
+
+            littleEndianInputStream.readFully(packetData, 0, isRepetitionCounter ? 3 : pixelsOfPacket * 3);
+
+            // Alle Bildzeilen, die innerhalb dieses Pakets beginnen
+            while (row < height && (long) row * width < pixelsBeforePacket + pixelsOfPacket) {
+                int pixelsIntoPacket = (int) ((long) row * width - pixelsBeforePacket);
+
+                if (pixelsIntoPacket == 0) {
+                    rowIndex.recordRow(row, position * 8);
+                } else if (isRepetitionCounter) {
+                    rowIndex.recordRow(row, (position + 4) * 8, pixelsOfPacket - pixelsIntoPacket, 0, packetData);
+                } else {
+                    rowIndex.recordRow(row, (position + 1 + pixelsIntoPacket * 3L) * 8, 0, pixelsOfPacket - pixelsIntoPacket, packetData);
+                }
+
+                row++;
+            }
+
+            position += isRepetitionCounter ? 4 : 1 + pixelsOfPacket * 3L;
+            pixelsBeforePacket += pixelsOfPacket;
+        }
+    }
+
+    /**
+     * Kopiert die RLE-kodierten Daten {@param inputStream} eines Bilds der Breite {@param width} und der
+     * Höhe {@param height} paketweise nach {@param outputStream}, ohne sie zu dekodieren. Die Steuerbytes
+     * werden unverändert übernommen, nur die Farbkanäle der Bildpunkte innerhalb der Pakete werden von
+     * {@param sourceOrder} nach {@param targetOrder} umgestellt. Gibt die Anzahl der geschriebenen Bytes zurück.
+     * <p>
+     * Reicht das letzte Paket über das Ende des Bilds hinaus, wird -1 zurückgegeben; die Pakete
+     * davor wurden dann bereits geschrieben. Beim Dekodieren würden die überzähligen Bildpunkte
+     * ignoriert, eine Kopie würde sie dagegen übernehmen.
+     */
+    public static long transcode(InputStream inputStream, OutputStream outputStream, int width, int height, ChannelOrder sourceOrder, ChannelOrder targetOrder) throws IOException {
+        LittleEndianInputStream littleEndianInputStream = new LittleEndianInputStream(inputStream);
+
+        // Die Pakete werden gesammelt und in großen Blöcken geschrieben;
+        // ein vollständiges Paket passt immer noch hinter TRANSCODE_CHUNK_SIZE.
+        byte[] chunk = new byte[TRANSCODE_CHUNK_SIZE + 1 + MAX_PIXELS_PER_PACKET * 3];
+        int chunkLength = 0;
+
+        long numberOfPixels = (long) width * height;
+        long pixelsBeforePacket = 0;
+        long writtenBytes = 0;
+
+        while (pixelsBeforePacket < numberOfPixels) {
+            int controlByte = littleEndianInputStream.readUByte();
+            boolean isRepetitionCounter = (controlByte & 0b1000_0000) > 0;
+            int pixelsOfPacket = (controlByte & 0b0111_1111) + 1;
+
+            if (pixelsBeforePacket + pixelsOfPacket > numberOfPixels)
+                return -1;
+
+            int pixelsInPacket = isRepetitionCounter ? 1 : pixelsOfPacket;
+
+            chunk[chunkLength] = (byte) controlByte;
+            littleEndianInputStream.readFully(chunk, chunkLength + 1, pixelsInPacket * 3);
+            sourceOrder.convert(chunk, chunkLength + 1, pixelsInPacket, targetOrder);
+
+            chunkLength += 1 + pixelsInPacket * 3;
+            pixelsBeforePacket += pixelsOfPacket;
+
+            if (chunkLength >= TRANSCODE_CHUNK_SIZE) {
+                outputStream.write(chunk, 0, chunkLength);
+                writtenBytes += chunkLength;
+                chunkLength = 0;
+            }
         }
 
-        // Reader befindet sich im Datenmodus
-        if (remainingNonRepeatedPixels > 0) {
-            byte[] pixel = new byte[3];
+        outputStream.write(chunk, 0, chunkLength);
 
-            inputStream.readFully(pixel);
+        return writtenBytes + chunkLength;
+    }
 
-            this.remainingNonRepeatedPixels--;
+    @Override
+    public void readPixels(byte[] target, int offset, int numberOfPixels) throws IOException {
+        int currentOffset = offset;
+        int remainingPixels = numberOfPixels;
+
+        while (remainingPixels > 0) {
+            // Reader befindet sich im Wiederholungsmodus
+            if (remainingRepetitions > 0) {
+                int pixelsToWrite = Math.min(remainingRepetitions, remainingPixels);
+
+                // Der gespeicherte Bildpunkt wird direkt in das
+                // Zielarray des Aufrufers kopiert.
+                fillPixels(this.repeatedPixel, target, currentOffset, pixelsToWrite);
+                currentOffset += pixelsToWrite * 3;
+
+                this.remainingRepetitions -= pixelsToWrite;
+                remainingPixels -= pixelsToWrite;
+                continue;
+            }
+
+            // Reader befindet sich im Datenmodus
+            if (remainingNonRepeatedPixels > 0) {
+                int pixelsToRead = Math.min(remainingNonRepeatedPixels, remainingPixels);
+
+                // Die unkomprimierten Bildpunkte können am Stück gelesen werden.
+                inputStream.readFully(target, currentOffset, pixelsToRead * 3);
+                currentOffset += pixelsToRead * 3;
+
+                this.remainingNonRepeatedPixels -= pixelsToRead;
+                remainingPixels -= pixelsToRead;
+                continue;
+            }
+
+            // Aktuelles Byte ist ein Kontrollbyte,
+            // da aktuell kein Datenzähler oder Wiederholung
+            // aktiv ist.
+            readControlByte();
+        }
+    }
 
-            // Hier keine Kopie, da wir unser Byte-Array
-            // weiter nutzen.
-            return pixel;
+    /**
+     * Schreibt den Bildpunkt {@param pixel} {@param numberOfPixels} mal in das Array {@param target}
+     * ab dem Index {@param offset}. Der Bildpunkt wird einmal geschrieben, danach wird der bereits
+     * gefüllte Bereich jeweils hinter sich kopiert, sodass sich die Länge der Kopien verdoppelt.
+     */
+    static void fillPixels(byte[] pixel, byte[] target, int offset, int numberOfPixels) {
+        int length = numberOfPixels * 3;
+
+        System.arraycopy(pixel, 0, target, offset, 3);
+
+        int filled = 3;
+        while (filled < length) {
+            int bytesToCopy = Math.min(filled, length - filled);
+            System.arraycopy(target, offset, target, offset + filled, bytesToCopy);
+            filled += bytesToCopy;
         }
+    }
 
-        // Aktuelles Byte ist ein Kontrollbyte,
-        // da aktuell kein Datenzähler oder Wiederholung
-        // aktiv ist.
+    /**
+     * Liest das nächste Steuerbyte ein und versetzt den Reader
+     * entsprechend in den Wiederholungs- oder Datenmodus.
+     */
+    private void readControlByte() throws IOException {
         int controlByte = inputStream.readUByte();
 
         // Datenzähler oder Wiederholungszähler
@@ -75,12 +240,8 @@ public class RLECompressionReader implements CompressionReader {
 
             // Wiederholten Bildpunkt abspeichern und emittieren
             // bis alle Wiederholungen "abgearbeitet" wurden.
-            inputStream.readFully(this.repeatedPixel);
-
-            // Rekursiver Aufruf, damit rufen wir garantiert
-            // aber nur den nächsten Bildpunkt ab (da this.remainingRepetitions nun größer 0 ist).
-            // Eine Endlosschleife ist zumindest nach der Programmlogik nicht möglich.
-            return readNextPixel();
+            inputStream.readFully(this.repeatedPixel, 0, 3);
+            return;
         }
 
         // Ansonsten: Behandlung des Datenzählers
@@ -89,10 +250,5 @@ public class RLECompressionReader implements CompressionReader {
         // aus den unteren 7 Bits + 1 gelesen; das 8. Bit ist
         // 0, da es sich um den Datenzähler handelt.
         this.remainingNonRepeatedPixels = controlByte + 1;
-
-        // Rekursiver Aufruf, damit rufen wir garantiert
-        // aber nur den nächsten Bildpunkt ab (da this.remainingNonRepeatedPixels nun größer 0 ist).
-        // Eine Endlosschleife ist zumindest nach der Programmlogik nicht möglich.
-        return readNextPixel();
     }
 }
@@ -1,216 +1,425 @@
 package propra.imageconverter.image.compression.rle;
 
-import propra.imageconverter.binary.LittleEndianOutputStream;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.CompressionWriter;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
 import propra.imageconverter.util.ArrayUtils;
 import propra.imageconverter.util.DebugUtils;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import static propra.imageconverter.util.DebugUtils.DEBUG_MODE;
+import static propra.imageconverter.image.compression.iterator.PixelIterator.packedPixelAt;
 
 /**
  * Implementiert einen CompressionWriter mit
  * RLE-Komprimierung für jede Bildzeile.
+ * <p>
+ * Die Bildpunkte einer Zeile werden als gepackte 24-Bit-Werte verglichen
+ * und die Pakete einer Zeile zunächst in einem Zeilenpuffer gesammelt, der
+ * dann am Stück geschrieben wird.
+ * <p>
+ * Da Pakete nie über eine Zeilengrenze reichen, lassen sich die Bildzeilen unabhängig
+ * voneinander kodieren. Hat der Fork-Join-Pool mehr als einen Thread, werden Bänder aus
+ * mehreren Bildzeilen parallel kodiert und in der Reihenfolge der Bildzeilen geschrieben;
+ * das Ergebnis ist dasselbe wie beim zeilenweisen Kodieren.
  */
 public class RLECompressionWriter implements CompressionWriter {
 	/**
 	 * Maximale Länge, die ein Steuerbyte an folgenden Daten oder folgenden
 	 * Wiederholungen anzeigen kann.
 	 */
-	private final int DATA_OR_REPETITIONS_MAX_LENGTH = 128;
+	private static final int DATA_OR_REPETITIONS_MAX_LENGTH = 128;
 
 	/**
-	 * Schreibt den gesammelten Datenbuffer {@param dataBuffer} mit einem
-	 * entsprechenden Datenzähler in die Ausgabe {@param outputStream}.
-	 * {@param currentDataBufferIndex} gibt die Länge des DatenBuffer, der auch
-	 * tatsächlich belegt ist.
-	 * <p>
-	 * Gibt die Anzahl der geschriebenen Bytes zurück.
+	 * Platzhalter für einen nicht vorhandenen Bildpunkt. Kann nicht mit
+	 * einem gepackten 24-Bit-Bildpunkt übereinstimmen.
 	 */
-	private long writeDataBuffer(
-			LittleEndianOutputStream outputStream,
-			byte[] dataBuffer,
-			int currentDataBufferIndex
-	) throws IOException {
-		DebugUtils.log(() -> "Buffer (Daten) werden geschrieben. (" + currentDataBufferIndex + " Bildpunkt(e))");
+	private static final int NO_PIXEL = -1;
+
+	/**
+	 * Ungefähre Größe eines Bands aus Bildzeilen in Bytes, das am Stück kodiert wird.
+	 */
+	private static final int BAND_SIZE = 1 << 20;
 
-		// Der Buffer wurde tatsächlich nur
-		// soweit geschrieben.
-		byte[] bytesToWrite = Arrays.copyOf(dataBuffer, 3 * currentDataBufferIndex);
+	/**
+	 * Der Pool, auf dem die Bänder kodiert werden.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Anzahl der Bildzeilen eines Bands; 0, falls sie anhand von BAND_SIZE bestimmt wird.
+	 */
+	private final int rowsPerBand;
+
+	public RLECompressionWriter() {
+		this(ForkJoinPool.commonPool(), 0);
+	}
+
+	/**
+	 * Erstellt einen RLECompressionWriter, der Bänder aus {@param rowsPerBand} Bildzeilen
+	 * (0 = automatisch) auf dem Pool {@param pool} kodiert.
+	 */
+	RLECompressionWriter(ForkJoinPool pool, int rowsPerBand) {
+		this.pool = pool;
+		this.rowsPerBand = rowsPerBand;
+	}
+
+	/**
+	 * Schreibt die {@param numberOfPixels} Bildpunkte ab dem Bildpunkt {@param startPixel} der
+	 * Bildzeile {@param row} mit einem entsprechenden Datenzähler in den Zeilenpuffer
+	 * {@param target} ab dem Index {@param targetOffset}. Ist {@param target} null, wird nur gezählt.
+	 * <p>
+	 * Gibt den Index nach dem zuletzt geschriebenen Byte zurück.
+	 */
+	private static int writeDataPacket(
+			byte[] row,
+			int startPixel,
+			int numberOfPixels,
+			byte[] target,
+			int targetOffset
+	) {
+		if (target == null)
+			return targetOffset + 1 + numberOfPixels * 3;
+
+		DebugUtils.log(() -> "Buffer (Daten) werden geschrieben. (" + numberOfPixels + " Bildpunkt(e))");
 
 		// Steuerbyte enthält die Länge des Datenzählers - 1
 		// das 8. Bit bleibt 0, was implizit gegeben ist.
-		int controlByte = currentDataBufferIndex - 1;
+		int controlByte = numberOfPixels - 1;
 
 		// Datenzähler und Daten schreiben
-		outputStream.writeUByte(controlByte);
-		outputStream.writeFully(bytesToWrite);
+		target[targetOffset] = (byte) controlByte;
+		System.arraycopy(row, startPixel * 3, target, targetOffset + 1, numberOfPixels * 3);
 
 		DebugUtils.log(() -> String.format("Written: %02X", controlByte));
-		DebugUtils.log(() -> "Written: " + ArrayUtils.debugFormat(bytesToWrite));
-
-		// Im Debug-Mode überschreiben wir
-		// den Buffer für das Debuggen mit 0en,
-		// damit er anschaulicher wird; benötigt wird
-		// das technisch nicht, da er mit currentDataBufferIndex
-		// begrenzt wird.
-		if (DEBUG_MODE) {
-			Arrays.fill(dataBuffer, (byte) 0);
-		}
+		DebugUtils.log(() -> "Written: " + ArrayUtils.debugFormat(Arrays.copyOfRange(row, startPixel * 3, (startPixel + numberOfPixels) * 3)));
 
-		return 1 + bytesToWrite.length;
+		return targetOffset + 1 + numberOfPixels * 3;
 	}
 
 	/**
-	 * Schreibt die gesammelten wiederholten Bytes entsprechend
-	 * mit Steuerbyte in den zugrundeliegenden
-	 * Ausgabestream {@param outputStream}.
-	 * {@param repeatingPixel} gibt den Bildpunkt an, der {@param repeats}
-	 * mal wiederholt wurd.
+	 * Schreibt den Bildpunkt {@param pixelIndex} der Bildzeile {@param row}, der {@param repeats}
+	 * mal wiederholt wird, mit einem entsprechenden Wiederholungszähler in den Zeilenpuffer
+	 * {@param target} ab dem Index {@param targetOffset}. Ist {@param target} null, wird nur gezählt.
 	 * <p>
-	 * Gibt die Anzahl der geschriebenen Bytes zurück.
+	 * Gibt den Index nach dem zuletzt geschriebenen Byte zurück.
 	 */
-	private long writeRepeatingBuffer(
-			LittleEndianOutputStream outputStream,
-			byte[] repeatingPixel,
-			int repeats
-	) throws IOException {
-		DebugUtils.log(() -> "Buffer (wiederholte Bildpunkte) werden geschrieben. (" + repeats + " x " + ArrayUtils.formatRGBPixelOrNull(repeatingPixel) + ")");
+	private static int writeRepetitionPacket(
+			byte[] row,
+			int pixelIndex,
+			int repeats,
+			byte[] target,
+			int targetOffset
+	) {
+		if (target == null)
+			return targetOffset + 1 + 3;
+
+		DebugUtils.log(() -> "Buffer (wiederholte Bildpunkte) werden geschrieben. (" + repeats + " x " + ArrayUtils.formatPackedPixel(packedPixelAt(row, pixelIndex)) + ")");
 
 		// Steuerbyte enthält die Länge des Wiederholungszähler - 1
 		// das 8. Bit ist 1, was mittels Bit-Operationen bewerkstelligt wird.
 		int controlByte = (repeats - 1) | 0b1000_0000;
 
-		outputStream.writeUByte(controlByte);
-		outputStream.writeFully(repeatingPixel);
+		target[targetOffset] = (byte) controlByte;
+		System.arraycopy(row, pixelIndex * 3, target, targetOffset + 1, 3);
 
 		DebugUtils.log(() -> String.format("Written: %02X", controlByte));
-		DebugUtils.log(() -> "Written: " + ArrayUtils.debugFormat(repeatingPixel));
 
-		return 1 + repeatingPixel.length;
+		return targetOffset + 1 + 3;
+	}
+
+	/**
+	 * Kodiert die Bildzeile {@param row} mit der Breite {@param width} in den Zeilenpuffer {@param target}
+	 * und gibt die Anzahl der geschriebenen Bytes zurück. Der Puffer muss mindestens 4 * {@param width}
+	 * Bytes groß sein, was der schlechteste Fall (nur Datenzähler mit je einem Bildpunkt) ist.
+	 * Ist {@param target} null, wird nichts geschrieben, sondern nur die Länge berechnet.
+	 * <p>
+	 * {@param firstPixelOfNextRow} ist der erste Bildpunkt der folgenden Zeile (oder NO_PIXEL). Stimmt
+	 * der letzte Bildpunkt der Zeile mit ihm überein, wird er (wie bisher) als Wiederholung
+	 * der Länge 1 geschrieben; Pakete überschreiten die Zeilengrenze aber nie.
+	 */
+	private static int encodeRow(
+			byte[] row,
+			int width,
+			int firstPixelOfNextRow,
+			byte[] target
+	) {
+		int targetOffset = 0;
+		int currentIndex = 0;
+
+		while (currentIndex < width) {
+			int currentPixel = packedPixelAt(row, currentIndex);
+			int followingPixel = currentIndex + 1 < width ? packedPixelAt(row, currentIndex + 1) : firstPixelOfNextRow;
+
+			if (currentPixel == followingPixel) {
+				// Das aktuelle Pixel wiederholt sich
+				// im nächsten Pixel
+				int repeats = 1;
+				int nextIndex = currentIndex + 1;
+
+				// Wir zählen die Wiederholungen bis zum Ende der Zeile, bis zur
+				// maximalen Anzahl an Wiederholungen für einen Wiederholungszähler
+				// oder bis ein anderer Bildpunkt folgt.
+				while (nextIndex < width
+						&& repeats < DATA_OR_REPETITIONS_MAX_LENGTH
+						&& packedPixelAt(row, nextIndex) == currentPixel) {
+					repeats++;
+					nextIndex++;
+				}
+
+				// Wir schreiben die wiederholten Bytes aus
+				targetOffset = writeRepetitionPacket(row, currentIndex, repeats, target, targetOffset);
+				currentIndex = nextIndex;
+			} else {
+				// Aktuelles Pixel wiederholt sich nicht.
+				int numberOfPixels = 1;
+				int nextIndex = currentIndex + 1;
+
+				// Wir sammeln Bildpunkte bis zum Ende der Zeile, bis zur maximalen
+				// Anzahl an Daten für einen Datenzähler oder bis sich ein Bildpunkt
+				// wiederholt; dieser wird dann als Wiederholung im nächsten Schleifendurchlauf
+				// verarbeitet. Eine Ausnahme: es ist egal ob es sich in der nächsten Zeile wiederholt ;)
+				while (nextIndex < width
+						&& numberOfPixels < DATA_OR_REPETITIONS_MAX_LENGTH
+						&& !(nextIndex < width - 1 && packedPixelAt(row, nextIndex) == packedPixelAt(row, nextIndex + 1))) {
+					numberOfPixels++;
+					nextIndex++;
+				}
+
+				targetOffset = writeDataPacket(row, currentIndex, numberOfPixels, target, targetOffset);
+				currentIndex = nextIndex;
+			}
+		}
+
+		return targetOffset;
+	}
+
+	/**
+	 * Gibt die Anzahl der Bytes zurück, mit der die Bildzeile {@param row} der Breite {@param width}
+	 * kodiert würde, ohne sie zu kodieren. {@param nextRow} ist die folgende Bildzeile oder null,
+	 * falls es sich um die letzte Bildzeile handelt.
+	 * <p>
+	 * Die Pakete werden genau wie beim Schreiben gebildet, damit lässt sich die Länge der
+	 * komprimierten Daten exakt vorab bestimmen (siehe CompressionSelector).
+	 */
+	public static int encodedRowLength(byte[] row, int width, byte[] nextRow) {
+		return encodeRow(row, width, nextRow != null ? packedPixelAt(nextRow, 0) : NO_PIXEL, null);
 	}
 
 	@Override
 	public long write(
-            PixelIterator pixelData,
-            BufferedOutputStream outputStream
-    ) throws IOException {
-        return write(pixelData, new LittleEndianOutputStream(outputStream));
-    }
+			PixelIterator pixelData,
+			OutputStream outputStream,
+			RowIndex.Builder rowIndex
+	) throws IOException {
+		int pictureWidth = pixelData.getWidth();
+		int rowsPerBand = this.rowsPerBand > 0 ? this.rowsPerBand : Math.max(1, BAND_SIZE / (pictureWidth * 3));
+
+		// Nur mit mehreren Threads und mehr als einem Band
+		// lohnt sich das Aufteilen in Bänder.
+		if (pool.getParallelism() > 1 && pixelData.getHeight() > rowsPerBand)
+			return writeInBands(pixelData, outputStream, rowIndex, rowsPerBand);
+
+		// Wir zählen mit, wieviele Bytes wir schreiben.
+		long numberOfBytesWritten = 0;
+		int rowNumber = 0;
+
+		// Für den Vergleich des letzten Bildpunkts einer Zeile benötigen
+		// wir den ersten Bildpunkt der folgenden Zeile, daher lesen wir
+		// immer eine Zeile voraus.
+		byte[] currentRow = new byte[pictureWidth * 3];
+		byte[] nextRow = new byte[pictureWidth * 3];
+		byte[] encodedRow = new byte[pictureWidth * 4];
+
+		if (!pixelData.hasNextRow())
+			return 0;
+
+		pixelData.readNextRow(currentRow);
+
+		while (true) {
+			boolean hasNextRow = pixelData.hasNextRow();
+
+			if (hasNextRow)
+				pixelData.readNextRow(nextRow);
+
+			// Pakete überschreiten die Zeilengrenze nie, daher beginnt
+			// jede Bildzeile mit einem Steuerbyte.
+			rowIndex.recordRow(rowNumber++, numberOfBytesWritten * 8);
+
+			int encodedLength = encodeRow(
+					currentRow,
+					pictureWidth,
+					hasNextRow ? packedPixelAt(nextRow, 0) : NO_PIXEL,
+					encodedRow
+			);
+
+			outputStream.write(encodedRow, 0, encodedLength);
+			numberOfBytesWritten += encodedLength;
+
+			if (!hasNextRow)
+				break;
+
+			// Die gelesene Zeile wird zur aktuellen Zeile,
+			// der Puffer der alten Zeile wird wiederverwendet.
+			byte[] temp = currentRow;
+			currentRow = nextRow;
+			nextRow = temp;
+		}
+
+		return numberOfBytesWritten;
+	}
+
+	/**
+	 * Wie write, die Bildzeilen werden aber in Bändern aus {@param rowsPerBand} Bildzeilen parallel
+	 * kodiert. Der aufrufende Thread liest die Bänder und schreibt die kodierten Bänder in der
+	 * Reihenfolge der Bildzeilen; es werden höchstens doppelt so viele Bänder wie der Pool Threads hat
+	 * gleichzeitig kodiert.
+	 */
+	private long writeInBands(
+			PixelIterator pixelData,
+			OutputStream outputStream,
+			RowIndex.Builder rowIndex,
+			int rowsPerBand
+	) throws IOException {
+		int pictureWidth = pixelData.getWidth();
+		int maxBandsInFlight = pool.getParallelism() * 2;
+
+		Deque<ForkJoinTask<EncodedBand>> pendingBands = new ArrayDeque<>();
+		long numberOfBytesWritten = 0;
+		int rowNumber = 0;
+
+		try {
+			byte[] band = readBand(pixelData, rowsPerBand);
+
+			while (band != null) {
+				// Für den letzten Bildpunkt des Bands benötigen wir
+				// den ersten Bildpunkt des folgenden Bands.
+				byte[] nextBand = readBand(pixelData, rowsPerBand);
+				int firstPixelOfNextBand = nextBand != null ? packedPixelAt(nextBand, 0) : NO_PIXEL;
+
+				byte[] currentBand = band;
+				pendingBands.addLast(pool.submit(() -> encodeBand(currentBand, pictureWidth, firstPixelOfNextBand)));
+
+				if (pendingBands.size() >= maxBandsInFlight) {
+					EncodedBand encodedBand = pendingBands.removeFirst().join();
+					rowNumber = encodedBand.recordRows(rowIndex, rowNumber, numberOfBytesWritten);
+					numberOfBytesWritten += encodedBand.writeTo(outputStream);
+				}
+
+				band = nextBand;
+			}
+
+			while (!pendingBands.isEmpty()) {
+				EncodedBand encodedBand = pendingBands.removeFirst().join();
+				rowNumber = encodedBand.recordRows(rowIndex, rowNumber, numberOfBytesWritten);
+				numberOfBytesWritten += encodedBand.writeTo(outputStream);
+			}
+		} finally {
+			// Bei einem Fehler warten wir noch auf die übrigen Bänder.
+			for (ForkJoinTask<EncodedBand> pendingBand : pendingBands) {
+				pendingBand.quietlyJoin();
+			}
+		}
+
+		return numberOfBytesWritten;
+	}
+
+	/**
+	 * Liest bis zu {@param rowsPerBand} Bildzeilen am Stück in ein neues Array. Gibt null
+	 * zurück, falls keine Bildzeile mehr vorhanden ist.
+	 */
+	private static byte[] readBand(PixelIterator pixelData, int rowsPerBand) throws IOException {
+		if (!pixelData.hasNextRow())
+			return null;
+
+		int rowLength = pixelData.getWidth() * 3;
+		byte[] row = new byte[rowLength];
+		byte[] band = new byte[rowsPerBand * rowLength];
+		int rows = 0;
+
+		while (rows < rowsPerBand && pixelData.hasNextRow()) {
+			pixelData.readNextRow(row);
+			System.arraycopy(row, 0, band, rows * rowLength, rowLength);
+			rows++;
+		}
+
+		return rows == rowsPerBand ? band : Arrays.copyOf(band, rows * rowLength);
+	}
+
+	/**
+	 * Kodiert die Bildzeilen des Bands {@param band} der Breite {@param width};
+	 * {@param firstPixelOfNextBand} ist der erste Bildpunkt des folgenden Bands (oder NO_PIXEL).
+	 */
+	private static EncodedBand encodeBand(byte[] band, int width, int firstPixelOfNextBand) {
+		int rowLength = width * 3;
+		int rows = band.length / rowLength;
+
+		byte[] encodedRow = new byte[width * 4];
+		byte[] data = new byte[rows * width * 4];
+		int[] rowStarts = new int[rows];
+		int length = 0;
+
+		byte[] row = new byte[rowLength];
+		for (int i = 0; i < rows; i++) {
+			System.arraycopy(band, i * rowLength, row, 0, rowLength);
+
+			int firstPixelOfNextRow = i + 1 < rows ? packedPixelAt(band, (i + 1) * width) : firstPixelOfNextBand;
+			int encodedLength = encodeRow(row, width, firstPixelOfNextRow, encodedRow);
+
+			rowStarts[i] = length;
+			System.arraycopy(encodedRow, 0, data, length, encodedLength);
+			length += encodedLength;
+		}
+
+		return new EncodedBand(data, length, rowStarts);
+	}
+
+	/**
+	 * Die kodierten Bildzeilen eines Bands.
+	 */
+	private static final class EncodedBand {
+		private final byte[] data;
+		private final int length;
+
+		/**
+		 * Beginn jeder Bildzeile innerhalb von data.
+		 */
+		private final int[] rowStarts;
+
+		private EncodedBand(byte[] data, int length, int[] rowStarts) {
+			this.data = data;
+			this.length = length;
+			this.rowStarts = rowStarts;
+		}
+
+		/**
+		 * Meldet die Bildzeilen ab {@param firstRow} dem Zeilenindex {@param rowIndex}, wenn das Band
+		 * an der Stelle {@param bandStart} geschrieben wird. Gibt die nächste Bildzeile zurück.
+		 */
+		private int recordRows(RowIndex.Builder rowIndex, int firstRow, long bandStart) {
+			for (int i = 0; i < rowStarts.length; i++) {
+				rowIndex.recordRow(firstRow + i, (bandStart + rowStarts[i]) * 8);
+			}
+
+			return firstRow + rowStarts.length;
+		}
+
+		private int writeTo(OutputStream outputStream) throws IOException {
+			outputStream.write(data, 0, length);
+
+			return length;
+		}
+	}
 
 	@Override
 	public CompressionType getCompressionType() {
 		return CompressionType.RLE;
 	}
-
-    private long write(
-            PixelIterator pixelData,
-            LittleEndianOutputStream outputStream
-    ) throws IOException {
-
-        // Wir zählen mit, wieviele Bytes wir schreiben.
-        long numberOfBytesWritten = 0;
-        int pictureWidth = pixelData.getWidth();
-
-        // DataBuffer hier für Speichereffizienz, grds so nah wie möglich an Ausführung
-        byte[] dataBuffer = new byte[Math.min(DATA_OR_REPETITIONS_MAX_LENGTH, pictureWidth) * 3];
-
-        // Der lineCounter zählt ab, in welchem Zeichen
-        // der aktuellen Zeile wir uns befinden; am Ende der Zeile
-        // müssen wir die aktuellen Wiederholungen oder Datenbuffer schreiben.
-        int lineCounter = 0;
-        byte[] currentPixel = pixelData.readNextPixel();
-
-        while (true) {
-            // Das Ende der Daten wurde erreicht.
-            if (currentPixel == null)
-                break;
-
-            // Das aktuelle Pixel wiederholt sich
-            // im nächsten Pixel
-            if (Arrays.equals(currentPixel, pixelData.peekPixel())) {
-                byte[] repeatedPixel = currentPixel;
-                int repeats = 1;
-
-                while (true) {
-                    currentPixel = pixelData.readNextPixel();
-                    lineCounter++;
-
-                    // Das aktuelle Pixel befindet sich in einer
-                    // neuen Zeile; daher brechen wir hier ab und
-                    // verarbeiten diesen Pixel im nächsten Durchlauf der
-                    // äußeren While-Schleife
-                    if (lineCounter == pictureWidth) {
-                        lineCounter = 0;
-                        break;
-                    }
-
-                    // Die maximale Anzahl an Wiederholungen für einen Wiederholungszähler
-                    // wurde erreicht, das Pixel wird im nächsten Durchlauf der
-                    // äußeren While-Schleife bearbeitet werden
-                    if (repeats == DATA_OR_REPETITIONS_MAX_LENGTH)
-                        break;
-
-                    // Das aktuelle Pixel ist keine Wiederholung
-                    // mehr, daher abbrechen.
-                    if (!Arrays.equals(currentPixel, repeatedPixel))
-                        break;
-
-                    repeats++;
-                }
-
-                // Wir schreiben die wiederholten Bytes aus
-                numberOfBytesWritten += writeRepeatingBuffer(outputStream, repeatedPixel, repeats);
-            } else {
-                // Aktuelles Pixel wiederholt sich nicht.
-                int currentDataBufferIndex = 0;
-
-                // Wir übertragen das aktuelle Pixel in unseren Buffer
-                System.arraycopy(currentPixel, 0, dataBuffer, currentDataBufferIndex * 3, 3);
-                currentDataBufferIndex++;
-
-                while (true) {
-                    currentPixel = pixelData.readNextPixel();
-                    lineCounter++;
-
-                    // Das aktuelle Pixel befindet sich in einer
-                    // neuen Zeile; daher brechen wir hier ab und
-                    // verarbeiten diesen Pixel im nächsten Durchlauf der
-                    // äußeren While-Schleife
-                    if (lineCounter == pictureWidth) {
-                        lineCounter = 0;
-                        break;
-                    }
-
-                    // Die maximale Anzahl an Daten für einen Datenzähler
-                    // wurde erreicht, das Pixel wird im nächsten Durchlauf der
-                    // äußeren While-Schleife bearbeitet werden
-                    if (currentDataBufferIndex == DATA_OR_REPETITIONS_MAX_LENGTH)
-                        break;
-
-                    // Das aktuelle Byte wiederholt sich, daher muss es als Wiederholung
-                    // im nächsten Schleifendurchlauf verarbeitet werden. Eine Ausnahme
-                    // es ist egal ob es sich in der nächsten Zeile wiederholt ;)
-                    if (Arrays.equals(currentPixel, pixelData.peekPixel()) && lineCounter != (pictureWidth - 1))
-                        break;
-
-                    System.arraycopy(currentPixel, 0, dataBuffer, currentDataBufferIndex * 3, 3);
-                    currentDataBufferIndex++;
-                }
-
-                numberOfBytesWritten += writeDataBuffer(outputStream, dataBuffer, currentDataBufferIndex);
-
-                if (!pixelData.hasNextPixel()) {
-                    break;
-                }
-            }
-        }
-
-        return numberOfBytesWritten;
-    }
 }
@@ -0,0 +1,43 @@
+package propra.imageconverter.image.compression.selector;
+
+import propra.PropraException;
+
+/**
+ * Gibt an, wie der {@link CompressionSelector} für den Kompressionstyp AUTO
+ * die Länge der komprimierten Daten der einzelnen Kompressionsarten bestimmt.
+ */
+public enum AutoSelectionMode {
+    /**
+     * In einem einzigen Durchlauf über die Bilddaten werden die Statistiken aller
+     * Kompressionsarten gesammelt und daraus die exakten Längen berechnet.
+     */
+    ESTIMATE,
+    /**
+     * Wie ESTIMATE, es wird aber nur ein begrenzter Anfang der Bilddaten ausgewertet
+     * und die Längen werden hochgerechnet. Die Kosten der Auswahl sind damit auch für
+     * sehr große Bilder beschränkt; die gewählte Kompression ist aber nicht zwingend optimal.
+     */
+    SAMPLED,
+    /**
+     * Jede Kompressionsart wird einmal vollständig ausgeführt und die Länge
+     * des Ergebnisses gemessen.
+     */
+    TRIAL;
+
+    /**
+     * Wandelt ein übergebenes Kommandozeilenargument in
+     * den Enum um.
+     */
+    public static AutoSelectionMode parseCommandLineArgument(String cmdLineArg) {
+        switch (cmdLineArg) {
+            case "estimate":
+                return ESTIMATE;
+            case "sampled":
+                return SAMPLED;
+            case "trial":
+                return TRIAL;
+        }
+
+        throw new PropraException("Die Auswahlmethode " + cmdLineArg + " wird nicht unterstützt.");
+    }
+}
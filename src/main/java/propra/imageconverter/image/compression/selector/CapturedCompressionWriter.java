@@ -0,0 +1,60 @@
+package propra.imageconverter.image.compression.selector;
+
+import propra.imageconverter.binary.SpillingOutputStream;
+import propra.imageconverter.image.RowIndex;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.compression.CompressionWriter;
+import propra.imageconverter.image.compression.iterator.PixelIterator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * CompressionWriter, der die bereits bei der Auswahl der Kompression
+ * (siehe {@link AutoSelectionMode#TRIAL}) komprimierten Daten erneut ausgibt,
+ * anstatt die Bilddaten noch einmal zu komprimieren.
+ * <p>
+ * Die Bilddaten des übergebenen PixelIterators werden nur für einen Zeilenindex gelesen. Der
+ * Writer kann nur einmal verwendet werden; danach werden die zwischengespeicherten
+ * Daten verworfen.
+ */
+final class CapturedCompressionWriter implements CompressionWriter {
+    private final CompressionType compressionType;
+    private final SpillingOutputStream capturedData;
+
+    CapturedCompressionWriter(CompressionType compressionType, SpillingOutputStream capturedData) {
+        this.compressionType = compressionType;
+        this.capturedData = capturedData;
+    }
+
+    @Override
+    public long write(PixelIterator pixelData, OutputStream outputStream, RowIndex.Builder rowIndex) throws IOException {
+        // Die Zeilengrenzen der zwischengespeicherten Daten sind nicht bekannt,
+        // für einen Zeilenindex komprimieren wir die Bilddaten daher erneut.
+        if (rowIndex.isEnabled()) {
+            capturedData.discard();
+
+            return compressionType.getCompressionWriter().write(pixelData, outputStream, rowIndex);
+        }
+
+        try {
+            capturedData.copyTo(outputStream);
+
+            return capturedData.length();
+        } finally {
+            capturedData.discard();
+        }
+    }
+
+    /**
+     * Verwirft die zwischengespeicherten Daten, ohne sie auszugeben.
+     */
+    void discard() throws IOException {
+        capturedData.discard();
+    }
+
+    @Override
+    public CompressionType getCompressionType() {
+        return compressionType;
+    }
+}
@@ -4,14 +4,22 @@ import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.CompressionWriter;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public final class CompressionSelector {
+    /**
+     * Anzahl der Bytes an Bilddaten, die im Modus SAMPLED höchstens ausgewertet werden.
+     */
+    static final long SAMPLE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Anzahl der Bytes, bis zu der das Ergebnis einer Kompression im Modus TRIAL
+     * im Arbeitsspeicher gehalten wird, bevor es in eine temporäre Datei ausgelagert wird.
+     */
+    static final int CAPTURE_MEMORY_LIMIT = 32 * 1024 * 1024;
 
     /**
      * Die Methode findet zu einer Liste aus verfügbaren Kompressionen
@@ -21,40 +29,92 @@ public final class CompressionSelector {
             List<CompressionType> availableCompressions,
             PixelIterator pixelIterator
     ) throws IOException {
-        // Anmerkung:
-        // Die Methode funktioniert, indem jede Kompressionsart einmal tatsächlich
-        // ins Nichts ausgeführt wird und dann gemessen wird, wie lang das Ergebnis ist.
-        // Später muss die Komprimierung tatsächlich nochmal ausgeführt werden.
-        // Aus Performancegründen wären bessere Varianten denkbar, wie bspsw. das Zwischenspeichern
-        // der Ergebnisdaten. Das macht den Code aber deutlich schwieriger nachvollziehbar, daher
-        // wurde es hier unterlassen.
-        Map<CompressionType, Long> compressionTypeToByteLength
-                = new HashMap<>();
+        return findOptimalCompression(availableCompressions, pixelIterator, AutoSelectionMode.ESTIMATE);
+    }
 
-        for (CompressionType compressionType : availableCompressions) {
-            CompressionWriter compressionWriter
-                    = compressionType.getCompressionWriter();
+    /**
+     * Wie oben, die Längen werden dabei entsprechend {@param mode} bestimmt.
+     * Bei gleicher Länge wird die Kompression gewählt, die in {@param availableCompressions}
+     * zuerst aufgeführt ist.
+     */
+    public static CompressionType findOptimalCompression(
+            List<CompressionType> availableCompressions,
+            PixelIterator pixelIterator,
+            AutoSelectionMode mode
+    ) throws IOException {
+        Map<CompressionType, Long> compressionTypeToByteLength;
+
+        switch (mode) {
+            case SAMPLED:
+                long rowLength = pixelIterator.getWidth() * 3L;
+                int maxRows = (int) Math.max(1, Math.min(pixelIterator.getHeight(), SAMPLE_SIZE / rowLength));
 
-            // Wir schreiben tatsächlich in einen Ausgabestream
-            // der nichts tut. Uns interessiert nur die Anzahl
-            // der "geschriebenen" Bytes.
-            try (BufferedOutputStream out = new BufferedOutputStream(new NullOutputStream())) {
-                long compressedLength = compressionWriter
-                        .write(pixelIterator, out);
+                compressionTypeToByteLength = estimateLengths(availableCompressions, pixelIterator, maxRows);
+                break;
+            case TRIAL:
+                // Die Kompressionen werden ausgeführt, das Ergebnis
+                // wird hier aber nicht benötigt.
+                CapturedCompressionWriter capturedCompressionWriter
+                        = CompressionTrials.runAndKeepShortest(availableCompressions, pixelIterator, CAPTURE_MEMORY_LIMIT);
+                capturedCompressionWriter.discard();
 
-                compressionTypeToByteLength.put(compressionType, compressedLength);
+                return capturedCompressionWriter.getCompressionType();
+            default:
+                compressionTypeToByteLength = estimateLengths(availableCompressions, pixelIterator, pixelIterator.getHeight());
+        }
+
+        CompressionType optimalCompression = null;
+        long optimalLength = Long.MAX_VALUE;
+
+        for (Map.Entry<CompressionType, Long> entry : compressionTypeToByteLength.entrySet()) {
+            if (entry.getValue() < optimalLength) {
+                optimalCompression = entry.getKey();
+                optimalLength = entry.getValue();
             }
+        }
 
-            pixelIterator.reset();
+        // Solange wir mindestens eine verfügbare Kompression übergeben
+        // bekommen, ist das Ergebnis gesetzt.
+        return optimalCompression;
+    }
+
+    /**
+     * Gibt für die optimale Kompression (siehe oben) einen CompressionWriter zurück.
+     * <p>
+     * Im Modus TRIAL wurden die Daten bei der Auswahl bereits komprimiert (siehe {@link CompressionTrials});
+     * der zurückgegebene CompressionWriter gibt dann die zwischengespeicherten Daten der gewählten
+     * Kompression aus, anstatt die Bilddaten erneut zu komprimieren.
+     */
+    public static CompressionWriter findOptimalCompressionWriter(
+            List<CompressionType> availableCompressions,
+            PixelIterator pixelIterator,
+            AutoSelectionMode mode
+    ) throws IOException {
+        if (mode == AutoSelectionMode.TRIAL)
+            return CompressionTrials.runAndKeepShortest(availableCompressions, pixelIterator, CAPTURE_MEMORY_LIMIT);
+
+        return findOptimalCompression(availableCompressions, pixelIterator, mode)
+                .getCompressionWriter();
+    }
+
+    /**
+     * Bestimmt die Längen aller Kompressionen in einem einzigen Durchlauf
+     * über höchstens {@param maxRows} Bildzeilen (siehe {@link CompressionSizeEstimator}).
+     */
+    private static Map<CompressionType, Long> estimateLengths(
+            List<CompressionType> availableCompressions,
+            PixelIterator pixelIterator,
+            int maxRows
+    ) throws IOException {
+        CompressionSizeEstimator estimator = CompressionSizeEstimator.analyze(pixelIterator, maxRows);
+
+        Map<CompressionType, Long> compressionTypeToByteLength
+                = new LinkedHashMap<>();
+
+        for (CompressionType compressionType : availableCompressions) {
+            compressionTypeToByteLength.put(compressionType, estimator.lengthFor(compressionType));
         }
 
-        return compressionTypeToByteLength
-                .entrySet()
-                .stream()
-                .min(Comparator.comparingLong(Map.Entry::getValue))
-                // Solange wir mindestens eine verfügbare Kompression übergeben
-                // bekommen, kann diese Exception nicht fliegen.
-                .orElseThrow()
-                .getKey();
+        return compressionTypeToByteLength;
     }
 }
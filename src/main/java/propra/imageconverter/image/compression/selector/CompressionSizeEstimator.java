@@ -0,0 +1,112 @@
+package propra.imageconverter.image.compression.selector;
+
+import propra.PropraException;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.compression.huffman.HuffmanCompressionWriter;
+import propra.imageconverter.image.compression.iterator.PixelIterator;
+import propra.imageconverter.image.compression.rle.RLECompressionWriter;
+
+import java.io.IOException;
+
+/**
+ * Bestimmt in einem einzigen Durchlauf über die Bilddaten die Länge, die die
+ * Daten mit jeder der Kompressionsarten hätten, ohne sie zu komprimieren.
+ * <p>
+ * Dafür werden je Bildzeile die Pakete der RLE-Kompression gebildet (nur gezählt)
+ * und die Häufigkeiten aller Bytes für die Huffman-Kompression gesammelt. Die
+ * Reihenfolge der Farbkanäle spielt für beides keine Rolle.
+ */
+final class CompressionSizeEstimator {
+    private final int height;
+
+    /**
+     * Anzahl der ausgewerteten Bildzeilen.
+     */
+    private int analyzedRows = 0;
+
+    private long uncompressedLength = 0;
+    private long rleLength = 0;
+    private final long[] byteOccurences = new long[256];
+
+    private CompressionSizeEstimator(int height) {
+        this.height = height;
+    }
+
+    /**
+     * Wertet höchstens {@param maxRows} Bildzeilen des {@param pixelIterator} aus und
+     * setzt ihn danach zurück. Werden nicht alle Bildzeilen ausgewertet, werden die Längen
+     * anhand der ausgewerteten Bildzeilen auf das ganze Bild hochgerechnet.
+     */
+    static CompressionSizeEstimator analyze(PixelIterator pixelIterator, int maxRows) throws IOException {
+        int width = pixelIterator.getWidth();
+        CompressionSizeEstimator estimator = new CompressionSizeEstimator(pixelIterator.getHeight());
+
+        // Wie beim Schreiben mit RLE benötigen wir für jede Zeile
+        // den ersten Bildpunkt der folgenden Zeile.
+        byte[] currentRow = new byte[width * 3];
+        byte[] nextRow = new byte[width * 3];
+
+        if (pixelIterator.hasNextRow()) {
+            pixelIterator.readNextRow(currentRow);
+
+            while (true) {
+                boolean hasNextRow = pixelIterator.hasNextRow();
+
+                if (hasNextRow)
+                    pixelIterator.readNextRow(nextRow);
+
+                estimator.analyzeRow(currentRow, width, hasNextRow ? nextRow : null);
+
+                if (!hasNextRow || estimator.analyzedRows >= maxRows)
+                    break;
+
+                byte[] temp = currentRow;
+                currentRow = nextRow;
+                nextRow = temp;
+            }
+        }
+
+        pixelIterator.reset();
+
+        return estimator;
+    }
+
+    private void analyzeRow(byte[] row, int width, byte[] nextRow) {
+        uncompressedLength += width * 3L;
+        rleLength += RLECompressionWriter.encodedRowLength(row, width, nextRow);
+
+        int end = width * 3;
+        for (int i = 0; i < end; i++) {
+            byteOccurences[row[i] & 0xFF]++;
+        }
+
+        analyzedRows++;
+    }
+
+    /**
+     * Gibt die (bei nur teilweise ausgewerteten Bildern hochgerechnete) Länge der
+     * Daten für den Kompressionstyp {@param compressionType} zurück.
+     */
+    long lengthFor(CompressionType compressionType) {
+        long analyzedLength;
+
+        switch (compressionType) {
+            case NO_COMPRESSION:
+                analyzedLength = uncompressedLength;
+                break;
+            case RLE:
+                analyzedLength = rleLength;
+                break;
+            case HUFFMAN:
+                analyzedLength = HuffmanCompressionWriter.calcEncodedLength(byteOccurences);
+                break;
+            default:
+                throw new PropraException("Für den Kompressionstyp " + compressionType + " kann keine Länge bestimmt werden.");
+        }
+
+        if (analyzedRows == height)
+            return analyzedLength;
+
+        return Math.round(analyzedLength * ((double) height / analyzedRows));
+    }
+}
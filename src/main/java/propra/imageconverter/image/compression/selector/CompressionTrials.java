@@ -0,0 +1,274 @@
+package propra.imageconverter.image.compression.selector;
+
+import propra.imageconverter.binary.SpillingOutputStream;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.compression.iterator.PixelIterator;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Führt die Kompressionen für den Modus {@link AutoSelectionMode#TRIAL} tatsächlich
+ * aus und bewahrt das kürzeste Ergebnis auf.
+ * <p>
+ * Lassen sich die Bilddaten unabhängig erneut öffnen (siehe {@link PixelIterator#reopen()}),
+ * läuft jede Kompression in einem eigenen Thread auf einem eigenen PixelIterator, ansonsten
+ * nacheinander auf dem übergebenen PixelIterator. Eine Kompression wird abgebrochen, sobald
+ * ihr Ergebnis länger ist als das kürzeste bereits vollständige Ergebnis.
+ */
+final class CompressionTrials {
+    private CompressionTrials() {
+
+    }
+
+    /**
+     * Führt alle Kompressionen aus {@param availableCompressions} aus und gibt einen
+     * CompressionWriter für das kürzeste Ergebnis zurück. Bei gleicher Länge wird das
+     * Ergebnis der zuerst aufgeführten Kompression gewählt.
+     */
+    static CapturedCompressionWriter runAndKeepShortest(
+            List<CompressionType> availableCompressions,
+            PixelIterator pixelIterator,
+            int memoryLimit
+    ) throws IOException {
+        AtomicLong shortestLength = new AtomicLong(Long.MAX_VALUE);
+
+        List<SpillingOutputStream> results = null;
+
+        if (availableCompressions.size() > 1)
+            results = runInParallel(availableCompressions, pixelIterator, memoryLimit, shortestLength);
+
+        if (results == null)
+            results = runSequentially(availableCompressions, pixelIterator, memoryLimit, shortestLength);
+
+        // Kürzestes Ergebnis suchen, alle anderen verwerfen
+        int shortestIndex = -1;
+        for (int i = 0; i < results.size(); i++) {
+            SpillingOutputStream result = results.get(i);
+
+            if (result != null && (shortestIndex == -1 || result.length() < results.get(shortestIndex).length()))
+                shortestIndex = i;
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            if (i != shortestIndex && results.get(i) != null)
+                results.get(i).discard();
+        }
+
+        return new CapturedCompressionWriter(availableCompressions.get(shortestIndex), results.get(shortestIndex));
+    }
+
+    /**
+     * Führt die Kompressionen nacheinander auf dem übergebenen PixelIterator aus.
+     * Abgebrochene Kompressionen haben das Ergebnis null.
+     */
+    private static List<SpillingOutputStream> runSequentially(
+            List<CompressionType> availableCompressions,
+            PixelIterator pixelIterator,
+            int memoryLimit,
+            AtomicLong shortestLength
+    ) throws IOException {
+        List<SpillingOutputStream> results = new ArrayList<>();
+
+        try {
+            for (CompressionType compressionType : availableCompressions) {
+                results.add(runTrial(compressionType, pixelIterator, memoryLimit, shortestLength));
+
+                pixelIterator.reset();
+            }
+        } catch (IOException | RuntimeException e) {
+            discardAll(results);
+            throw e;
+        }
+
+        return results;
+    }
+
+    /**
+     * Führt jede Kompression in einem eigenen Thread auf einem eigenen PixelIterator aus.
+     * Abgebrochene Kompressionen haben das Ergebnis null. Gibt null zurück, falls sich
+     * der PixelIterator nicht erneut öffnen lässt.
+     */
+    private static List<SpillingOutputStream> runInParallel(
+            List<CompressionType> availableCompressions,
+            PixelIterator pixelIterator,
+            int memoryLimit,
+            AtomicLong shortestLength
+    ) throws IOException {
+        List<PixelIterator> pixelIterators = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < availableCompressions.size(); i++) {
+                PixelIterator reopenedPixelIterator = pixelIterator.reopen();
+
+                if (reopenedPixelIterator == null) {
+                    closeAll(pixelIterators);
+                    return null;
+                }
+
+                pixelIterators.add(reopenedPixelIterator);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeAll(pixelIterators);
+            throw e;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(availableCompressions.size());
+
+        try {
+            List<Future<SpillingOutputStream>> futures = new ArrayList<>();
+
+            for (int i = 0; i < availableCompressions.size(); i++) {
+                CompressionType compressionType = availableCompressions.get(i);
+                PixelIterator ownPixelIterator = pixelIterators.get(i);
+
+                futures.add(executor.submit(() -> {
+                    try (ownPixelIterator) {
+                        return runTrial(compressionType, ownPixelIterator, memoryLimit, shortestLength);
+                    }
+                }));
+            }
+
+            // Wir warten auf alle Ergebnisse, damit bei einem Fehler
+            // auch die Ergebnisse der übrigen Kompressionen verworfen werden.
+            List<SpillingOutputStream> results = new ArrayList<>();
+            Exception firstException = null;
+
+            for (Future<SpillingOutputStream> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(null);
+
+                    if (firstException == null)
+                        firstException = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(null);
+
+                    if (firstException == null)
+                        firstException = new InterruptedIOException("Die Auswahl der Kompression wurde unterbrochen.");
+                }
+            }
+
+            if (firstException != null) {
+                discardAll(results);
+
+                if (firstException instanceof IOException)
+                    throw (IOException) firstException;
+                if (firstException instanceof RuntimeException)
+                    throw (RuntimeException) firstException;
+
+                throw new IOException(firstException);
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Führt die Kompression {@param compressionType} aus und gibt das zwischengespeicherte
+     * Ergebnis zurück, oder null, falls sie abgebrochen wurde, weil ihr Ergebnis länger als
+     * {@param shortestLength} wurde. Ist sie vollständig, wird shortestLength aktualisiert.
+     */
+    private static SpillingOutputStream runTrial(
+            CompressionType compressionType,
+            PixelIterator pixelIterator,
+            int memoryLimit,
+            AtomicLong shortestLength
+    ) throws IOException {
+        SpillingOutputStream capturedData = new SpillingOutputStream(memoryLimit);
+
+        try (TrialOutputStream outputStream = new TrialOutputStream(capturedData, shortestLength)) {
+            compressionType
+                    .getCompressionWriter()
+                    .write(pixelIterator, outputStream);
+        } catch (TrialAbortedException e) {
+            capturedData.discard();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            capturedData.discard();
+            throw e;
+        }
+
+        shortestLength.accumulateAndGet(capturedData.length(), Math::min);
+
+        return capturedData;
+    }
+
+    private static void discardAll(List<SpillingOutputStream> results) throws IOException {
+        for (SpillingOutputStream result : results) {
+            if (result != null)
+                result.discard();
+        }
+    }
+
+    private static void closeAll(List<PixelIterator> pixelIterators) throws IOException {
+        for (PixelIterator pixelIterator : pixelIterators) {
+            try {
+                pixelIterator.close();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Ausgabestream einer Kompression, der abbricht, sobald mehr Bytes geschrieben
+     * wurden als das kürzeste bereits vollständige Ergebnis lang ist.
+     */
+    private static final class TrialOutputStream extends FilterOutputStream {
+        private final SpillingOutputStream capturedData;
+        private final AtomicLong shortestLength;
+
+        TrialOutputStream(SpillingOutputStream capturedData, AtomicLong shortestLength) {
+            super(capturedData);
+
+            this.capturedData = capturedData;
+            this.shortestLength = shortestLength;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            capturedData.write(b);
+            abortIfLonger();
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            capturedData.write(data, offset, length);
+            abortIfLonger();
+        }
+
+        private void abortIfLonger() {
+            if (capturedData.length() > shortestLength.get())
+                throw new TrialAbortedException();
+        }
+    }
+
+    /**
+     * Zeigt an, dass eine Kompression abgebrochen wurde, da ihr
+     * Ergebnis nicht mehr das kürzeste werden kann.
+     */
+    private static final class TrialAbortedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TrialAbortedException() {
+            // Ohne Stacktrace, da die Exception nur den Kontrollfluss steuert
+            super(null, null, false, false);
+        }
+    }
+}
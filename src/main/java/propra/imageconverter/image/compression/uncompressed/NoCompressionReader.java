@@ -1,11 +1,14 @@
 package propra.imageconverter.image.compression.uncompressed;
 
 import propra.imageconverter.binary.LittleEndianInputStream;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionReader;
 
 import java.io.IOException;
 import java.io.InputStream;
 
+import static propra.imageconverter.util.RequireUtils.require;
+
 /**
  * Implementiert einen CompressionReader für
  * unkomprimierte Daten.
@@ -17,14 +20,26 @@ public class NoCompressionReader implements CompressionReader {
         this.inputStream = new LittleEndianInputStream(inputStream);
     }
 
-    @Override
-    public byte[] readNextPixel() throws IOException {
-        // Ohne Kompression müssen wir einfach nur
-        // den nächsten Bildpunkt wählen.
-        byte[] pixel = new byte[3];
+    /**
+     * Meldet dem Zeilenindex {@param rowIndex} den Beginn jeder Bildzeile der unkomprimierten Daten
+     * eines Bilds der Breite {@param width} und der Höhe {@param height}. Da jede Bildzeile gleich
+     * lang ist, werden die Positionen berechnet, ohne die Daten zu lesen; ein zu kurzes Datensegment
+     * fällt anhand seiner Länge {@param lengthOfContent} auf.
+     */
+    public static void scanRowStarts(long lengthOfContent, int width, int height, RowIndex.Builder rowIndex) {
+        long rowLength = width * 3L;
 
-        inputStream.readFully(pixel);
+        require(lengthOfContent >= rowLength * height, "Das Dateiende wurde vorzeitig erreicht.");
 
-        return pixel;
+        for (int i = 0; i < height; i++) {
+            rowIndex.recordRow(i, i * rowLength * 8);
+        }
+    }
+
+    @Override
+    public void readPixels(byte[] target, int offset, int numberOfPixels) throws IOException {
+        // Ohne Kompression müssen wir einfach nur
+        // die nächsten Bildpunkte am Stück lesen.
+        inputStream.readFully(target, offset, numberOfPixels * 3);
     }
 }
@@ -1,11 +1,12 @@
 package propra.imageconverter.image.compression.uncompressed;
 
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.CompressionWriter;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Implementiert einen CompressionWriter ohne
@@ -15,13 +16,22 @@ public class NoCompressionWriter implements CompressionWriter {
 	@Override
 	public long write(
 			PixelIterator pixelData,
-			BufferedOutputStream outputStream
+			OutputStream outputStream,
+			RowIndex.Builder rowIndex
 	) throws IOException {
 		long numberOfDataWritten = 0;
+		int rowNumber = 0;
 
-		while (pixelData.hasNextPixel()) {
-			outputStream.write(pixelData.readNextPixel());
-			numberOfDataWritten += 3;
+		// Ohne Kompression können die Bildzeilen
+		// am Stück geschrieben werden.
+		byte[] row = new byte[pixelData.getWidth() * 3];
+
+		while (pixelData.hasNextRow()) {
+			rowIndex.recordRow(rowNumber++, numberOfDataWritten * 8);
+
+			pixelData.readNextRow(row);
+			outputStream.write(row);
+			numberOfDataWritten += row.length;
 		}
 
 		return numberOfDataWritten;
@@ -1,6 +1,13 @@
 package propra.imageconverter.image.propra;
 
+import propra.imageconverter.binary.MappedFileInputStream;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import static propra.imageconverter.util.RequireUtils.require;
 
 /**
  * Die Implementation des Prüfsummenalgorithmus für Propa-Dateien
@@ -10,6 +17,12 @@ import java.io.IOException;
  * werden.
  */
 public final class Checksum {
+    /**
+     * Größe des Puffers, in den die Daten eines nicht abgebildeten
+     * Eingabestreams blockweise gelesen werden.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private Checksum() {
 
     }
@@ -27,8 +40,6 @@ public final class Checksum {
             long n,
             ChecksumByteReader reader
     ) throws IOException {
-        long X = 65513;
-
         // Hier befindet sich der im Kursportal vorgestellte Algorithmus.
         // Es wurden die folgenden Anpassungen vorgenommen:
         //
@@ -37,21 +48,76 @@ public final class Checksum {
         //   sondern die Summen werden zwischengespeichert
         // - Die Aufrufe wurden entsprechend verschoben, sodass die Daten sequentiell aus einem
         //   Stream gelesen wurden.
-        // - Es wird BigInteger verwendet um nicht mit vorzeichenlosen Werten abgebildet auf
-        //   vorzeichenbehaftete Werte arbeiten zu müssen.
-        long bResult = 1;
-        long lastASum = 0;
+        //
+        // Die eigentliche Berechnung befindet sich im ChecksumCalculator.
+        ChecksumCalculator calculator = new ChecksumCalculator();
         for (long j = 1; j <= n; j++) {
-            int byteRead = reader.readUByte();
-
-            lastASum = (lastASum + (j + byteRead)) % X;
-            bResult = (bResult + lastASum) % X;
+            calculator.update(reader.readUByte());
         }
 
-        long aResult = lastASum;
+        return calculator.getChecksum();
+    }
+
+    /**
+     * Berechnet die Prüfsumme über {@param length} Bytes des Arrays {@param data}
+     * ab dem Index {@param offset}. Die Bytes werden blockweise verarbeitet
+     * (siehe {@link ChecksumCalculator}).
+     */
+    public static long calcChecksum(byte[] data, int offset, int length) {
+        ChecksumCalculator calculator = new ChecksumCalculator();
+        calculator.update(data, offset, length);
+
+        return calculator.getChecksum();
+    }
+
+    /**
+     * Berechnet die Prüfsumme über alle verbleibenden Bytes des Puffers {@param data}.
+     * Die Bytes werden blockweise verarbeitet (siehe {@link ChecksumCalculator}).
+     */
+    public static long calcChecksum(ByteBuffer data) {
+        ChecksumCalculator calculator = new ChecksumCalculator();
+        calculator.update(data);
+
+        return calculator.getChecksum();
+    }
+
+    /**
+     * Berechnet die Prüfsumme über die nächsten {@param n} Bytes des Eingabestreams {@param inputStream}.
+     * <p>
+     * Handelt es sich um einen Eingabestream über eine in den Speicher abgebildete Datei,
+     * werden die Bytes direkt aus der Abbildung verarbeitet und die Prüfsumme für Abschnitte
+     * der Daten parallel berechnet (siehe {@link ParallelChecksumTask}), ansonsten blockweise gelesen.
+     * Wirft eine Exception, falls das Ende des Eingabestreams vorzeitig erreicht wird.
+     */
+    public static long calcChecksum(
+            long n,
+            InputStream inputStream
+    ) throws IOException {
+        ChecksumCalculator calculator = new ChecksumCalculator();
+
+        if (inputStream instanceof MappedFileInputStream) {
+            MappedFileInputStream mappedInputStream = (MappedFileInputStream) inputStream;
+
+            while (calculator.getNumberOfBytes() < n) {
+                ByteBuffer data = mappedInputStream.readBuffer((int) Math.min(Integer.MAX_VALUE, n - calculator.getNumberOfBytes()));
+                require(data != null, "Das Dateiende wurde vorzeitig erreicht.");
+
+                calculator.append(ForkJoinPool
+                        .commonPool()
+                        .invoke(new ParallelChecksumTask(data, data.position(), data.limit())));
+            }
+        } else {
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            while (calculator.getNumberOfBytes() < n) {
+                int bytesRead = inputStream.read(buffer, 0, (int) Math.min(buffer.length, n - calculator.getNumberOfBytes()));
+                require(bytesRead != -1, "Das Dateiende wurde vorzeitig erreicht.");
+
+                calculator.update(buffer, 0, bytesRead);
+            }
+        }
 
-        // 2 << 15 == 2^16
-        return (aResult * (2 << 15)) + bResult;
+        return calculator.getChecksum();
     }
 
     /**
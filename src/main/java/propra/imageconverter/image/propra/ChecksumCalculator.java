@@ -0,0 +1,196 @@
+package propra.imageconverter.image.propra;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Berechnet die Prüfsumme für Propra-Dateien (siehe {@link Checksum}) schrittweise.
+ * Die Daten können in beliebig großen Teilen übergeben werden; der Zustand
+ * des Algorithmus wird zwischen den Aufrufen gespeichert.
+ * <p>
+ * Die Summen A und B sind linear in den Daten. Daher können die Teilergebnisse
+ * für aufeinanderfolgende Abschnitte unabhängig (auch parallel) berechnet und
+ * anschließend mit {@link #append(ChecksumCalculator)} zusammengeführt werden.
+ */
+public final class ChecksumCalculator {
+    private static final long X = 65513;
+
+    /**
+     * Maximale Anzahl an Bytes, die ohne Modulo-Operation aufsummiert werden.
+     * Für m Bytes ist die Summe der laufenden Summen höchstens 255 * m * (m + 1) / 2;
+     * bei 2^24 Bytes sind das etwa 2^55, was sicher in einen long passt.
+     */
+    private static final int BLOCK_SIZE = 1 << 24;
+
+    /**
+     * Größe des Zwischenpuffers für Puffer ohne zugrundeliegendes Array.
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Anzahl der bisher verarbeiteten Bytes (entspricht j im Algorithmus).
+     */
+    private long numberOfBytes = 0;
+
+    /**
+     * Zwischengespeicherte Summe A über die bisher verarbeiteten Bytes.
+     */
+    private long lastASum = 0;
+
+    /**
+     * Zwischengespeicherte Summe B über die bisher verarbeiteten Bytes,
+     * ohne den Startwert 1 (dieser wird erst in getChecksum addiert).
+     */
+    private long bSum = 0;
+
+    /**
+     * Zwischenpuffer für Puffer ohne zugrundeliegendes Array; wird bei Bedarf angelegt.
+     */
+    private byte[] copyBuffer = null;
+
+    /**
+     * Verarbeitet das vorzeichenlose Byte {@param byteRead}.
+     */
+    public void update(int byteRead) {
+        numberOfBytes++;
+
+        lastASum = (lastASum + (numberOfBytes + byteRead)) % X;
+        bSum = (bSum + lastASum) % X;
+    }
+
+    /**
+     * Verarbeitet {@param length} Bytes des Arrays {@param data} ab dem Index {@param offset}.
+     */
+    public void update(byte[] data, int offset, int length) {
+        int end = offset + length;
+
+        for (int blockStart = offset; blockStart < end; blockStart += BLOCK_SIZE) {
+            updateBlock(data, blockStart, Math.min(BLOCK_SIZE, end - blockStart));
+        }
+    }
+
+    /**
+     * Verarbeitet alle verbleibenden Bytes des übergebenen Puffers {@param data}.
+     * <p>
+     * Puffer ohne zugrundeliegendes Array (z. B. abgebildete Dateien) werden
+     * abschnittsweise in einen Zwischenpuffer kopiert und von dort verarbeitet.
+     */
+    public void update(ByteBuffer data) {
+        if (data.hasArray()) {
+            update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+
+            return;
+        }
+
+        if (copyBuffer == null)
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+
+        while (data.hasRemaining()) {
+            int length = Math.min(copyBuffer.length, data.remaining());
+            data.get(copyBuffer, 0, length);
+
+            updateBlock(copyBuffer, 0, length);
+        }
+    }
+
+    /**
+     * Verarbeitet einen Block von höchstens {@link #BLOCK_SIZE} Bytes.
+     * <p>
+     * Innerhalb des Blocks werden nur die Daten aufsummiert, ohne Modulo-Operation:
+     * a ist die laufende Summe der Bytes, b die Summe der laufenden Summen. Die Anteile
+     * der Positionen j sind für alle Blöcke gleich und werden mit den Summenformeln
+     * ergänzt. Anschließend wird der Block wie ein Teilergebnis angehängt.
+     */
+    private void updateBlock(byte[] data, int offset, int length) {
+        long dataSum = 0;
+        long dataSumOfSums = 0;
+
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            dataSum += data[i] & 0xFF;
+            dataSumOfSums += dataSum;
+        }
+
+        // Summe der Positionen 1..m:                 m * (m + 1) / 2
+        // Summe der Summen der Positionen 1..k:      m * (m + 1) * (m + 2) / 6
+        long aPart = (dataSum + triangularNumber(length)) % X;
+        long bPart = (dataSumOfSums % X + tetrahedralNumber(length)) % X;
+
+        appendPart(length, aPart, bPart);
+    }
+
+    /**
+     * Hängt das Teilergebnis {@param following} an, das für die direkt auf die
+     * bisher verarbeiteten Bytes folgenden Bytes berechnet wurde. Das Teilergebnis
+     * muss dabei so berechnet worden sein, als würden die Bytes an Position 1 beginnen.
+     */
+    public void append(ChecksumCalculator following) {
+        appendPart(following.numberOfBytes, following.lastASum, following.bSum);
+    }
+
+    /**
+     * Hängt ein Teilergebnis über {@param m} Bytes mit den Summen {@param aPart} und {@param bPart}
+     * (jeweils modulo X und ab Position 1 berechnet) an.
+     * <p>
+     * Liegen vor dem Abschnitt s Bytes, verschiebt sich jeder
+     * Summand von A um s. Damit gilt für die zusammengeführten Summen:
+     * <pre>
+     * A = A_vorher + a + m * s
+     * B = B_vorher + m * A_vorher + b + s * m * (m + 1) / 2
+     * </pre>
+     */
+    private void appendPart(long m, long aPart, long bPart) {
+        long s = numberOfBytes % X;
+
+        long newASum = (lastASum + aPart + (m % X) * s) % X;
+        long newBSum = (bSum + (m % X) * lastASum + bPart + s * triangularNumber(m)) % X;
+
+        numberOfBytes += m;
+        lastASum = newASum;
+        bSum = newBSum;
+    }
+
+    /**
+     * Berechnet m * (m + 1) / 2 modulo X, ohne dass das Produkt überläuft.
+     */
+    private static long triangularNumber(long m) {
+        return (m % 2 == 0)
+                ? ((m / 2) % X) * ((m + 1) % X) % X
+                : (m % X) * (((m + 1) / 2) % X) % X;
+    }
+
+    /**
+     * Berechnet m * (m + 1) * (m + 2) / 6 modulo X, ohne dass das Produkt überläuft.
+     */
+    private static long tetrahedralNumber(long m) {
+        long[] factors = {m, m + 1, m + 2};
+
+        // Unter drei aufeinanderfolgenden Zahlen ist immer eine durch 2
+        // und eine durch 3 teilbar; die Division wird vor der Multiplikation ausgeführt.
+        for (int divisor : new int[]{2, 3}) {
+            for (int i = 0; i < factors.length; i++) {
+                if (factors[i] % divisor == 0) {
+                    factors[i] /= divisor;
+                    break;
+                }
+            }
+        }
+
+        return (factors[0] % X) * (factors[1] % X) % X * (factors[2] % X) % X;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher verarbeiteten Bytes zurück.
+     */
+    public long getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * Gibt die Prüfsumme über alle bisher verarbeiteten Bytes zurück.
+     */
+    public long getChecksum() {
+        // 2 << 15 == 2^16
+        return (lastASum * (2 << 15)) + (1 + bSum) % X;
+    }
+}
@@ -0,0 +1,80 @@
+package propra.imageconverter.image.propra;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Eingabestream, der die Prüfsumme (siehe {@link Checksum}) und die Länge
+ * aller durch ihn gelesenen Bytes mitberechnet.
+ * <p>
+ * Damit kann die Prüfsumme des Datensegments einer Propra-Datei beim
+ * Dekodieren überprüft werden, ohne die Daten ein weiteres Mal zu lesen.
+ */
+final class ChecksumInputStream extends FilterInputStream {
+    private final ChecksumCalculator calculator = new ChecksumCalculator();
+
+    ChecksumInputStream(InputStream origin) {
+        super(origin);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int byteRead = in.read();
+
+        if (byteRead != -1)
+            calculator.update(byteRead);
+
+        return byteRead;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+        int bytesRead = in.read(target, offset, length);
+
+        if (bytesRead > 0)
+            calculator.update(target, offset, bytesRead);
+
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+
+        // Übersprungene Bytes müssen trotzdem in die Prüfsumme eingehen,
+        // daher werden sie gelesen.
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+
+        while (skipped < n) {
+            int bytesRead = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (bytesRead == -1)
+                break;
+
+            skipped += bytesRead;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Gibt die Anzahl der bisher gelesenen Bytes zurück.
+     */
+    long getNumberOfBytes() {
+        return calculator.getNumberOfBytes();
+    }
+
+    /**
+     * Gibt die Prüfsumme über alle bisher gelesenen Bytes zurück.
+     */
+    long getChecksum() {
+        return calculator.getChecksum();
+    }
+}
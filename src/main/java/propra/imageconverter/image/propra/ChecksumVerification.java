@@ -0,0 +1,38 @@
+package propra.imageconverter.image.propra;
+
+import propra.PropraException;
+
+/**
+ * Gibt an, wann der {@link PropraReader} die Prüfsumme des
+ * Datensegments einer Propra-Datei überprüft.
+ */
+public enum ChecksumVerification {
+    /**
+     * Die Prüfsumme wird beim Öffnen der Datei in einem eigenen Durchlauf über das
+     * Datensegment überprüft. Eine fehlerhafte Datei wird erkannt, bevor Bilddaten
+     * gelesen werden; dafür wird das Datensegment zweimal gelesen.
+     */
+    STRICT,
+    /**
+     * Die Prüfsumme wird über die Bytes berechnet, die beim Dekodieren ohnehin
+     * gelesen werden, und nach dem Lesen der letzten Bildzeile überprüft. Das
+     * Datensegment wird nur einmal gelesen; eine fehlerhafte Prüfsumme wird aber
+     * erst erkannt, nachdem alle Bildzeilen geliefert wurden.
+     */
+    WHILE_DECODING;
+
+    /**
+     * Wandelt ein übergebenes Kommandozeilenargument in
+     * den Enum um.
+     */
+    public static ChecksumVerification parseCommandLineArgument(String cmdLineArg) {
+        switch (cmdLineArg) {
+            case "strict":
+                return STRICT;
+            case "while-decoding":
+                return WHILE_DECODING;
+        }
+
+        throw new PropraException("Die Prüfsummenüberprüfung " + cmdLineArg + " wird nicht unterstützt.");
+    }
+}
@@ -0,0 +1,62 @@
+package propra.imageconverter.image.propra;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Berechnet das Teilergebnis der Prüfsumme (siehe {@link ChecksumCalculator})
+ * für einen Bereich eines Puffers auf einem Fork-Join-Pool.
+ * <p>
+ * Bereiche oberhalb von {@link #THRESHOLD} Bytes werden halbiert, die Hälften
+ * parallel berechnet und die Teilergebnisse anschließend in der richtigen
+ * Reihenfolge zusammengeführt.
+ */
+final class ParallelChecksumTask extends RecursiveTask<ChecksumCalculator> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Bereiche bis zu dieser Größe werden nicht weiter aufgeteilt.
+     */
+    static final int THRESHOLD = 1 << 20;
+
+    private final ByteBuffer data;
+    private final int from;
+    private final int to;
+
+    /**
+     * Erstellt die Aufgabe für die Bytes des Puffers {@param data}
+     * von Index {@param from} (inklusive) bis {@param to} (exklusive).
+     * Die Position des Puffers wird dabei nicht verändert.
+     */
+    ParallelChecksumTask(ByteBuffer data, int from, int to) {
+        this.data = data;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected ChecksumCalculator compute() {
+        if (to - from <= THRESHOLD) {
+            // Jede Aufgabe arbeitet auf einer eigenen Sicht,
+            // da die Position eines Puffers nicht threadsicher ist.
+            ByteBuffer range = data.duplicate();
+            range.limit(to);
+            range.position(from);
+
+            ChecksumCalculator calculator = new ChecksumCalculator();
+            calculator.update(range);
+
+            return calculator;
+        }
+
+        int middle = from + (to - from) / 2;
+
+        ParallelChecksumTask secondHalf = new ParallelChecksumTask(data, middle, to);
+        secondHalf.fork();
+
+        ChecksumCalculator result = new ParallelChecksumTask(data, from, middle).compute();
+        result.append(secondHalf.join());
+
+        return result;
+    }
+}
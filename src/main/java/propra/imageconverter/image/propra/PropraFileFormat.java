@@ -1,12 +1,21 @@
 package propra.imageconverter.image.propra;
 
 import propra.PropraException;
+import propra.imageconverter.base.BitInputStream;
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.ChannelOrder;
+import propra.imageconverter.image.DecodingMode;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionReader;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.huffman.HuffmanCompressionReader;
+import propra.imageconverter.image.compression.huffman.ParallelHuffmanCompressionReader;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
+import propra.imageconverter.image.compression.huffman.tree.Node;
 import propra.imageconverter.image.compression.rle.RLECompressionReader;
 import propra.imageconverter.image.compression.uncompressed.NoCompressionReader;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
@@ -42,6 +51,11 @@ final class PropraFileFormat {
      */
     final static long OFFSET_DATA = MAGIC_HEADER.length + 2 + 2 + 1 + 1 + 8 + 4;
 
+    /**
+     * Die Reihenfolge der Farbkanäle eines Bildpunkts im Propra-Format.
+     */
+    final static ChannelOrder CHANNEL_ORDER = ChannelOrder.GBR;
+
     final static List<CompressionType> supportedCompressionTypes = Arrays.asList(
             CompressionType.HUFFMAN,
             CompressionType.RLE,
@@ -58,13 +72,86 @@ final class PropraFileFormat {
      * entsprechenden Reader für diesen Kompressionstyp zurück.
      */
     static CompressionReader compressionReaderForCompressionType(InputStream inputStream, int compressionType) {
+        return compressionReaderForCompressionType(inputStream, compressionType, DecodingMode.SERIAL);
+    }
+
+    /**
+     * Wie oben, Huffman-kodierte Daten werden im Dekodiermodus {@param decodingMode} PARALLEL
+     * aber ohne Zeilenindex parallel dekodiert (siehe {@link ParallelHuffmanCompressionReader}).
+     */
+    static CompressionReader compressionReaderForCompressionType(InputStream inputStream, int compressionType, DecodingMode decodingMode) {
         switch (compressionType) {
             case 0:
                 return new NoCompressionReader(inputStream);
             case 1:
                 return new RLECompressionReader(inputStream);
             case 2:
-                return new HuffmanCompressionReader(inputStream);
+                return decodingMode == DecodingMode.PARALLEL
+                        ? new ParallelHuffmanCompressionReader(inputStream)
+                        : new HuffmanCompressionReader(inputStream);
+        }
+
+        throw new PropraException("Der ausgewählte Compression-Type (Propra) " + compressionType + " wird nicht unterstützt.");
+    }
+
+    /**
+     * Meldet dem Zeilenindex {@param rowIndex} den Beginn jeder Bildzeile der Daten {@param inputStream}
+     * für das Attribut {@param compressionType} eines Bilds der Breite {@param width} und der Höhe {@param height}.
+     * Gibt false zurück, falls sich die Zeilengrenzen nicht ohne Dekodieren bestimmen lassen.
+     * <p>
+     * Unkomprimierte Daten werden dabei nicht gelesen, sondern nur ihre Länge {@param lengthOfContent}
+     * überprüft (siehe NoCompressionReader.scanRowStarts).
+     */
+    static boolean scanRowStarts(InputStream inputStream, long lengthOfContent, int compressionType, int width, int height, RowIndex.Builder rowIndex) throws IOException {
+        switch (compressionType) {
+            case 0:
+                NoCompressionReader.scanRowStarts(lengthOfContent, width, height, rowIndex);
+                return true;
+            case 1:
+                RLECompressionReader.scanRowStarts(inputStream, width, height, rowIndex);
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Wie oben, der Reader liest aber ab der Stelle des Zeilenindex-Eintrags {@param entry} im
+     * Datensegment der Datei {@param readWriteFile}. Der Eingabestream der Datei wird dafür geöffnet
+     * und muss vom Aufrufer wieder freigegeben werden.
+     */
+    static CompressionReader compressionReaderForRowIndexEntry(ReadWriteFile readWriteFile, int compressionType, RowIndex.Entry entry) throws IOException {
+        long position = OFFSET_DATA + entry.getBitPosition() / 8;
+
+        switch (compressionType) {
+            case 0:
+                return new NoCompressionReader(readWriteFile.inputStream(position));
+            case 1:
+                return RLECompressionReader.resumeAt(readWriteFile.inputStream(position), entry);
+            case 2:
+                // Der Huffman-Baum steht am Beginn des Datensegments,
+                // er ist klein und wird daher jedes Mal neu gelesen.
+                Node huffmanTree = HuffmanTree.constructFromStream(new BitInputStream(readWriteFile.inputStream(OFFSET_DATA)));
+                readWriteFile.releaseInputStream();
+
+                return HuffmanCompressionReader.resumeAt(readWriteFile.inputStream(position), huffmanTree, (int) (entry.getBitPosition() % 8));
+        }
+
+        throw new PropraException("Der ausgewählte Compression-Type (Propra) " + compressionType + " wird nicht unterstützt.");
+    }
+
+    /**
+     * Gibt für das Attribut {@param compressionType} einer Propra-Datei
+     * den entsprechenden Aufzählungswert des Enums CompressionType zurück.
+     */
+    static CompressionType propraCompressionTypeToCompressionType(int compressionType) {
+        switch (compressionType) {
+            case 0:
+                return CompressionType.NO_COMPRESSION;
+            case 1:
+                return CompressionType.RLE;
+            case 2:
+                return CompressionType.HUFFMAN;
         }
 
         throw new PropraException("Der ausgewählte Compression-Type (Propra) " + compressionType + " wird nicht unterstützt.");
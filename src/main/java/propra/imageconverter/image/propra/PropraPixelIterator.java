@@ -1,30 +1,16 @@
 package propra.imageconverter.image.propra;
 
 import propra.imageconverter.image.ImageReader;
-import propra.imageconverter.image.compression.iterator.PeekAndConvertPixelIterator;
+import propra.imageconverter.image.compression.iterator.ConvertingPixelIterator;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
-import propra.imageconverter.util.ArrayUtils;
 
-import java.io.IOException;
-import java.util.Arrays;
-
-public final class PropraPixelIterator extends PeekAndConvertPixelIterator {
-	private PropraPixelIterator(ImageReader imageReader) throws IOException {
-		super(imageReader);
+public final class PropraPixelIterator extends ConvertingPixelIterator {
+	private PropraPixelIterator(ImageReader imageReader) {
+		// Das Propra-Format erwartet die Bildpunkte im Format GBR
+		super(imageReader, PropraFileFormat.CHANNEL_ORDER);
 	}
 
-	static PixelIterator forImageReader(ImageReader imageReader) throws IOException {
+	static PixelIterator forImageReader(ImageReader imageReader) {
 		return new PropraPixelIterator(imageReader);
 	}
-
-	@Override
-	protected byte[] convertPixel(byte[] inputPixel) {
-		byte[] outputPixel = Arrays.copyOf(inputPixel, 3);
-
-		// Konvertierung von RGB in GBR
-		ArrayUtils.swap(outputPixel, 1, 2);
-		ArrayUtils.swap(outputPixel, 0, 2);
-
-		return outputPixel;
-	}
 }
@@ -3,12 +3,18 @@ package propra.imageconverter.image.propra;
 import propra.PropraException;
 import propra.imageconverter.binary.LittleEndianInputStream;
 import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.ChannelOrder;
+import propra.imageconverter.image.DecodingMode;
 import propra.imageconverter.image.ImageReader;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionReader;
-import propra.imageconverter.util.ArrayUtils;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.compression.huffman.ParallelHuffmanCompressionReader;
+import propra.imageconverter.image.compression.rle.RLECompressionReader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 import static propra.imageconverter.image.propra.PropraFileFormat.MAGIC_HEADER;
@@ -27,8 +33,26 @@ public final class PropraReader implements ImageReader {
     private final long numberOfPixels;
     private final int compressionType;
 
+    private final ChecksumVerification checksumVerification;
+    private final DecodingMode decodingMode;
+    private final long lengthOfContent;
+    private final long expectedChecksum;
+
     private CompressionReader compression;
 
+    /**
+     * Eingabestream des Datensegments, der die Prüfsumme beim Dekodieren
+     * mitberechnet; nur solange die Prüfsumme noch nicht überprüft wurde, sonst null.
+     */
+    private ChecksumInputStream checksumInputStream = null;
+
+    /**
+     * Gibt an, ob die Prüfsumme des Datensegments bereits erfolgreich überprüft wurde. Ein Sprung
+     * über den Zeilenindex dekodiert das Datensegment nicht vollständig; vorher muss die Prüfsumme
+     * daher in einem eigenen Durchlauf überprüft werden, sofern das noch nicht geschehen ist.
+     */
+    private boolean checksumVerified;
+
     /**
      * Die aktuelle Position des Pixel-Zeigers.
      */
@@ -39,12 +63,22 @@ public final class PropraReader implements ImageReader {
             int width,
             int height,
             long numberOfPixels,
-            int compressionType) throws IOException {
+            int compressionType,
+            ChecksumVerification checksumVerification,
+            DecodingMode decodingMode,
+            long lengthOfContent,
+            long expectedChecksum,
+            boolean checksumVerified) throws IOException {
         this.readWriteFile = readWriteFile;
         this.width = width;
         this.height = height;
         this.numberOfPixels = numberOfPixels;
         this.compressionType = compressionType;
+        this.checksumVerification = checksumVerification;
+        this.decodingMode = decodingMode;
+        this.lengthOfContent = lengthOfContent;
+        this.expectedChecksum = expectedChecksum;
+        this.checksumVerified = checksumVerified;
 
         reset();
     }
@@ -59,10 +93,35 @@ public final class PropraReader implements ImageReader {
 
     /**
      * Hiermit erstellen wir eine Instanz des PropraReaders. Danach können wir
-     * die Bilddaten pixelweise ablesen.
+     * die Bilddaten pixelweise ablesen. Die Prüfsumme wird dabei vorab überprüft
+     * (siehe {@link ChecksumVerification#STRICT}).
      */
     public static PropraReader create(
             ReadWriteFile readWriteFile
+    ) throws IOException {
+        return create(readWriteFile, ChecksumVerification.STRICT);
+    }
+
+    /**
+     * Wie oben, die Prüfsumme wird allerdings entsprechend {@param checksumVerification}
+     * überprüft.
+     */
+    public static PropraReader create(
+            ReadWriteFile readWriteFile,
+            ChecksumVerification checksumVerification
+    ) throws IOException {
+        return create(readWriteFile, checksumVerification, DecodingMode.SERIAL);
+    }
+
+    /**
+     * Wie oben, Huffman-kodierte Bilddaten werden im Dekodiermodus {@param decodingMode}
+     * PARALLEL aber parallel dekodiert (siehe {@link ParallelHuffmanCompressionReader}).
+     * Die anderen Kompressionen dekodiert dafür der {@link propra.imageconverter.image.ParallelImageReader}.
+     */
+    public static PropraReader create(
+            ReadWriteFile readWriteFile,
+            ChecksumVerification checksumVerification,
+            DecodingMode decodingMode
     ) throws IOException {
         LittleEndianInputStream inputStream = new LittleEndianInputStream(readWriteFile.inputStream(0));
 
@@ -93,29 +152,34 @@ public final class PropraReader implements ImageReader {
         // Prüfsumme
         long checksum = inputStream.readUInt();
 
-        // Hier lesen wir die kompletten Daten ein, um die Prüfsumme
-        // berechnen zu können. Danach (siehe unten) setzen wir den Datei-Cursor
-        // zurück, um für den Benutzer der Klasse, die Daten erneut lesbar zu machen.
-        //
-        // Das ist zwar für die Geschwindigkeit ineffizient, aber hier ist die
-        // Verständlichkeit des Codes und die Arbeitsspeichereffizienz wichtiger als die
-        // Geschwindigkeit des Codes.
-        long calculatedChecksum = Checksum.calcStreamingChecksum(lengthOfContent, inputStream::readUByte);
-        require(checksum == calculatedChecksum, "Die berechnete Prüfsumme der Daten stimmt nicht mit der in der Datei gespeicherten Prüfsumme überein.");
-
-        // Erstes Byte nach dem Datensegment sollte EOF sein.
-        int firstByteAfterDataSegment = inputStream.read();
-        require(firstByteAfterDataSegment == -1, "Die tatsächlichen Bilddaten sind länger, als im Header angegeben.");
-
-        // Wie oben beschrieben setzen wir den File-Cursor
-        // auf das Datensegment um dem Benutzer der Klasse
-        // das Lesen der Bilddaten zu ermöglichen
+        // Der Header ist gelesen, die Bilddaten liest der
+        // Benutzer der Klasse über einen neuen Eingabestream.
         readWriteFile.releaseInputStream();
 
+        // Die Länge des Datensegments können wir ohne
+        // weiteres Lesen anhand der Dateilänge überprüfen.
+        long actualLengthOfContent = readWriteFile.length() - PropraFileFormat.OFFSET_DATA;
+        require(actualLengthOfContent <= lengthOfContent, "Die tatsächlichen Bilddaten sind länger, als im Header angegeben.");
+        require(actualLengthOfContent >= lengthOfContent, "Die tatsächlichen Bilddaten sind kürzer, als im Header angegeben.");
+
+        if (checksumVerification == ChecksumVerification.STRICT) {
+            // Hier lesen wir die kompletten Daten ein, um die Prüfsumme
+            // berechnen zu können. Der Benutzer der Klasse öffnet danach
+            // einen neuen Eingabestream, um die Daten erneut zu lesen.
+            //
+            // Die Daten werden dabei unabhängig vom Eingabemodus aus einer Abbildung
+            // der Datei gelesen und die Prüfsumme parallel berechnet (siehe Checksum.calcChecksum).
+            long calculatedChecksum = Checksum.calcChecksum(lengthOfContent, readWriteFile.mappedInputStream(PropraFileFormat.OFFSET_DATA));
+            require(checksum == calculatedChecksum, "Die berechnete Prüfsumme der Daten stimmt nicht mit der in der Datei gespeicherten Prüfsumme überein.");
+
+            readWriteFile.releaseInputStream();
+        }
+        // Ansonsten wird die Prüfsumme erst beim Dekodieren überprüft (siehe readRow).
+
         // Anzahl der Bildpunkte
         long numberOfPixels = ((long) width) * ((long) height);
 
-        return new PropraReader(readWriteFile, width, height, numberOfPixels, compressionType);
+        return new PropraReader(readWriteFile, width, height, numberOfPixels, compressionType, checksumVerification, decodingMode, lengthOfContent, checksum, checksumVerification == ChecksumVerification.STRICT);
     }
 
     @Override
@@ -129,18 +193,65 @@ public final class PropraReader implements ImageReader {
     }
 
     @Override
-    public byte[] readNextPixel() throws IOException {
-        byte[] nextPixel = compression.readNextPixel();
+    public ChannelOrder getChannelOrder() {
+        return PropraFileFormat.CHANNEL_ORDER;
+    }
 
-        // Das Propra-Format speichert die Pixel im GBR-Format
-        // wir wollen unseren Benutzern aber die Daten komfortabel
-        // im RGB-Format zurückgeben.
-        ArrayUtils.swap(nextPixel, 0, 2);
-        ArrayUtils.swap(nextPixel, 1, 2);
+    @Override
+    public CompressionType getCompressionType() {
+        return PropraFileFormat.propraCompressionTypeToCompressionType(compressionType);
+    }
+
+    @Override
+    public void readRow(byte[] targetRow, int offset) throws IOException {
+        require(currentPosInContent + width <= numberOfPixels, "Es wurden bereits alle Bildzeilen gelesen.");
+
+        // Das Propra-Format speichert die Pixel im GBR-Format; wir
+        // liefern sie unverändert, eine Umwandlung findet erst beim
+        // Schreiben statt (siehe ChannelOrder).
+        compression.readPixels(targetRow, offset, width);
+
+        currentPosInContent += width;
+
+        if (checksumInputStream != null && currentPosInContent == numberOfPixels)
+            verifyChecksumAfterDecoding();
+    }
+
+    /**
+     * Überprüft nach dem Lesen der letzten Bildzeile die beim Dekodieren
+     * berechnete Prüfsumme. Bytes des Datensegments, die das Dekodieren nicht
+     * benötigt hat, werden dafür noch gelesen.
+     */
+    private void verifyChecksumAfterDecoding() throws IOException {
+        verifyChecksum(checksumInputStream);
+    }
+
+    /**
+     * Überprüft die von {@param checksumInputStream} über das Datensegment berechnete Prüfsumme;
+     * noch nicht gelesene Bytes des Datensegments werden dafür gelesen.
+     */
+    private void verifyChecksum(ChecksumInputStream checksumInputStream) throws IOException {
+        checksumInputStream.skip(lengthOfContent - checksumInputStream.getNumberOfBytes());
+
+        require(checksumInputStream.getNumberOfBytes() == lengthOfContent, "Das Dateiende wurde vorzeitig erreicht.");
+        require(checksumInputStream.getChecksum() == expectedChecksum, "Die berechnete Prüfsumme der Daten stimmt nicht mit der in der Datei gespeicherten Prüfsumme überein.");
 
-        currentPosInContent += 1;
+        checksumVerified = true;
+    }
+
+    /**
+     * Überprüft die Prüfsumme des Datensegments in einem eigenen Durchlauf, ohne zu dekodieren.
+     * Das Datensegment wird dafür aus einer Abbildung der Datei gelesen und die Prüfsumme
+     * parallel berechnet (siehe Checksum.calcChecksum). Der Aufrufer muss den aktuellen
+     * Eingabestream vorher freigeben.
+     */
+    private void verifyChecksumOfDataSegment() throws IOException {
+        long calculatedChecksum = Checksum.calcChecksum(lengthOfContent, readWriteFile.mappedInputStream(PropraFileFormat.OFFSET_DATA));
+        require(calculatedChecksum == expectedChecksum, "Die berechnete Prüfsumme der Daten stimmt nicht mit der in der Datei gespeicherten Prüfsumme überein.");
+
+        readWriteFile.releaseInputStream();
 
-        return nextPixel;
+        checksumVerified = true;
     }
 
     @Override
@@ -154,10 +265,126 @@ public final class PropraReader implements ImageReader {
         readWriteFile.releaseInputStream();
         InputStream inputStreamData = readWriteFile.inputStream(PropraFileFormat.OFFSET_DATA);
 
-        compression = PropraFileFormat.compressionReaderForCompressionType(inputStreamData, compressionType);
+        // Eine bereits überprüfte Prüfsumme muss nicht erneut berechnet werden.
+        if (!checksumVerified) {
+            checksumInputStream = new ChecksumInputStream(inputStreamData);
+            inputStreamData = checksumInputStream;
+        } else {
+            checksumInputStream = null;
+        }
+
+        compression = PropraFileFormat.compressionReaderForCompressionType(inputStreamData, compressionType, decodingMode);
         currentPosInContent = 0;
     }
 
+    @Override
+    public void seekToRow(int row, RowIndex rowIndex) throws IOException {
+        require(row >= 0 && row < height, "Die Bildzeile " + row + " liegt außerhalb des Bilds.");
+
+        if (rowIndex == null) {
+            reset();
+        } else {
+            require(rowIndex.matches(width, height, lengthOfContent), "Der Zeilenindex gehört nicht zu dieser Bilddatei.");
+
+            RowIndex.Entry entry = rowIndex.entryForRow(row);
+
+            readWriteFile.releaseInputStream();
+
+            // Die Prüfsumme lässt sich nur über das vollständige Datensegment
+            // berechnen, das ab dem Eintrag aber nicht mehr gelesen wird.
+            if (!checksumVerified)
+                verifyChecksumOfDataSegment();
+
+            compression = PropraFileFormat.compressionReaderForRowIndexEntry(readWriteFile, compressionType, entry);
+            currentPosInContent = (long) entry.getRow() * width;
+            checksumInputStream = null;
+        }
+
+        // Die Bildzeilen bis zur gewünschten Bildzeile dekodieren wir.
+        byte[] skippedRow = new byte[width * 3];
+        while (currentPosInContent < (long) row * width) {
+            readRow(skippedRow, 0);
+        }
+    }
+
+    @Override
+    public RowIndex scanRowIndex(int interval) throws IOException {
+        RowIndex.Builder rowIndex = RowIndex.Builder.everyNthRow(interval);
+
+        readWriteFile.releaseInputStream();
+        InputStream inputStreamData = readWriteFile.inputStream(PropraFileFormat.OFFSET_DATA);
+
+        // Der Durchlauf liest RLE-kodierte Daten ohnehin vollständig, daher berechnen wir die
+        // Prüfsumme dabei mit. Unkomprimierte Daten liest er dagegen nicht (siehe
+        // NoCompressionReader.scanRowStarts); ihre Prüfsumme wird in einem eigenen,
+        // parallelen Durchlauf überprüft.
+        ChecksumInputStream scanChecksumInputStream = null;
+        if (!checksumVerified && compressionType != 0) {
+            scanChecksumInputStream = new ChecksumInputStream(inputStreamData);
+            inputStreamData = scanChecksumInputStream;
+        }
+
+        boolean scanned = PropraFileFormat.scanRowStarts(inputStreamData, lengthOfContent, compressionType, width, height, rowIndex);
+
+        if (scanned && scanChecksumInputStream != null) {
+            verifyChecksum(scanChecksumInputStream);
+        } else if (scanned && !checksumVerified) {
+            readWriteFile.releaseInputStream();
+            verifyChecksumOfDataSegment();
+        }
+
+        reset();
+
+        return scanned ? rowIndex.build(width, height, lengthOfContent) : null;
+    }
+
+    @Override
+    public long transferEncodedData(ReadWriteFile target, long targetPosition) throws IOException {
+        readWriteFile.releaseInputStream();
+
+        // Die kopierten Daten werden nicht dekodiert, daher
+        // überprüfen wir die Prüfsumme vorher in einem eigenen Durchlauf.
+        if (!checksumVerified)
+            verifyChecksumOfDataSegment();
+
+        readWriteFile.transferTo(PropraFileFormat.OFFSET_DATA, lengthOfContent, target, targetPosition);
+
+        reset();
+
+        return lengthOfContent;
+    }
+
+    @Override
+    public long transcodeEncodedData(OutputStream outputStream, ChannelOrder targetOrder) throws IOException {
+        if (compressionType != 1)
+            return -1;
+
+        readWriteFile.releaseInputStream();
+        InputStream inputStreamData = readWriteFile.inputStream(PropraFileFormat.OFFSET_DATA);
+
+        ChecksumInputStream transcodeChecksumInputStream = null;
+        if (!checksumVerified) {
+            transcodeChecksumInputStream = new ChecksumInputStream(inputStreamData);
+            inputStreamData = transcodeChecksumInputStream;
+        }
+
+        long writtenBytes = RLECompressionReader.transcode(inputStreamData, outputStream, width, height, PropraFileFormat.CHANNEL_ORDER, targetOrder);
+
+        if (writtenBytes >= 0 && transcodeChecksumInputStream != null)
+            verifyChecksum(transcodeChecksumInputStream);
+
+        reset();
+
+        return writtenBytes;
+    }
+
+    @Override
+    public PropraReader reopen() throws IOException {
+        // Der Header wurde bereits überprüft, daher
+        // muss er nicht erneut gelesen werden.
+        return new PropraReader(readWriteFile.reopen(), width, height, numberOfPixels, compressionType, checksumVerification, decodingMode, lengthOfContent, expectedChecksum, checksumVerified);
+    }
+
     @Override
     public void close() throws Exception {
         readWriteFile.releaseInputStream();
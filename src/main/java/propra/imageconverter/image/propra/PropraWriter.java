@@ -1,15 +1,16 @@
 package propra.imageconverter.image.propra;
 
-import propra.imageconverter.binary.LittleEndianInputStream;
 import propra.imageconverter.binary.LittleEndianOutputStream;
 import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.ChannelOrder;
 import propra.imageconverter.image.ImageReader;
 import propra.imageconverter.image.ImageWriter;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.CompressionWriter;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
+import propra.imageconverter.image.compression.selector.AutoSelectionMode;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 
@@ -21,9 +22,19 @@ import static propra.imageconverter.util.RequireUtils.require;
  */
 public final class PropraWriter implements ImageWriter {
     private final CompressionType compressionType;
+    private final AutoSelectionMode autoSelectionMode;
 
     public PropraWriter(CompressionType compressionType) {
+        this(compressionType, AutoSelectionMode.ESTIMATE);
+    }
+
+    /**
+     * Erstellt einen PropraWriter, der für den Kompressionstyp AUTO
+     * die Kompression entsprechend {@param autoSelectionMode} auswählt.
+     */
+    public PropraWriter(CompressionType compressionType, AutoSelectionMode autoSelectionMode) {
         this.compressionType = compressionType;
+        this.autoSelectionMode = autoSelectionMode;
     }
 
     /**
@@ -36,9 +47,10 @@ public final class PropraWriter implements ImageWriter {
     }
 
     @Override
-    public void write(
+    public RowIndex write(
             ImageReader imageReader,
-            ReadWriteFile outputFile
+            ReadWriteFile outputFile,
+            RowIndex.Builder rowIndex
     ) throws IOException {
         require(PropraFileFormat
                 .supportedCompressionTypes
@@ -48,15 +60,75 @@ public final class PropraWriter implements ImageWriter {
                 PropraPixelIterator.forImageReader(imageReader);
 
         CompressionWriter compression
-                = compressionType.getCompressionWriterWithAuto(PropraFileFormat.supportedCompressionTypes, pixelIterator);
+                = compressionType.getCompressionWriterWithAuto(PropraFileFormat.supportedCompressionTypes, pixelIterator, autoSelectionMode);
+
+        writeHeader(imageReader, outputFile, compression.getCompressionType());
+
+        long lengthOfContent = compression.write(pixelIterator, outputFile.outputStream(PropraFileFormat.OFFSET_DATA), rowIndex);
+
+        outputFile.releaseOutputStream();
+
+        long checksum = calcChecksumOfDataSegment(outputFile, lengthOfContent);
+
+        writeLengthAndChecksum(outputFile, lengthOfContent, checksum);
+
+        return rowIndex.build(imageReader.getWidth(), imageReader.getHeight(), lengthOfContent);
+    }
+
+    @Override
+    public boolean transcode(
+            ImageReader imageReader,
+            ReadWriteFile outputFile
+    ) throws IOException {
+        if (compressionType != imageReader.getCompressionType()
+                || !PropraFileFormat.supportedCompressionTypes.contains(compressionType))
+            return false;
+
+        writeHeader(imageReader, outputFile, compressionType);
+
+        long lengthOfContent;
+
+        long transferredBytes = imageReader.getChannelOrder() == PropraFileFormat.CHANNEL_ORDER
+                ? imageReader.transferEncodedData(outputFile, PropraFileFormat.OFFSET_DATA)
+                : -1;
 
+        if (transferredBytes >= 0) {
+            // Die Daten wurden ohne den Umweg über einen Stream kopiert.
+            lengthOfContent = transferredBytes;
+        } else {
+            lengthOfContent = imageReader.transcodeEncodedData(outputFile.outputStream(PropraFileFormat.OFFSET_DATA), PropraFileFormat.CHANNEL_ORDER);
+
+            outputFile.releaseOutputStream();
+
+            if (lengthOfContent < 0)
+                return false;
+        }
+
+        long checksum = calcChecksumOfDataSegment(outputFile, lengthOfContent);
+
+        writeLengthAndChecksum(outputFile, lengthOfContent, checksum);
+
+        return true;
+    }
+
+    @Override
+    public ChannelOrder getChannelOrder() {
+        return PropraFileFormat.CHANNEL_ORDER;
+    }
+
+    /**
+     * Schreibt den Header für die Bilddaten von {@param imageReader} mit der Kompression
+     * {@param compressionType}. Länge und Prüfsumme des Datensegments sind noch nicht bekannt
+     * und werden später mit writeLengthAndChecksum geschrieben.
+     */
+    private static void writeHeader(ImageReader imageReader, ReadWriteFile outputFile, CompressionType compressionType) throws IOException {
         LittleEndianOutputStream outputStream = new LittleEndianOutputStream(outputFile.outputStream(0));
 
         outputStream.writeFully(MAGIC_HEADER); // Formatkennung
         outputStream.writeUShort(imageReader.getWidth()); // Bildbreite
         outputStream.writeUShort(imageReader.getHeight()); // Bildhöhe
         outputStream.writeUByte(24); // Bits pro Bildpunkt (=24)
-        outputStream.writeUByte(PropraFileFormat.compressionTypeToPropraCompressionType(compression.getCompressionType())); // Kompressionstyp (0=unkomprimiert)
+        outputStream.writeUByte(PropraFileFormat.compressionTypeToPropraCompressionType(compressionType)); // Kompressionstyp (0=unkomprimiert)
 
         // Wir kennen die Datenlänge noch nicht,
         // da die Kompression aktiv sein könnte,
@@ -64,37 +136,38 @@ public final class PropraWriter implements ImageWriter {
         outputStream.writeULong(BigInteger.ZERO); // Länge des Datensegments in Bytes (vorzeichenlos)
 
         // Wir wissen die Prüfsumme zu diesem Zeitpunkt noch nicht,
-        // wir schreiben zuerst alle Daten und berechnen die Prüfsumme dann.
+        // sie wird nach dem Schreiben der Daten berechnet.
         // Hier wird erst mal eine 0 geschrieben
         outputStream.writeUInt(0); // Prüfsumme über die Bytes des Datensegments (vorzeichenlos)
 
         outputFile.releaseOutputStream();
+    }
 
-        BufferedOutputStream outputStreamData
-                = outputFile.outputStream(PropraFileFormat.OFFSET_DATA);
-
-        long lengthOfContent = compression.write(pixelIterator, outputStreamData);
+    /**
+     * Berechnet die Prüfsumme über das fertig geschriebene Datensegment der Länge {@param lengthOfContent}.
+     * Das Datensegment wird dafür aus einer Abbildung der Datei gelesen, sodass die Prüfsumme für Abschnitte
+     * parallel berechnet wird (siehe Checksum.calcChecksum). Beim Schreiben selbst, das an den Kodierer
+     * gebunden ist, würde die Prüfsumme dagegen in einem einzigen Thread berechnet.
+     */
+    private static long calcChecksumOfDataSegment(ReadWriteFile outputFile, long lengthOfContent) throws IOException {
+        require(outputFile.length() - PropraFileFormat.OFFSET_DATA == lengthOfContent, "Die Anzahl der geschriebenen Bytes stimmt nicht mit der Länge des Datensegments überein.");
 
-        outputFile.releaseOutputStream();
+        long checksum = Checksum.calcChecksum(lengthOfContent, outputFile.mappedInputStream(PropraFileFormat.OFFSET_DATA));
 
-        // Alle Daten wurden geschrieben, daher müssen wir nun nochmal die
-        // Prüfsumme berechnen.
-        // Wir setzenden FilePointer des darunterliegenden Ausgabestreams
-        // an den Anfang des Datensegments
-        // Und dann berechnen wir die Prüfsumme der
-        // geschriebenen Daten
-        //
-        // Es wäre auch möglich gewesen, die Prüfsumme während des Schreibens zu berechnen,
-        // im Sinne der Übersichtlichtkeit und Verständlichkeit des Programms wurde das aber
-        // nicht gemacht.
-        LittleEndianInputStream inputStream = new LittleEndianInputStream(outputFile.inputStream(PropraFileFormat.OFFSET_DATA));
-        long checksum = Checksum.calcStreamingChecksum(lengthOfContent, inputStream::readUByte);
         outputFile.releaseInputStream();
 
+        return checksum;
+    }
+
+    /**
+     * Trägt die Länge {@param lengthOfContent} und die Prüfsumme {@param checksum}
+     * des geschriebenen Datensegments in den Header ein.
+     */
+    private static void writeLengthAndChecksum(ReadWriteFile outputFile, long lengthOfContent, long checksum) throws IOException {
         // Wir setzen den Cursor des darunterliegenden Ausgabestreams
         // an die Position der Datensegmentlänge.
         // Wir schreiben die Datensegmentlänge und die Prüfsumme und schließen den Ausgabestream
-        outputStream = new LittleEndianOutputStream(outputFile.outputStream(PropraFileFormat.OFFSET_DATA_SEGMENT_LENGTH));
+        LittleEndianOutputStream outputStream = new LittleEndianOutputStream(outputFile.outputStream(PropraFileFormat.OFFSET_DATA_SEGMENT_LENGTH));
         outputStream.writeULong(BigInteger.valueOf(lengthOfContent));
         outputStream.writeUInt(checksum);
         outputFile.releaseOutputStream();
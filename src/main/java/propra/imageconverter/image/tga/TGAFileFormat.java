@@ -1,11 +1,15 @@
 package propra.imageconverter.image.tga;
 
 import propra.PropraException;
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.ChannelOrder;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionReader;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.rle.RLECompressionReader;
 import propra.imageconverter.image.compression.uncompressed.NoCompressionReader;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
@@ -17,6 +21,11 @@ final class TGAFileFormat {
      */
     final static long OFFSET_DATA = 18;
 
+    /**
+     * Die Reihenfolge der Farbkanäle eines Bildpunkts im TGA-Format.
+     */
+    final static ChannelOrder CHANNEL_ORDER = ChannelOrder.BGR;
+
     final static List<CompressionType> supportedCompressionTypes = Arrays.asList(
             CompressionType.NO_COMPRESSION,
             CompressionType.RLE,
@@ -42,6 +51,60 @@ final class TGAFileFormat {
         throw new PropraException("Der ausgewählte Picture-Type (TGA) " + pictureType + " wird nicht unterstützt.");
     }
 
+    /**
+     * Meldet dem Zeilenindex {@param rowIndex} den Beginn jeder Bildzeile der Daten {@param inputStream}
+     * für das Attribut {@param pictureType} eines Bilds der Breite {@param width} und der Höhe {@param height}.
+     * Gibt false zurück, falls sich die Zeilengrenzen nicht ohne Dekodieren bestimmen lassen.
+     * <p>
+     * Unkomprimierte Daten werden dabei nicht gelesen, sondern nur ihre Länge {@param lengthOfContent}
+     * überprüft (siehe NoCompressionReader.scanRowStarts).
+     */
+    static boolean scanRowStarts(InputStream inputStream, long lengthOfContent, int pictureType, int width, int height, RowIndex.Builder rowIndex) throws IOException {
+        switch (pictureType) {
+            case 2:
+                NoCompressionReader.scanRowStarts(lengthOfContent, width, height, rowIndex);
+                return true;
+            case 10:
+                RLECompressionReader.scanRowStarts(inputStream, width, height, rowIndex);
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Wie oben, der Reader liest aber ab der Stelle des Zeilenindex-Eintrags {@param entry} im
+     * Datensegment der Datei {@param readWriteFile}. Der Eingabestream der Datei wird dafür geöffnet
+     * und muss vom Aufrufer wieder freigegeben werden.
+     */
+    static CompressionReader compressionReaderForRowIndexEntry(ReadWriteFile readWriteFile, int pictureType, RowIndex.Entry entry) throws IOException {
+        InputStream inputStream = readWriteFile.inputStream(OFFSET_DATA + entry.getBitPosition() / 8);
+
+        switch (pictureType) {
+            case 2:
+                return new NoCompressionReader(inputStream);
+            case 10:
+                return RLECompressionReader.resumeAt(inputStream, entry);
+        }
+
+        throw new PropraException("Der ausgewählte Picture-Type (TGA) " + pictureType + " wird nicht unterstützt.");
+    }
+
+    /**
+     * Gibt für das Attribut {@param pictureType} einer TGA-Datei
+     * den entsprechenden Aufzählungswert des Enums CompressionType zurück.
+     */
+    static CompressionType pictureTypeToCompressionType(int pictureType) {
+        switch (pictureType) {
+            case 2:
+                return CompressionType.NO_COMPRESSION;
+            case 10:
+                return CompressionType.RLE;
+        }
+
+        throw new PropraException("Der ausgewählte Picture-Type (TGA) " + pictureType + " wird nicht unterstützt.");
+    }
+
     /**
      * Gibt für den aktuellen Aufzählungswert, die
      * interne Repräsentation (=Kompressionstyp) im TGA-Format zurück.
@@ -1,29 +1,16 @@
 package propra.imageconverter.image.tga;
 
 import propra.imageconverter.image.ImageReader;
-import propra.imageconverter.image.compression.iterator.PeekAndConvertPixelIterator;
+import propra.imageconverter.image.compression.iterator.ConvertingPixelIterator;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
-import propra.imageconverter.util.ArrayUtils;
 
-import java.io.IOException;
-import java.util.Arrays;
-
-public final class TGAPixelIterator extends PeekAndConvertPixelIterator {
-	private TGAPixelIterator(ImageReader imageReader) throws IOException {
-		super(imageReader);
+public final class TGAPixelIterator extends ConvertingPixelIterator {
+	private TGAPixelIterator(ImageReader imageReader) {
+		// Das TGA-Format erwartet die Bildpunkte im Format BGR
+		super(imageReader, TGAFileFormat.CHANNEL_ORDER);
 	}
 
-	public static PixelIterator forImageReader(ImageReader imageReader) throws IOException {
+	public static PixelIterator forImageReader(ImageReader imageReader) {
 		return new TGAPixelIterator(imageReader);
 	}
-
-	@Override
-	protected byte[] convertPixel(byte[] inputPixel) {
-		byte[] outputPixel = Arrays.copyOf(inputPixel, 3);
-
-		// Konvertierung von RGB in BGR
-		ArrayUtils.swap(outputPixel, 0, 2);
-
-		return outputPixel;
-	}
 }
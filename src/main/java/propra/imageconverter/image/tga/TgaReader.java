@@ -2,12 +2,16 @@ package propra.imageconverter.image.tga;
 
 import propra.imageconverter.binary.LittleEndianInputStream;
 import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.ChannelOrder;
 import propra.imageconverter.image.ImageReader;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionReader;
-import propra.imageconverter.util.ArrayUtils;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.compression.rle.RLECompressionReader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import static propra.imageconverter.util.RequireUtils.require;
 
@@ -113,18 +117,26 @@ public final class TgaReader implements ImageReader {
     }
 
     @Override
-    public byte[] readNextPixel() throws IOException {
-        byte[] nextPixel = compression.readNextPixel();
+    public ChannelOrder getChannelOrder() {
+        return TGAFileFormat.CHANNEL_ORDER;
+    }
 
-        // Wir lesen im Format BGR, wollen aber
-        // dem Aufrufer das Format RGB liefern.
-        ArrayUtils.swap(nextPixel, 0, 2);
+    @Override
+    public CompressionType getCompressionType() {
+        return TGAFileFormat.pictureTypeToCompressionType(pictureType);
+    }
 
-        // Aktuelle Position (in Bildpunkten) in der Datei
-        // aktualisieren
-        currentPosInContent += 3;
+    @Override
+    public void readRow(byte[] targetRow, int offset) throws IOException {
+        require(currentPosInContent + width * 3L <= numberOfPixels, "Es wurden bereits alle Bildzeilen gelesen.");
 
-        return nextPixel;
+        // Die Bildpunkte werden im Format BGR der Datei geliefert,
+        // eine Umwandlung findet erst beim Schreiben statt (siehe ChannelOrder).
+        compression.readPixels(targetRow, offset, width);
+
+        // Aktuelle Position (in Bytes) in der Datei
+        // aktualisieren
+        currentPosInContent += width * 3L;
     }
 
     @Override
@@ -144,6 +156,81 @@ public final class TgaReader implements ImageReader {
         currentPosInContent = 0;
     }
 
+    @Override
+    public void seekToRow(int row, RowIndex rowIndex) throws IOException {
+        require(row >= 0 && row < height, "Die Bildzeile " + row + " liegt außerhalb des Bilds.");
+
+        if (rowIndex == null) {
+            reset();
+        } else {
+            require(rowIndex.matches(width, height, readWriteFile.length() - TGAFileFormat.OFFSET_DATA), "Der Zeilenindex gehört nicht zu dieser Bilddatei.");
+
+            RowIndex.Entry entry = rowIndex.entryForRow(row);
+
+            readWriteFile.releaseInputStream();
+            compression = TGAFileFormat.compressionReaderForRowIndexEntry(readWriteFile, pictureType, entry);
+            currentPosInContent = (long) entry.getRow() * width * 3L;
+        }
+
+        // Die Bildzeilen bis zur gewünschten Bildzeile dekodieren wir.
+        byte[] skippedRow = new byte[width * 3];
+        while (currentPosInContent < (long) row * width * 3L) {
+            readRow(skippedRow, 0);
+        }
+    }
+
+    @Override
+    public RowIndex scanRowIndex(int interval) throws IOException {
+        RowIndex.Builder rowIndex = RowIndex.Builder.everyNthRow(interval);
+
+        long lengthOfContent = readWriteFile.length() - TGAFileFormat.OFFSET_DATA;
+
+        readWriteFile.releaseInputStream();
+        boolean scanned = TGAFileFormat.scanRowStarts(readWriteFile.inputStream(TGAFileFormat.OFFSET_DATA), lengthOfContent, pictureType, width, height, rowIndex);
+
+        reset();
+
+        return scanned ? rowIndex.build(width, height, lengthOfContent) : null;
+    }
+
+    /**
+     * Nur für unkomprimierte Bilddaten unterstützt: Das Ende RLE-kodierter Daten
+     * steht nicht im Header, nach den Bilddaten können aber noch weitere Bereiche
+     * der TGA-Datei folgen, die nicht mitkopiert werden sollen.
+     */
+    @Override
+    public long transferEncodedData(ReadWriteFile target, long targetPosition) throws IOException {
+        if (pictureType != 2)
+            return -1;
+
+        readWriteFile.releaseInputStream();
+        readWriteFile.transferTo(TGAFileFormat.OFFSET_DATA, numberOfPixels, target, targetPosition);
+
+        reset();
+
+        return numberOfPixels;
+    }
+
+    @Override
+    public long transcodeEncodedData(OutputStream outputStream, ChannelOrder targetOrder) throws IOException {
+        if (pictureType != 10)
+            return -1;
+
+        readWriteFile.releaseInputStream();
+        long writtenBytes = RLECompressionReader.transcode(readWriteFile.inputStream(TGAFileFormat.OFFSET_DATA), outputStream, width, height, TGAFileFormat.CHANNEL_ORDER, targetOrder);
+
+        reset();
+
+        return writtenBytes;
+    }
+
+    @Override
+    public TgaReader reopen() throws IOException {
+        // Der Header wurde bereits überprüft, daher
+        // muss er nicht erneut gelesen werden.
+        return new TgaReader(readWriteFile.reopen(), width, height, numberOfPixels, pictureType);
+    }
+
     @Override
     public void close() throws Exception {
         readWriteFile.releaseInputStream();
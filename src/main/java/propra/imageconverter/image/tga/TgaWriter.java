@@ -2,14 +2,17 @@ package propra.imageconverter.image.tga;
 
 import propra.imageconverter.binary.LittleEndianOutputStream;
 import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.ChannelOrder;
 import propra.imageconverter.image.ImageReader;
 import propra.imageconverter.image.ImageWriter;
+import propra.imageconverter.image.RowIndex;
 import propra.imageconverter.image.compression.CompressionType;
 import propra.imageconverter.image.compression.CompressionWriter;
 import propra.imageconverter.image.compression.iterator.PixelIterator;
+import propra.imageconverter.image.compression.selector.AutoSelectionMode;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import static propra.imageconverter.util.RequireUtils.require;
 
@@ -18,15 +21,26 @@ import static propra.imageconverter.util.RequireUtils.require;
  */
 public final class TgaWriter implements ImageWriter {
 	private final CompressionType compressionType;
+	private final AutoSelectionMode autoSelectionMode;
 
 	public TgaWriter(CompressionType compressionType) {
-		this.compressionType = compressionType;
+		this(compressionType, AutoSelectionMode.ESTIMATE);
     }
 
+	/**
+	 * Erstellt einen TgaWriter, der für den Kompressionstyp AUTO
+	 * die Kompression entsprechend {@param autoSelectionMode} auswählt.
+	 */
+	public TgaWriter(CompressionType compressionType, AutoSelectionMode autoSelectionMode) {
+		this.compressionType = compressionType;
+		this.autoSelectionMode = autoSelectionMode;
+	}
+
 	@Override
-	public void write(
+	public RowIndex write(
 			ImageReader imageReader,
-			ReadWriteFile outputFile
+			ReadWriteFile outputFile,
+			RowIndex.Builder rowIndex
 	) throws IOException {
 		require(TGAFileFormat.supportedCompressionTypes.contains(compressionType),
 				"Die gewählte Kompressionsart wird für das TGA-Format nicht unterstützt.");
@@ -35,13 +49,58 @@ public final class TgaWriter implements ImageWriter {
 				= TGAPixelIterator.forImageReader(imageReader);
 
 		CompressionWriter compressionWriter
-				= compressionType.getCompressionWriterWithAuto(TGAFileFormat.supportedCompressionTypes, pixelIterator);
+				= compressionType.getCompressionWriterWithAuto(TGAFileFormat.supportedCompressionTypes, pixelIterator, autoSelectionMode);
 
+		writeHeader(imageReader, outputFile, compressionWriter.getCompressionType());
+
+		OutputStream outputStreamData = outputFile.outputStream(TGAFileFormat.OFFSET_DATA);
+
+		long lengthOfContent = compressionWriter.write(pixelIterator, outputStreamData, rowIndex);
+
+		outputFile.releaseOutputStream();
+
+		return rowIndex.build(imageReader.getWidth(), imageReader.getHeight(), lengthOfContent);
+    }
+
+	@Override
+	public boolean transcode(
+			ImageReader imageReader,
+			ReadWriteFile outputFile
+	) throws IOException {
+		if (compressionType != imageReader.getCompressionType()
+				|| !TGAFileFormat.supportedCompressionTypes.contains(compressionType))
+			return false;
+
+		writeHeader(imageReader, outputFile, compressionType);
+
+		if (imageReader.getChannelOrder() == TGAFileFormat.CHANNEL_ORDER
+				&& imageReader.transferEncodedData(outputFile, TGAFileFormat.OFFSET_DATA) >= 0)
+			return true;
+
+		OutputStream outputStreamData = outputFile.outputStream(TGAFileFormat.OFFSET_DATA);
+
+		long lengthOfContent = imageReader.transcodeEncodedData(outputStreamData, TGAFileFormat.CHANNEL_ORDER);
+
+		outputFile.releaseOutputStream();
+
+		return lengthOfContent >= 0;
+	}
+
+	@Override
+	public ChannelOrder getChannelOrder() {
+		return TGAFileFormat.CHANNEL_ORDER;
+	}
+
+	/**
+	 * Schreibt den Header für die Bilddaten von {@param imageReader}
+	 * mit der Kompression {@param compressionType}.
+	 */
+	private static void writeHeader(ImageReader imageReader, ReadWriteFile outputFile, CompressionType compressionType) throws IOException {
 		LittleEndianOutputStream outputStream = new LittleEndianOutputStream(outputFile.outputStream(0));
 
         outputStream.writeUByte(0); // Länge der Bild-ID
         outputStream.writeUByte(0); // Palettentyp
-		outputStream.writeUByte(TGAFileFormat.compressionTypeToTGACompressionType(compressionWriter.getCompressionType())); // Bildtyp, nur unterstützt 2 = RGB (24 Bit) unkomprimiert und 10 = RGB (24 Bit) RLE-komprimiert
+		outputStream.writeUByte(TGAFileFormat.compressionTypeToTGACompressionType(compressionType)); // Bildtyp, nur unterstützt 2 = RGB (24 Bit) unkomprimiert und 10 = RGB (24 Bit) RLE-komprimiert
 		outputStream.writeFully(new byte[]{0, 0, 0, 0, 0}); // Palletenbeginn, Palettenlänge und Palettengröße immer 0, da keine Palette vorhanden
         outputStream.writeUShort(0); // X-Koordinate für Nullpunkt, siehe parse()
 		outputStream.writeUShort(imageReader.getHeight()); // Y-Koordinate für Nullpunkt
@@ -51,10 +110,5 @@ public final class TgaWriter implements ImageWriter {
         outputStream.writeUByte(0b00100000); // Attribut-Byte, nach Vorgabe, siehe parse()
 
 		outputFile.releaseOutputStream();
-		BufferedOutputStream outputStreamData = outputFile.outputStream(TGAFileFormat.OFFSET_DATA);
-
-		compressionWriter.write(pixelIterator, outputStreamData);
-
-		outputFile.releaseOutputStream();
-    }
+	}
 }
@@ -2,15 +2,23 @@ package propra.imageconverter;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import propra.PropraException;
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.image.ExecutionMode;
+import propra.imageconverter.image.RowIndex;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
-import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ImageConverterTest {
     public static final String testOutFolder = "./testOutput/";
@@ -140,10 +148,20 @@ class ImageConverterTest {
         checkEqualFiles(testFileFolder + fileNameInput, testOutFolder + fileNameOutput);
     }
 
+    /**
+     * Jeder Erfolgsfall mit jedem Eingabemodus.
+     */
+    static Stream<Arguments> successfulTestCasesForInputModes() {
+        return successfulTestCases()
+                .stream()
+                .flatMap(testCase -> Arrays.stream(InputMode.values()).map(inputMode -> Arguments.of(testCase, inputMode)));
+    }
+
     @ParameterizedTest
-    @MethodSource("successfulTestCases")
-    @DisplayName("Erfolgsfälle werden erfolgreich konvertiert und entsprechen später wieder der Eingabe.")
-    public void allTests(TestCase testCase) throws Exception {
+    @MethodSource("successfulTestCasesForInputModes")
+    @DisplayName("Erfolgsfälle werden in jedem Eingabemodus erfolgreich konvertiert und entsprechen später wieder der Eingabe.")
+    public void allTests(TestCase testCase, InputMode inputMode) throws Exception {
+        String inputModeArg = "--input-mode=" + inputMode.name().toLowerCase().replace('_', '-');
         String testOutFolder = "." + testCase.resourcesFolder + "/" + ImageConverterTest.testOutFolder;
 
         Files.createDirectories(Paths.get(testOutFolder));
@@ -153,15 +171,15 @@ class ImageConverterTest {
         String testFileFolder = "./src/main/resources/" + testCase.resourcesFolder + "/";
 
         // Konvertierung von Eingabe in Ausgabe
-        ImageConverter.startWithArgs(new String[]{"--input=" + testFileFolder + fileNameInput, "--output=" + testOutFolder + fileNameOutput, "--compression=" + testCase.outputCompression});
+        ImageConverter.startWithArgs(new String[]{"--input=" + testFileFolder + fileNameInput, "--output=" + testOutFolder + fileNameOutput, "--compression=" + testCase.outputCompression, inputModeArg});
         // Kovertierung von Ausgabe in Eingabe
-        ImageConverter.startWithArgs(new String[]{"--input=" + testOutFolder + fileNameOutput, "--output=" + testOutFolder + fileNameInput, "--compression=" + testCase.inputCompression});
+        ImageConverter.startWithArgs(new String[]{"--input=" + testOutFolder + fileNameOutput, "--output=" + testOutFolder + fileNameInput, "--compression=" + testCase.inputCompression, inputModeArg});
 
         // Konvertierung von Eingabe in Eingabe
-        ImageConverter.startWithArgs(new String[]{"--input=" + testFileFolder + fileNameInput, "--output=" + testOutFolder + "bbb_" + fileNameInput, "--compression=" + testCase.inputCompression});
+        ImageConverter.startWithArgs(new String[]{"--input=" + testFileFolder + fileNameInput, "--output=" + testOutFolder + "bbb_" + fileNameInput, "--compression=" + testCase.inputCompression, inputModeArg});
 
         // Kovertierung von Ausgabe in Immer TGA
-        ImageConverter.startWithArgs(new String[]{"--input=" + testOutFolder + fileNameOutput, "--output=" + testOutFolder + "always_tga_" + fileNameInput + ".tga", "--compression=uncompressed"});
+        ImageConverter.startWithArgs(new String[]{"--input=" + testOutFolder + fileNameOutput, "--output=" + testOutFolder + "always_tga_" + fileNameInput + ".tga", "--compression=uncompressed", inputModeArg});
 
         checkEqualFiles(testFileFolder + fileNameInput, testOutFolder + fileNameInput);
         checkEqualFiles(testFileFolder + fileNameInput, testOutFolder + "./bbb_" + fileNameInput);
@@ -174,20 +192,66 @@ class ImageConverterTest {
     void testErrorFiles(TestCase testCase) throws IOException {
         String testOutFolder = "." + testCase.resourcesFolder + "/" + ImageConverterTest.testOutFolder;
         Files.createDirectories(Paths.get(testOutFolder));
+        Path outputFile = Paths.get(testOutFolder + testCase.outputFile);
+        Files.deleteIfExists(outputFile);
         try {
             String testFileFolder = "./src/main/resources/" + testCase.resourcesFolder + "/";
 
-            ImageConverter.startWithArgs(new String[]{"--input=" + testFileFolder + testCase.inputFile, "--output=" + testOutFolder + testCase.outputFile});
+            ImageConverter.startWithArgs(new String[]{"--input=" + testFileFolder + testCase.inputFile, "--output=" + outputFile});
         } catch (Exception e) {
             System.out.println("ERROR: " + testCase.inputFile + "\n");
             e.printStackTrace();
             System.out.println("\n" + e.getMessage() + "\n");
+
+            // Eine unvollständige Ausgabedatei wird nicht zurückgelassen.
+            assertFalse(Files.exists(outputFile));
+            return;
+        }
+
+        fail();
+    }
+
+    @ParameterizedTest
+    @MethodSource("errorTestCases")
+    @DisplayName("Fehlerfälle werden auch bei vorab überprüfter Prüfsumme erkannt.")
+    void testErrorFilesStrictChecksumVerification(TestCase testCase) throws IOException {
+        String testOutFolder = "." + testCase.resourcesFolder + "/" + ImageConverterTest.testOutFolder;
+        Files.createDirectories(Paths.get(testOutFolder));
+        try {
+            String testFileFolder = "./src/main/resources/" + testCase.resourcesFolder + "/";
+
+            ImageConverter.startWithArgs(new String[]{"--input=" + testFileFolder + testCase.inputFile, "--output=" + testOutFolder + testCase.outputFile, "--checksum-verification=strict"});
+        } catch (Exception e) {
             return;
         }
 
         fail();
     }
 
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    @DisplayName("Nach einer falschen Prüfsumme werden die teilweise geschriebene Ausgabedatei und ihr Zeilenindex gelöscht.")
+    void testWrongChecksumDeletesOutput(ExecutionMode executionMode) throws IOException {
+        String testOutFolder = ".KE1_TestBilder/" + ImageConverterTest.testOutFolder;
+        Files.createDirectories(Paths.get(testOutFolder));
+
+        // Beide Dateien stammen von einer früheren Konvertierung.
+        Path outputFile = Paths.get(testOutFolder + "wrong_checksum_" + executionMode + ".tga");
+        Path rowIndexFile = RowIndex.sidecarPathFor(outputFile);
+        Files.write(outputFile, new byte[]{1, 2, 3});
+        Files.write(rowIndexFile, new byte[]{1, 2, 3});
+
+        assertThrows(PropraException.class, () -> ImageConverter.startWithArgs(new String[]{
+                "--input=./src/main/resources/KE1_TestBilder/propra_wrong_checksum.propra",
+                "--output=" + outputFile,
+                "--row-index=16",
+                "--execution=" + executionMode.name().toLowerCase()
+        }));
+
+        assertFalse(Files.exists(outputFile));
+        assertFalse(Files.exists(rowIndexFile));
+    }
+
     static class TestCase {
         final String displayName;
         final String resourcesFolder;
@@ -4,7 +4,9 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -61,4 +63,57 @@ class BitInputStreamTest {
         assertEquals(bis.readBits(8), 0b1001_0000);
         assertEquals(bis.readBits(5), -1);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Vorauslesen und Überspringen")
+    public void testPeekAndSkipBits() throws IOException {
+        byte[] data = {
+                (byte) 0b1110_0010,
+                (byte) 0b1010_0100
+        };
+
+        BitInputStream bis
+                = new BitInputStream(new ByteArrayInputStream(data));
+
+        assertEquals(bis.readBits(3), 0b111);
+        assertEquals(bis.peekBits(10), 0b0_0010_1010_0);
+        assertEquals(bis.peekBits(4), 0b0_001);
+        bis.skipBits(4);
+        assertEquals(bis.readBits(5), 0b0_1010);
+        assertEquals(bis.peekBits(5), -1);
+        assertEquals(bis.peekBits(4), 0b0100);
+        assertEquals(bis.readBits(8), 0b0100_0000);
+        assertEquals(bis.readBits(1), -1);
+    }
+
+    @Test
+    @DisplayName("Lesen und Vorauslesen von 1 bis 57 Bits")
+    public void testReadLongBits() throws IOException {
+        Random random = new Random(7);
+        int[] numberOfBits = new int[5000];
+        long[] values = new long[numberOfBits.length];
+
+        ByteArrayOutputStream bosOutput = new ByteArrayOutputStream();
+        BitOutputStream bos = new BitOutputStream(bosOutput);
+        for (int i = 0; i < numberOfBits.length; i++) {
+            numberOfBits[i] = 1 + random.nextInt(BitInputStream.MAX_BITS);
+            values[i] = random.nextLong() & ((1L << numberOfBits[i]) - 1);
+
+            bos.writeBits(numberOfBits[i], values[i]);
+        }
+        bos.writeBits(7, 0);
+        bos.flush();
+
+        BitInputStream bis
+                = new BitInputStream(new ByteArrayInputStream(bosOutput.toByteArray()));
+
+        for (int i = 0; i < numberOfBits.length; i++) {
+            if (i % 2 == 0) {
+                assertEquals(values[i], bis.readBits(numberOfBits[i]));
+            } else {
+                assertEquals(values[i], bis.peekBits(numberOfBits[i]));
+                bis.skipBits(numberOfBits[i]);
+            }
+        }
+    }
+}
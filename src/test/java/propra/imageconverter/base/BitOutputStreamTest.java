@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
@@ -26,6 +27,9 @@ class BitOutputStreamTest {
         bos.writeBits(5, 0b0_1010);
         bos.writeBits(6, 0b10_0100);
 
+        bos.flush();
+
+
         assertArrayEquals(expectedData, bosOutput.toByteArray());
     }
 
@@ -50,6 +54,9 @@ class BitOutputStreamTest {
         bos.writeBits(5, 0b10011);
         bos.writeBits(5, 0b00001);
 
+        bos.flush();
+
+
         assertArrayEquals(expectedData, bosOutput.toByteArray());
     }
 
@@ -71,6 +78,9 @@ class BitOutputStreamTest {
         bos.writeBits(5, 0b1_0010);
         bos.writeBits(5, 0b0_1111);
 
+        bos.flush();
+
+
         assertArrayEquals(expectedData, bosOutput.toByteArray());
     }
 
@@ -94,6 +104,8 @@ class BitOutputStreamTest {
             bos.writeBits(i, 0b1111_1111_1111_1111_1111_1111_1111_1111);
             bos.writeBits(32 - i, 0);
 
+            bos.flush();
+
             System.out.print("" + i + " : ");
             printByteArray(bosOutput.toByteArray());
         }
@@ -116,6 +128,9 @@ class BitOutputStreamTest {
         bos.writeBits(9, 0b1_0111_1111);
         bos.writeBits(7, 0);
 
+        bos.flush();
+
+
         assertArrayEquals(expectedData, bosOutput.toByteArray());
     }
 
@@ -137,6 +152,9 @@ class BitOutputStreamTest {
         bos.writeBits(31, 0b01000_0000_0100_0000_0010_0000_0001_000);
         bos.writeBits(1, 0);
 
+        bos.flush();
+
+
         assertArrayEquals(expectedData, bosOutput.toByteArray());
     }
 
@@ -158,6 +176,41 @@ class BitOutputStreamTest {
         bos.writeBits(17, 0b1000_0000_0100_0000_1);
         bos.writeBits(7, 0);
 
+        bos.flush();
+
+
         assertArrayEquals(expectedData, bosOutput.toByteArray());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Anhängen eines Bitpuffers an beliebiger Bitposition")
+    public void testWriteBitBuffer() throws IOException {
+        Random random = new Random(22);
+        byte[] data = new byte[100];
+        random.nextBytes(data);
+
+        for (int offset = 0; offset < 16; offset++) {
+            for (long numberOfBits : new long[]{0, 1, 7, 8, 9, 63, 64, 65, 800}) {
+                ByteArrayOutputStream expectedOutput = new ByteArrayOutputStream();
+                BitOutputStream expected = new BitOutputStream(expectedOutput);
+                ByteArrayOutputStream actualOutput = new ByteArrayOutputStream();
+                BitOutputStream actual = new BitOutputStream(actualOutput);
+
+                expected.writeBits(offset, 0b1010_1100_0011_0101);
+                actual.writeBits(offset, 0b1010_1100_0011_0101);
+
+                for (long i = 0; i < numberOfBits; i++) {
+                    expected.writeBits(1, data[(int) (i / 8)] >>> (7 - i % 8));
+                }
+                actual.writeBitBuffer(data, numberOfBits);
+
+                expected.writeBits(8, 0);
+                actual.writeBits(8, 0);
+                expected.flush();
+                actual.flush();
+
+                assertArrayEquals(expectedOutput.toByteArray(), actualOutput.toByteArray(), offset + " + " + numberOfBits + " Bits");
+            }
+        }
+    }
+}
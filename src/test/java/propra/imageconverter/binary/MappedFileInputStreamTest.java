@@ -0,0 +1,93 @@
+package propra.imageconverter.binary;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileInputStreamTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Über Abschnittsgrenzen hinweg werden alle Bytes in der richtigen Reihenfolge gelesen.")
+    void chunkBoundaryTest() throws IOException {
+        byte[] data = new byte[10_000];
+        new Random(4).nextBytes(data);
+
+        Path path = tempDir.resolve("data.bin");
+        Files.write(path, data);
+
+        for (long chunkSize : new long[]{1, 7, 1000, 4096, data.length}) {
+            try (ReadWriteFile readWriteFile = ReadWriteFile.openMappedForReading(path, chunkSize)) {
+                // Startpositionen kurz vor, auf und nach einer Abschnittsgrenze
+                for (long start : new long[]{0, chunkSize - 1, chunkSize, chunkSize + 1, data.length - 1}) {
+                    if (start > data.length)
+                        continue;
+
+                    MappedFileInputStream inputStream = (MappedFileInputStream) readWriteFile.inputStream(start);
+                    ByteArrayOutputStream readData = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[1500];
+                    int step = 0;
+
+                    while (true) {
+                        // Abwechselnd byteweise, blockweise und als Sicht
+                        if (step % 3 == 0) {
+                            int b = inputStream.read();
+
+                            if (b < 0)
+                                break;
+
+                            readData.write(b);
+                        } else if (step % 3 == 1) {
+                            int bytes = inputStream.read(buffer, 0, buffer.length);
+
+                            if (bytes < 0)
+                                break;
+
+                            readData.write(buffer, 0, bytes);
+                        } else {
+                            ByteBuffer view = inputStream.readBuffer(buffer.length);
+
+                            if (view == null)
+                                break;
+
+                            assertTrue(view.remaining() <= chunkSize);
+
+                            while (view.hasRemaining()) {
+                                readData.write(view.get());
+                            }
+                        }
+
+                        step++;
+                    }
+
+                    String message = "Abschnitte zu " + chunkSize + " Bytes ab " + start;
+                    assertArrayEquals(Arrays.copyOfRange(data, (int) start, data.length), readData.toByteArray(), message);
+                    assertEquals(-1, inputStream.read(), message);
+
+                    readWriteFile.releaseInputStream();
+                }
+
+                // Überspringen in einen späteren Abschnitt
+                if (2 * chunkSize + 1 < data.length) {
+                    MappedFileInputStream inputStream = (MappedFileInputStream) readWriteFile.inputStream(1);
+
+                    assertEquals(2 * chunkSize, inputStream.skip(2 * chunkSize));
+                    assertEquals(Byte.toUnsignedInt(data[(int) (2 * chunkSize + 1)]), inputStream.read());
+
+                    readWriteFile.releaseInputStream();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package propra.imageconverter.binary;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadAheadInputStreamTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Liest den Stream teils byteweise, teils blockweise und mit übersprungenen
+     * Bytes bis zum Ende und gibt die gelesenen Daten zurück.
+     */
+    private static byte[] readMixed(InputStream inputStream, byte[] data, long start) throws IOException {
+        ByteArrayOutputStream readData = new ByteArrayOutputStream();
+        byte[] buffer = new byte[333];
+        long position = start;
+
+        while (true) {
+            int b = inputStream.read();
+
+            if (b < 0)
+                break;
+
+            readData.write(b);
+            position++;
+
+            int bytes = inputStream.read(buffer, 0, buffer.length);
+
+            if (bytes < 0)
+                break;
+
+            readData.write(buffer, 0, bytes);
+            position += bytes;
+
+            // Übersprungene Bytes werden wie gelesene übernommen.
+            long skippedBytes = inputStream.skip(50);
+            readData.write(data, (int) position, (int) skippedBytes);
+            position += skippedBytes;
+        }
+
+        return readData.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Die im Voraus gelesenen Daten stimmen für alle Blockgrößen und Startpositionen überein.")
+    void readTest() throws IOException {
+        byte[] data = new byte[50_000];
+        new Random(13).nextBytes(data);
+
+        Path path = tempDir.resolve("data.bin");
+        Files.write(path, data);
+
+        for (int blockSize : new int[]{1, 7, 1000, data.length, data.length * 2}) {
+            try (ReadWriteFile readWriteFile = ReadWriteFile.openForReading(path, InputMode.READ_AHEAD, blockSize)) {
+                for (int start : new int[]{0, 1, 12_345, data.length}) {
+                    InputStream inputStream = readWriteFile.inputStream(start);
+
+                    byte[] expected = Arrays.copyOfRange(data, start, data.length);
+                    assertArrayEquals(expected, readMixed(inputStream, data, start), "Blockgröße " + blockSize + " ab " + start);
+                    assertEquals(-1, inputStream.read());
+
+                    readWriteFile.releaseInputStream();
+                }
+
+                // Ein Stream, der vor dem Ende freigegeben wird, beendet
+                // seinen Thread, ohne die Datei zu schließen.
+                readWriteFile.inputStream(0).read();
+                readWriteFile.releaseInputStream();
+
+                assertEquals(Byte.toUnsignedInt(data[100]), readWriteFile.inputStream(100).read());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package propra.imageconverter.binary;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingOutputStreamTest {
+	/**
+	 * Schreibt die Daten teils byteweise, teils blockweise in einen Stream mit der
+	 * übergebenen Grenze und gibt die danach kopierten Daten zurück.
+	 */
+	private byte[] writeAndCopy(byte[] data, int memoryLimit, boolean expectSpilled) throws IOException {
+		SpillingOutputStream outputStream = new SpillingOutputStream(memoryLimit);
+
+		try {
+			outputStream.write(data[0]);
+			outputStream.write(data, 1, data.length - 1);
+			outputStream.close();
+
+			assertEquals(data.length, outputStream.length());
+			assertEquals(expectSpilled, outputStream.isSpilled());
+
+			ByteArrayOutputStream target = new ByteArrayOutputStream();
+			outputStream.copyTo(target);
+
+			return target.toByteArray();
+		} finally {
+			outputStream.discard();
+		}
+	}
+
+	@Test
+	@DisplayName("Die Daten werden im Arbeitsspeicher und ausgelagert unverändert kopiert.")
+	void copyTest() throws IOException {
+		byte[] data = new byte[100_000];
+		new Random(5).nextBytes(data);
+
+		assertArrayEquals(data, writeAndCopy(data, data.length, false));
+		assertArrayEquals(data, writeAndCopy(data, 1000, true));
+		assertArrayEquals(data, writeAndCopy(data, 0, true));
+	}
+}
@@ -0,0 +1,58 @@
+package propra.imageconverter.binary;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindOutputStreamTest {
+    @Test
+    @DisplayName("Die Daten kommen vollständig und in der richtigen Reihenfolge an.")
+    void writeTest() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(11).nextBytes(data);
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        WriteBehindOutputStream outputStream = new WriteBehindOutputStream(target, 1000, 3);
+
+        outputStream.write(data[0]);
+        outputStream.write(data, 1, 49_999);
+
+        // Nach flush ist alles bisher Geschriebene angekommen.
+        outputStream.flush();
+        assertEquals(50_000, target.size());
+
+        for (int i = 50_000; i < data.length; i += 777) {
+            outputStream.write(data, i, Math.min(777, data.length - i));
+        }
+
+        outputStream.close();
+
+        assertArrayEquals(data, target.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Ein Fehler beim Schreiben wird spätestens bei close geworfen.")
+    void errorTest() {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Kein Platz mehr.");
+            }
+        };
+
+        WriteBehindOutputStream outputStream = new WriteBehindOutputStream(failing, 10, 2);
+
+        IOException error = assertThrows(IOException.class, () -> {
+            outputStream.write(new byte[100]);
+            outputStream.close();
+        });
+
+        assertEquals("Kein Platz mehr.", error.getMessage());
+    }
+}
@@ -0,0 +1,49 @@
+package propra.imageconverter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ChannelOrderTest {
+    /**
+     * Zwei Bildpunkte (Rot = 1, Grün = 2, Blau = 3 und Rot = 4, Grün = 5, Blau = 6)
+     * in der übergebenen Reihenfolge.
+     */
+    private byte[] pixelsIn(ChannelOrder order) {
+        switch (order) {
+            case RGB:
+                return new byte[]{1, 2, 3, 4, 5, 6};
+            case BGR:
+                return new byte[]{3, 2, 1, 6, 5, 4};
+            case GBR:
+                return new byte[]{2, 3, 1, 5, 6, 4};
+        }
+
+        throw new IllegalArgumentException();
+    }
+
+    @Test
+    @DisplayName("Alle Kanalreihenfolgen werden korrekt ineinander umgewandelt.")
+    void convertTest() {
+        for (ChannelOrder source : ChannelOrder.values()) {
+            for (ChannelOrder target : ChannelOrder.values()) {
+                byte[] pixels = pixelsIn(source);
+
+                source.convert(pixels, 0, 2, target);
+
+                assertArrayEquals(pixelsIn(target), pixels, source + " -> " + target);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Es werden nur die angegebenen Bildpunkte umgewandelt.")
+    void convertWithOffsetTest() {
+        byte[] pixels = {9, 1, 2, 3, 4, 5, 6};
+
+        ChannelOrder.RGB.convert(pixels, 1, 1, ChannelOrder.BGR);
+
+        assertArrayEquals(new byte[]{9, 3, 2, 1, 4, 5, 6}, pixels);
+    }
+}
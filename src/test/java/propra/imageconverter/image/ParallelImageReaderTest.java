@@ -0,0 +1,99 @@
+package propra.imageconverter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.tga.TgaReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelImageReaderTest {
+    private static final int WIDTH = 23;
+    private static final int HEIGHT = 41;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Schreibt eine RLE-komprimierte TGA-Datei mit zufälligen Paketen, die anders als
+     * beim RLECompressionWriter auch über Zeilengrenzen hinweg reichen.
+     */
+    private Path writeRleImageWithPacketsAcrossRows() throws IOException {
+        Random random = new Random(17);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+
+        file.write(new byte[]{0, 0, 10, 0, 0, 0, 0, 0, 0, 0, 0, 0, WIDTH, 0, HEIGHT, 0, 24, 0b00100000});
+
+        int remainingPixels = WIDTH * HEIGHT;
+        while (remainingPixels > 0) {
+            int pixelsOfPacket = Math.min(remainingPixels, 1 + random.nextInt(128));
+
+            if (random.nextBoolean()) {
+                file.write(0b1000_0000 | (pixelsOfPacket - 1));
+                file.write(random.nextInt(256));
+                file.write(random.nextInt(256));
+                file.write(random.nextInt(256));
+            } else {
+                file.write(pixelsOfPacket - 1);
+
+                for (int i = 0; i < pixelsOfPacket * 3; i++) {
+                    file.write(random.nextInt(256));
+                }
+            }
+
+            remainingPixels -= pixelsOfPacket;
+        }
+
+        Path path = tempDir.resolve("across.tga");
+        Files.write(path, file.toByteArray());
+
+        return path;
+    }
+
+    @Test
+    @DisplayName("Parallel dekodierte Bildzeilen stimmen mit den seriell dekodierten überein.")
+    void parallelDecodingTest() throws Exception {
+        Path path = writeRleImageWithPacketsAcrossRows();
+
+        byte[][] expectedRows = new byte[HEIGHT][WIDTH * 3];
+        try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(path, InputMode.BUFFERED))) {
+            for (byte[] row : expectedRows) {
+                tgaReader.readRow(row, 0);
+            }
+        }
+
+        for (int rowsPerBand : new int[]{1, 2, 5, HEIGHT}) {
+            try (ImageReader parallelReader = ParallelImageReader.create(TgaReader.create(ReadWriteFile.openForReading(path, InputMode.MAPPED)), rowsPerBand)) {
+                byte[] row = new byte[WIDTH * 3];
+
+                for (int i = 0; i < HEIGHT; i++) {
+                    parallelReader.readRow(row, 0);
+                    assertArrayEquals(expectedRows[i], row, "Bildzeile " + i + " bei " + rowsPerBand + " Bildzeilen pro Band");
+                }
+
+                assertFalse(parallelReader.hasNextPixel());
+
+                // Nach einem Sprung mitten in ein Band geht es von dort in der richtigen Reihenfolge weiter.
+                parallelReader.seekToRow(HEIGHT / 3, null);
+
+                for (int i = HEIGHT / 3; i < HEIGHT; i++) {
+                    parallelReader.readRow(row, 0);
+                    assertArrayEquals(expectedRows[i], row);
+                }
+            }
+        }
+
+        // Die Threads gehören dem Reader und sind nach dem Schließen beendet.
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(thread -> thread.getName().equals("propra-parallel-decoding")));
+    }
+}
@@ -0,0 +1,139 @@
+package propra.imageconverter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.tga.TgaReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelinedImageReaderTest {
+    private static final int WIDTH = 19;
+    private static final int HEIGHT = 37;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Schreibt eine RLE-komprimierte TGA-Datei mit zufälligen Paketen; ist {@param truncated}
+     * gesetzt, fehlt das letzte Drittel der Bilddaten.
+     */
+    private Path writeRleImage(boolean truncated) throws IOException {
+        Random random = new Random(29);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+
+        file.write(new byte[]{0, 0, 10, 0, 0, 0, 0, 0, 0, 0, 0, 0, WIDTH, 0, HEIGHT, 0, 24, 0b00100000});
+
+        int remainingPixels = WIDTH * HEIGHT;
+        while (remainingPixels > (truncated ? WIDTH * HEIGHT / 3 : 0)) {
+            int pixelsOfPacket = Math.min(remainingPixels, 1 + random.nextInt(WIDTH));
+
+            if (random.nextBoolean()) {
+                file.write(0b1000_0000 | (pixelsOfPacket - 1));
+                file.write(random.nextInt(256));
+                file.write(random.nextInt(256));
+                file.write(random.nextInt(256));
+            } else {
+                file.write(pixelsOfPacket - 1);
+
+                for (int i = 0; i < pixelsOfPacket * 3; i++) {
+                    file.write(random.nextInt(256));
+                }
+            }
+
+            remainingPixels -= pixelsOfPacket;
+        }
+
+        Path path = tempDir.resolve(truncated ? "truncated.tga" : "image.tga");
+        Files.write(path, file.toByteArray());
+
+        return path;
+    }
+
+    private static void assertRows(ImageReader imageReader, byte[][] expectedRows, int firstRow, String message) throws IOException {
+        byte[] row = new byte[WIDTH * 3];
+
+        for (int i = firstRow; i < HEIGHT; i++) {
+            imageReader.readRow(row, 0);
+            assertArrayEquals(expectedRows[i], row, "Bildzeile " + i + " " + message);
+        }
+
+        assertFalse(imageReader.hasNextPixel());
+    }
+
+    @Test
+    @DisplayName("Die Bildzeilen der Pipeline stimmen mit den seriell gelesenen und umgewandelten überein.")
+    void pipelinedReadingTest() throws Exception {
+        Path path = writeRleImage(false);
+
+        byte[][] expectedRows = new byte[HEIGHT][WIDTH * 3];
+        try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(path, InputMode.BUFFERED))) {
+            for (byte[] row : expectedRows) {
+                tgaReader.readRow(row, 0);
+                ChannelOrder.BGR.convert(row, 0, WIDTH, ChannelOrder.GBR);
+            }
+        }
+
+        for (int rowsPerBlock : new int[]{1, 3, HEIGHT, HEIGHT * 2}) {
+            String message = "bei " + rowsPerBlock + " Bildzeilen pro Block";
+
+            try (ImageReader pipelinedReader = PipelinedImageReader.create(TgaReader.create(ReadWriteFile.openForReading(path, InputMode.BUFFERED)), ChannelOrder.GBR, rowsPerBlock)) {
+                assertEquals(ChannelOrder.GBR, pipelinedReader.getChannelOrder());
+
+                assertRows(pipelinedReader, expectedRows, 0, message);
+
+                pipelinedReader.reset();
+                assertRows(pipelinedReader, expectedRows, 0, message);
+
+                // Ein Sprung, während die Stufen noch die folgenden Blöcke bearbeiten.
+                byte[] row = new byte[WIDTH * 3];
+                pipelinedReader.reset();
+                pipelinedReader.readRow(row, 0);
+                pipelinedReader.seekToRow(HEIGHT / 2, null);
+                assertRows(pipelinedReader, expectedRows, HEIGHT / 2, message);
+            }
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    @DisplayName("Ein Fehler beim Dekodieren wird beim Lesen der betroffenen und aller folgenden Bildzeilen geworfen.")
+    void errorTest() throws Exception {
+        Path path = writeRleImage(true);
+
+        // Wiederholt, da die Übergabe der Blöcke zwischen den Threads
+        // bei jedem Durchlauf anders verschränkt sein kann.
+        for (int run = 0; run < 200; run++) {
+            try (ImageReader pipelinedReader = PipelinedImageReader.create(TgaReader.create(ReadWriteFile.openForReading(path, InputMode.BUFFERED)), ChannelOrder.GBR, 1 + run % 3)) {
+                byte[] row = new byte[WIDTH * 3];
+                int rowsRead = 0;
+                Exception error = null;
+
+                try {
+                    while (pipelinedReader.hasNextPixel()) {
+                        pipelinedReader.readRow(row, 0);
+                        rowsRead++;
+                    }
+                } catch (Exception e) {
+                    error = e;
+                }
+
+                assertNotNull(error);
+                assertTrue(rowsRead < HEIGHT);
+
+                Exception finalError = error;
+                Exception repeatedError = assertThrows(Exception.class, () -> pipelinedReader.readRow(row, 0));
+                assertSame(finalError.getClass(), repeatedError.getClass());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package propra.imageconverter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import propra.PropraException;
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.propra.ChecksumVerification;
+import propra.imageconverter.image.propra.PropraReader;
+import propra.imageconverter.image.propra.PropraWriter;
+import propra.imageconverter.image.tga.TgaReader;
+import propra.imageconverter.image.tga.TgaWriter;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowIndexTest {
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 50;
+    private static final int INTERVAL = 7;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Schreibt ein unkomprimiertes TGA-Bild mit Wiederholungen und zufälligen
+     * Bildpunkten, damit alle Pakete der Kompressionen vorkommen.
+     */
+    private Path writeSourceImage() throws IOException {
+        Random random = new Random(16);
+        byte[] file = new byte[18 + WIDTH * HEIGHT * 3];
+
+        file[2] = 2;
+        file[12] = (byte) WIDTH;
+        file[14] = (byte) HEIGHT;
+        file[16] = 24;
+        file[17] = 0b00100000;
+
+        for (int i = 18; i < file.length; i += 3) {
+            if (i > 18 && random.nextInt(3) == 0) {
+                System.arraycopy(file, i - 3, file, i, 3);
+            } else {
+                file[i] = (byte) random.nextInt(4);
+                file[i + 1] = (byte) random.nextInt(256);
+                file[i + 2] = (byte) random.nextInt(2);
+            }
+        }
+
+        Path source = tempDir.resolve("source.tga");
+        Files.write(source, file);
+
+        return source;
+    }
+
+    /**
+     * Liest alle Bildzeilen von vorne.
+     */
+    private static byte[][] readAllRows(ImageReader imageReader) throws IOException {
+        byte[][] rows = new byte[imageReader.getHeight()][imageReader.getWidth() * 3];
+
+        for (byte[] row : rows) {
+            imageReader.readRow(row, 0);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Springt mit und ohne Zeilenindex in jede Bildzeile und vergleicht sie mit
+     * den von vorne gelesenen Bildzeilen.
+     */
+    private static void assertSeekable(ImageReader imageReader, RowIndex rowIndex) throws IOException {
+        byte[][] expectedRows = readAllRows(imageReader);
+        byte[] row = new byte[WIDTH * 3];
+
+        for (int i = HEIGHT - 1; i >= 0; i -= 3) {
+            imageReader.seekToRow(i, rowIndex);
+            imageReader.readRow(row, 0);
+            assertArrayEquals(expectedRows[i], row, "Bildzeile " + i);
+        }
+
+        imageReader.seekToRow(HEIGHT / 2, null);
+        imageReader.readRow(row, 0);
+        assertArrayEquals(expectedRows[HEIGHT / 2], row);
+    }
+
+    @Test
+    @DisplayName("Über den gespeicherten Zeilenindex kann jede Bildzeile einer Propra-Datei gelesen werden.")
+    void seekPropraTest() throws Exception {
+        Path source = writeSourceImage();
+
+        for (CompressionType compressionType : new CompressionType[]{CompressionType.NO_COMPRESSION, CompressionType.RLE, CompressionType.HUFFMAN}) {
+            Path target = tempDir.resolve(compressionType + ".propra");
+
+            try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(source, InputMode.BUFFERED));
+                 ReadWriteFile outputFile = ReadWriteFile.overwriteReadWriteFile(new RandomAccessFile(target.toFile(), "rw"))) {
+                new PropraWriter(compressionType)
+                        .write(tgaReader, outputFile, RowIndex.Builder.everyNthRow(INTERVAL))
+                        .write(RowIndex.sidecarPathFor(target));
+            }
+
+            RowIndex rowIndex = RowIndex.read(RowIndex.sidecarPathFor(target));
+
+            for (ChecksumVerification checksumVerification : ChecksumVerification.values()) {
+                try (PropraReader propraReader = PropraReader.create(ReadWriteFile.openForReading(target, InputMode.BUFFERED), checksumVerification)) {
+                    assertSeekable(propraReader, rowIndex);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Der Zeilenindex unkomprimierter Daten wird berechnet; ein zu kurzes Datensegment fällt dabei auf.")
+    void scanUncompressedTest() throws Exception {
+        Path source = writeSourceImage();
+
+        try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(source, InputMode.BUFFERED))) {
+            assertSeekable(tgaReader, tgaReader.scanRowIndex(INTERVAL));
+        }
+
+        byte[] file = Files.readAllBytes(source);
+        Path truncated = tempDir.resolve("truncated.tga");
+        Files.write(truncated, Arrays.copyOf(file, file.length - 1));
+
+        try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(truncated, InputMode.BUFFERED))) {
+            assertThrows(PropraException.class, () -> tgaReader.scanRowIndex(INTERVAL));
+        }
+    }
+
+    @Test
+    @DisplayName("Ein Sprung über den Zeilenindex überprüft die Prüfsumme auch dann, wenn sie beim Dekodieren überprüft wird.")
+    void seekWrongChecksumTest() throws Exception {
+        Path source = writeSourceImage();
+        Path target = tempDir.resolve("wrong_checksum.propra");
+
+        try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(source, InputMode.BUFFERED));
+             ReadWriteFile outputFile = ReadWriteFile.overwriteReadWriteFile(new RandomAccessFile(target.toFile(), "rw"))) {
+            new PropraWriter(CompressionType.NO_COMPRESSION)
+                    .write(tgaReader, outputFile, RowIndex.Builder.everyNthRow(INTERVAL))
+                    .write(RowIndex.sidecarPathFor(target));
+        }
+
+        RowIndex rowIndex = RowIndex.read(RowIndex.sidecarPathFor(target));
+
+        // Das letzte Byte liegt hinter dem letzten Eintrag des Zeilenindex.
+        byte[] file = Files.readAllBytes(target);
+        file[file.length - 1]++;
+        Files.write(target, file);
+
+        try (PropraReader propraReader = PropraReader.create(ReadWriteFile.openForReading(target, InputMode.BUFFERED), ChecksumVerification.WHILE_DECODING)) {
+            assertThrows(PropraException.class, () -> propraReader.seekToRow(HEIGHT - 1, rowIndex));
+        }
+    }
+
+    @Test
+    @DisplayName("Über den gespeicherten Zeilenindex kann jede Bildzeile einer RLE-komprimierten TGA-Datei gelesen werden.")
+    void seekTgaTest() throws Exception {
+        Path source = writeSourceImage();
+        Path target = tempDir.resolve("rle.tga");
+
+        try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(source, InputMode.BUFFERED));
+             ReadWriteFile outputFile = ReadWriteFile.overwriteReadWriteFile(new RandomAccessFile(target.toFile(), "rw"))) {
+            new TgaWriter(CompressionType.RLE)
+                    .write(tgaReader, outputFile, RowIndex.Builder.everyNthRow(INTERVAL))
+                    .write(RowIndex.sidecarPathFor(target));
+        }
+
+        RowIndex rowIndex = RowIndex.read(RowIndex.sidecarPathFor(target));
+
+        try (TgaReader tgaReader = TgaReader.create(ReadWriteFile.openForReading(target, InputMode.MAPPED))) {
+            assertSeekable(tgaReader, rowIndex);
+        }
+    }
+}
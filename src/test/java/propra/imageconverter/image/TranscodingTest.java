@@ -0,0 +1,189 @@
+package propra.imageconverter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.binary.ReadWriteFile;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.propra.ChecksumVerification;
+import propra.imageconverter.image.propra.PropraReader;
+import propra.imageconverter.image.propra.PropraWriter;
+import propra.imageconverter.image.tga.TgaReader;
+import propra.imageconverter.image.tga.TgaWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranscodingTest {
+    private static final int WIDTH = 45;
+    private static final int HEIGHT = 31;
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Schreibt ein unkomprimiertes TGA-Bild mit Wiederholungen und zufälligen Bildpunkten.
+     */
+    private Path writeSourceImage() throws IOException {
+        Random random = new Random(20);
+        byte[] file = new byte[18 + WIDTH * HEIGHT * 3];
+
+        file[2] = 2;
+        file[12] = (byte) WIDTH;
+        file[14] = (byte) HEIGHT;
+        file[16] = 24;
+        file[17] = 0b00100000;
+
+        for (int i = 18; i < file.length; i += 3) {
+            if (i > 18 && random.nextInt(2) == 0) {
+                System.arraycopy(file, i - 3, file, i, 3);
+            } else {
+                file[i] = (byte) random.nextInt(256);
+                file[i + 1] = (byte) random.nextInt(256);
+                file[i + 2] = (byte) random.nextInt(256);
+            }
+        }
+
+        Path source = tempDir.resolve("source.tga");
+        Files.write(source, file);
+
+        return source;
+    }
+
+    private static ImageReader open(Path path) throws IOException {
+        ReadWriteFile readWriteFile = ReadWriteFile.openForReading(path, InputMode.BUFFERED);
+
+        return path.toString().endsWith(".tga")
+                ? TgaReader.create(readWriteFile)
+                : PropraReader.create(readWriteFile, ChecksumVerification.WHILE_DECODING);
+    }
+
+    private static ImageWriter writerFor(Path path, CompressionType compressionType) {
+        return path.toString().endsWith(".tga")
+                ? new TgaWriter(compressionType)
+                : new PropraWriter(compressionType);
+    }
+
+    /**
+     * Konvertiert {@param source} nach {@param target}, entweder über transcode oder durch Dekodieren und Kodieren.
+     */
+    private static void convert(Path source, Path target, CompressionType compressionType, boolean transcode) throws Exception {
+        try (ImageReader imageReader = open(source);
+             ReadWriteFile outputFile = ReadWriteFile.overwriteReadWriteFile(new RandomAccessFile(target.toFile(), "rw"))) {
+            ImageWriter imageWriter = writerFor(target, compressionType);
+
+            if (transcode) {
+                assertTrue(imageWriter.transcode(imageReader, outputFile), source + " -> " + target);
+            } else {
+                imageWriter.write(imageReader, outputFile);
+            }
+        }
+    }
+
+    private static byte[][] readAllRows(Path path) throws Exception {
+        try (ImageReader imageReader = open(path)) {
+            byte[][] rows = new byte[imageReader.getHeight()][imageReader.getWidth() * 3];
+
+            for (byte[] row : rows) {
+                imageReader.readRow(row, 0);
+            }
+
+            assertFalse(imageReader.hasNextPixel());
+
+            return rows;
+        }
+    }
+
+    @Test
+    @DisplayName("Übertragene Bilddaten stimmen mit dekodierten und neu kodierten Bilddaten überein.")
+    void transcodeTest() throws Exception {
+        Path source = writeSourceImage();
+        String[][] conversions = {
+                {"tga", "rle", "propra"}, {"propra", "rle", "tga"}, {"tga", "rle", "tga"}, {"propra", "rle", "propra"},
+                {"tga", "uncompressed", "tga"}, {"propra", "uncompressed", "propra"}, {"propra", "huffman", "propra"}
+        };
+
+        for (String[] conversion : conversions) {
+            CompressionType compressionType = CompressionType.parseCommandLineArgument(conversion[1]);
+            Path input = tempDir.resolve("input." + conversion[0]);
+            convert(source, input, compressionType, false);
+
+            Path expected = tempDir.resolve("expected." + conversion[2]);
+            Path actual = tempDir.resolve("actual." + conversion[2]);
+            convert(input, expected, compressionType, false);
+            convert(input, actual, compressionType, true);
+
+            assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(actual), String.join(" ", conversion));
+        }
+    }
+
+    @Test
+    @DisplayName("Mit einer anderen Kompression oder in einer anderen Farbreihenfolge ohne RLE wird nicht übertragen.")
+    void notTranscodableTest() throws Exception {
+        Path source = writeSourceImage();
+
+        try (ImageReader imageReader = open(source);
+             ReadWriteFile outputFile = ReadWriteFile.overwriteReadWriteFile(new RandomAccessFile(tempDir.resolve("out.propra").toFile(), "rw"))) {
+            assertFalse(new PropraWriter(CompressionType.RLE).transcode(imageReader, outputFile));
+            assertFalse(new PropraWriter(CompressionType.AUTO).transcode(imageReader, outputFile));
+            assertFalse(new PropraWriter(CompressionType.NO_COMPRESSION).transcode(imageReader, outputFile));
+        }
+    }
+
+    @Test
+    @DisplayName("RLE-Pakete über Zeilengrenzen hinweg werden unverändert übertragen.")
+    void packetsAcrossRowsTest() throws Exception {
+        Random random = new Random(21);
+        byte[] header = {0, 0, 10, 0, 0, 0, 0, 0, 0, 0, 0, 0, WIDTH, 0, HEIGHT, 0, 24, 0b00100000};
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(header);
+
+        int remainingPixels = WIDTH * HEIGHT;
+        while (remainingPixels > 0) {
+            int pixelsOfPacket = Math.min(remainingPixels, 1 + random.nextInt(128));
+
+            if (random.nextBoolean()) {
+                file.write(0b1000_0000 | (pixelsOfPacket - 1));
+                file.write(new byte[]{(byte) random.nextInt(256), (byte) random.nextInt(256), (byte) random.nextInt(256)});
+            } else {
+                file.write(pixelsOfPacket - 1);
+
+                for (int i = 0; i < pixelsOfPacket * 3; i++) {
+                    file.write(random.nextInt(256));
+                }
+            }
+
+            remainingPixels -= pixelsOfPacket;
+        }
+
+        Path source = tempDir.resolve("across.tga");
+        Files.write(source, file.toByteArray());
+
+        Path propra = tempDir.resolve("across.propra");
+        Path tga = tempDir.resolve("across_back.tga");
+        convert(source, propra, CompressionType.RLE, true);
+        convert(propra, tga, CompressionType.RLE, true);
+
+        // Der Header wird einheitlich neu geschrieben, die Pakete bleiben unverändert.
+        byte[] sourceBytes = Files.readAllBytes(source);
+        byte[] tgaBytes = Files.readAllBytes(tga);
+        assertArrayEquals(Arrays.copyOfRange(sourceBytes, header.length, sourceBytes.length), Arrays.copyOfRange(tgaBytes, header.length, tgaBytes.length));
+
+        byte[][] expectedRows = readAllRows(source);
+        byte[][] actualRows = readAllRows(propra);
+        for (int i = 0; i < HEIGHT; i++) {
+            ChannelOrder.GBR.convert(actualRows[i], 0, WIDTH, ChannelOrder.BGR);
+            assertArrayEquals(expectedRows[i], actualRows[i], "Bildzeile " + i);
+        }
+    }
+}
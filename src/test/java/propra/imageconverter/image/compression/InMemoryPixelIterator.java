@@ -0,0 +1,50 @@
+package propra.imageconverter.image.compression;
+
+import propra.imageconverter.image.compression.iterator.PixelIterator;
+
+/**
+ * PixelIterator über ein Bild im Arbeitsspeicher für die Tests der Kompressionen.
+ */
+public final class InMemoryPixelIterator implements PixelIterator {
+    private final byte[][] rows;
+    private final int width;
+
+    private int currentRow = 0;
+
+    private InMemoryPixelIterator(byte[][] rows, int width) {
+        this.rows = rows;
+        this.width = width;
+    }
+
+    /**
+     * Gibt einen PixelIterator über die Bildzeilen {@param rows} mit je {@param width} Bildpunkten zurück.
+     */
+    public static PixelIterator of(byte[][] rows, int width) {
+        return new InMemoryPixelIterator(rows, width);
+    }
+
+    @Override
+    public void readNextRow(byte[] targetRow) {
+        System.arraycopy(rows[currentRow++], 0, targetRow, 0, width * 3);
+    }
+
+    @Override
+    public boolean hasNextRow() {
+        return currentRow < rows.length;
+    }
+
+    @Override
+    public void reset() {
+        currentRow = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return rows.length;
+    }
+}
@@ -0,0 +1,119 @@
+package propra.imageconverter.image.compression.huffman;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import propra.imageconverter.base.BitOutputStream;
+import propra.imageconverter.image.compression.huffman.tree.BitPattern;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
+import propra.imageconverter.image.compression.huffman.tree.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ParallelHuffmanCompressionReaderTest {
+    /**
+     * Kodiert {@param numberOfSymbols} zufällige Bytes mit dem Baum zu den Häufigkeiten
+     * {@param occurences}; der Baum steht wie im Propra-Format am Beginn der Daten.
+     */
+    private static byte[] encode(Map<Byte, Integer> occurences, int numberOfSymbols, Random random) throws IOException {
+        Node tree = HuffmanTree.constructForOccurenceMap(occurences);
+        Map<Byte, BitPattern> huffmanMap = tree.constructHuffmanMap();
+        Byte[] symbols = occurences.keySet().toArray(new Byte[0]);
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        BitOutputStream bitOutputStream = new BitOutputStream(encoded);
+        tree.writeTree(bitOutputStream);
+
+        for (int i = 0; i < numberOfSymbols; i++) {
+            BitPattern pattern = huffmanMap.get(symbols[random.nextInt(symbols.length)]);
+            bitOutputStream.writeBits(pattern.getNumberOfBits(), pattern.getBitPattern());
+        }
+
+        bitOutputStream.flush();
+
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Vergleicht die parallel dekodierten Bildpunkte mit den seriell dekodierten. Es werden
+     * einige Bildpunkte mehr gelesen, als kodiert sind, um auch das Verhalten am Ende zu prüfen.
+     */
+    private static void assertDecodesLikeSerial(byte[] encoded, int numberOfPixels) throws IOException {
+        byte[] expected = new byte[numberOfPixels * 3];
+        new HuffmanCompressionReader(new ByteArrayInputStream(encoded)).readPixels(expected, 0, numberOfPixels);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (int chunkSize : new int[]{ParallelHuffmanCompressionReader.MIN_CHUNK_SIZE, 777, 4096, 1 << 20}) {
+                ParallelHuffmanCompressionReader reader
+                        = new ParallelHuffmanCompressionReader(new ByteArrayInputStream(encoded), pool, chunkSize);
+
+                // In unterschiedlich großen Teilen lesen
+                byte[] actual = new byte[numberOfPixels * 3];
+                int pixelsRead = 0;
+                for (int pixels = 1; pixelsRead < numberOfPixels; pixels = pixels * 3 + 1) {
+                    int pixelsToRead = Math.min(pixels, numberOfPixels - pixelsRead);
+                    reader.readPixels(actual, pixelsRead * 3, pixelsToRead);
+                    pixelsRead += pixelsToRead;
+                }
+
+                assertArrayEquals(expected, actual, "Abschnitte mit " + chunkSize + " Bytes");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Parallel dekodierte Bytes stimmen mit seriell dekodierten überein.")
+    void decodesLikeSerialTest() throws IOException {
+        Random random = new Random(21);
+
+        Map<Byte, Integer> uniform = new HashMap<>();
+        for (int i = 0; i < 256; i++) {
+            uniform.put((byte) i, 1 + random.nextInt(1000));
+        }
+
+        byte[] encoded = encode(uniform, 60_000, random);
+        assertDecodesLikeSerial(encoded, 20_000 + 100);
+    }
+
+    @Test
+    @DisplayName("Auch mit Codes, die länger als die Tabellen sind, wird wie seriell dekodiert.")
+    void longCodesTest() throws IOException {
+        Random random = new Random(22);
+
+        // Durch Häufigkeiten entlang der Fibonacci-Folge entstehen sehr lange Codes.
+        Map<Byte, Integer> fibonacci = new HashMap<>();
+        int previous = 1;
+        int current = 1;
+        for (int i = 0; i < 30; i++) {
+            fibonacci.put((byte) (i * 5), current);
+
+            int next = previous + current;
+            previous = current;
+            current = next;
+        }
+
+        byte[] encoded = encode(fibonacci, 30_000, random);
+        assertDecodesLikeSerial(encoded, 10_000 + 100);
+    }
+
+    @Test
+    @DisplayName("Ein Baum aus nur einem Blatt wird wie seriell dekodiert.")
+    void singleLeafTest() throws IOException {
+        Map<Byte, Integer> single = new HashMap<>();
+        single.put((byte) 42, 1);
+
+        byte[] encoded = encode(single, 0, new Random(23));
+        assertDecodesLikeSerial(encoded, 5000);
+    }
+}
@@ -0,0 +1,75 @@
+package propra.imageconverter.image.compression.reader.huffman;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import propra.imageconverter.image.RowIndex;
+import propra.imageconverter.image.compression.InMemoryPixelIterator;
+import propra.imageconverter.image.compression.huffman.HuffmanCompressionWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HuffmanCompressionWriterBandsTest {
+    /**
+     * Kodiert das Bild, gibt die kodierten Daten zurück und schreibt die Bitposition
+     * jeder Bildzeile laut Zeilenindex nach {@param rowPositions}.
+     */
+    private static byte[] encode(HuffmanCompressionWriter writer, byte[][] rows, int width, long[] rowPositions) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        RowIndex.Builder rowIndex = RowIndex.Builder.everyNthRow(1);
+        long length = writer.write(InMemoryPixelIterator.of(rows, width), outputStream, rowIndex);
+
+        assertEquals(outputStream.size(), length);
+
+        RowIndex index = rowIndex.build(width, rows.length, length);
+        for (int i = 0; i < rows.length; i++) {
+            rowPositions[i] = index.entryForRow(i).getBitPosition();
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    @DisplayName("In Bändern parallel kodierte Bilder stimmen mit zeilenweise kodierten Bildern überein.")
+    void bandsTest() throws IOException {
+        Random random = new Random(22);
+        ForkJoinPool serialPool = new ForkJoinPool(1);
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+
+        try {
+            for (int width : new int[]{1, 2, 7, 130}) {
+                for (int height : new int[]{1, 2, 9, 40}) {
+                    for (int numberOfBytes : new int[]{1, 3, 256}) {
+                        byte[][] rows = new byte[height][width * 3];
+                        for (byte[] row : rows) {
+                            for (int i = 0; i < row.length; i++) {
+                                // Schiefe Verteilung, damit Codes unterschiedlicher Länge entstehen
+                                row[i] = (byte) Math.min(random.nextInt(numberOfBytes), random.nextInt(numberOfBytes));
+                            }
+                        }
+
+                        long[] expectedPositions = new long[height];
+                        byte[] expected = encode(new HuffmanCompressionWriter(serialPool, 0), rows, width, expectedPositions);
+
+                        for (int rowsPerBand : new int[]{1, 2, 3, 8}) {
+                            String message = width + "x" + height + " mit " + rowsPerBand + " Bildzeilen pro Band";
+                            long[] actualPositions = new long[height];
+                            byte[] actual = encode(new HuffmanCompressionWriter(parallelPool, rowsPerBand), rows, width, actualPositions);
+
+                            assertArrayEquals(expected, actual, message);
+                            assertArrayEquals(expectedPositions, actualPositions, message);
+                        }
+                    }
+                }
+            }
+        } finally {
+            serialPool.shutdown();
+            parallelPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package propra.imageconverter.image.compression.reader.huffman;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import propra.imageconverter.image.compression.huffman.HuffmanCompressionReader;
+import propra.imageconverter.image.compression.huffman.HuffmanCompressionWriter;
+import propra.imageconverter.image.compression.InMemoryPixelIterator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HuffmanCompressionWriterTest {
+    @Test
+    @DisplayName("Geschriebene Daten werden vollständig wieder eingelesen, auch die Bits des letzten Bytes.")
+    void roundTripTest() throws IOException {
+        Random random = new Random(5);
+
+        for (int width = 1; width < 40; width++) {
+            for (int numberOfBytes : new int[]{1, 2, 3, 17, 256}) {
+                int height = 1 + random.nextInt(4);
+                byte[][] rows = new byte[height][width * 3];
+                for (byte[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        // Schiefe Verteilung, damit Codes unterschiedlicher Länge entstehen
+                        row[i] = (byte) Math.min(random.nextInt(numberOfBytes), random.nextInt(numberOfBytes));
+                    }
+                }
+
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                long length = new HuffmanCompressionWriter().write(InMemoryPixelIterator.of(rows, width), encoded);
+                assertEquals(encoded.size(), length);
+
+                HuffmanCompressionReader reader = new HuffmanCompressionReader(new ByteArrayInputStream(encoded.toByteArray()));
+                for (byte[] row : rows) {
+                    byte[] decoded = new byte[row.length];
+                    reader.readPixels(decoded, 0, width);
+
+                    assertArrayEquals(row, decoded);
+                }
+            }
+        }
+    }
+}
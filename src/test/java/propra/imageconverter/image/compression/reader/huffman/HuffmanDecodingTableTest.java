@@ -0,0 +1,71 @@
+package propra.imageconverter.image.compression.reader.huffman;
+
+import org.junit.jupiter.api.Test;
+import propra.imageconverter.base.BitInputStream;
+import propra.imageconverter.base.BitOutputStream;
+import propra.imageconverter.image.compression.huffman.tree.BitPattern;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanDecodingTable;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
+import propra.imageconverter.image.compression.huffman.tree.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HuffmanDecodingTableTest {
+
+    /**
+     * Durch Häufigkeiten entlang der Fibonacci-Folge entsteht ein Baum mit
+     * Codes, die länger als die Primärtabelle (und auch als eine Sekundärtabelle) sind.
+     */
+    @Test
+    public void tableDecodesLikeTree() throws IOException {
+        Map<Byte, Integer> occurences = new HashMap<>();
+        int previous = 1;
+        int current = 1;
+        for (int i = 0; i < 24; i++) {
+            occurences.put((byte) (i * 7), current);
+
+            int next = previous + current;
+            previous = current;
+            current = next;
+        }
+
+        Node tree = HuffmanTree.constructForOccurenceMap(occurences);
+        Map<Byte, BitPattern> huffmanMap = tree.constructHuffmanMap();
+
+        byte[] symbols = new byte[5000];
+        Random random = new Random(12);
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = (byte) (random.nextInt(24) * 7);
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        BitOutputStream bos = new BitOutputStream(encoded);
+        for (byte symbol : symbols) {
+            BitPattern pattern = huffmanMap.get(symbol);
+            bos.writeBits(pattern.getNumberOfBits(), pattern.getBitPattern());
+        }
+        bos.writeBits(7, 0);
+        bos.flush();
+
+        HuffmanDecodingTable table = HuffmanDecodingTable.constructForTree(tree);
+        BitInputStream tableInput = new BitInputStream(new ByteArrayInputStream(encoded.toByteArray()));
+        BitInputStream treeInput = new BitInputStream(new ByteArrayInputStream(encoded.toByteArray()));
+
+        for (byte symbol : symbols) {
+            assertEquals(symbol, (byte) table.readEncodedData(tableInput));
+            assertEquals(symbol, (byte) tree.readEncodedData(treeInput));
+        }
+
+        // Auch beim Lesen über das Ende hinaus verhalten sich beide gleich.
+        for (int i = 0; i < 3; i++) {
+            assertEquals(tree.readEncodedData(treeInput), table.readEncodedData(tableInput));
+        }
+    }
+}
@@ -136,6 +136,7 @@ class HuffmanTreeTest {
                 = new BitOutputStream(bosOutput);
 
         result.writeTree(bos);
+        bos.flush();
 
         System.out.println(Arrays.toString(bosOutput.toByteArray()));
     }
@@ -164,6 +165,7 @@ class HuffmanTreeTest {
                 = new BitOutputStream(bosOutput);
 
         result.writeTree(bos);
+        bos.flush();
 
         System.out.println(Arrays.toString(bosOutput.toByteArray()));
 
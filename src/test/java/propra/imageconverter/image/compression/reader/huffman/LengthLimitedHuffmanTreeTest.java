@@ -0,0 +1,104 @@
+package propra.imageconverter.image.compression.reader.huffman;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import propra.imageconverter.base.BitInputStream;
+import propra.imageconverter.base.BitOutputStream;
+import propra.imageconverter.image.compression.huffman.HuffmanCompressionWriter;
+import propra.imageconverter.image.compression.huffman.tree.BitPattern;
+import propra.imageconverter.image.compression.huffman.tree.HuffmanTree;
+import propra.imageconverter.image.compression.huffman.tree.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LengthLimitedHuffmanTreeTest {
+    /**
+     * Häufigkeiten entlang der Fibonacci-Folge ergeben ohne Beschränkung
+     * für n Bytes einen Baum der Tiefe n - 1.
+     */
+    private static long[] fibonacciHistogram(int numberOfBytes) {
+        long[] histogram = new long[256];
+        long previous = 1;
+        long current = 1;
+
+        for (int i = 0; i < numberOfBytes; i++) {
+            histogram[i * 5] = current;
+
+            long next = previous + current;
+            previous = current;
+            current = next;
+        }
+
+        return histogram;
+    }
+
+    private static long weightedLength(long[] histogram, Map<Byte, BitPattern> huffmanMap) {
+        long weightedLength = 0;
+
+        for (Map.Entry<Byte, BitPattern> entry : huffmanMap.entrySet()) {
+            weightedLength += histogram[Byte.toUnsignedInt(entry.getKey())] * entry.getValue().getNumberOfBits();
+        }
+
+        return weightedLength;
+    }
+
+    @Test
+    @DisplayName("Die Codes überschreiten die maximale Länge nicht und der Baum bleibt vollständig.")
+    void maxCodeLengthTest() throws IOException {
+        long[] histogram = fibonacciHistogram(40);
+
+        // Ohne Beschränkung hätte der Baum die Tiefe 39.
+        assertEquals(32, HuffmanTree.depth(HuffmanTree.constructForHistogram(histogram, 32)));
+
+        long previousWeightedLength = Long.MAX_VALUE;
+        for (int maxCodeLength = 8; maxCodeLength <= 32; maxCodeLength++) {
+            Node tree = HuffmanTree.constructForHistogram(histogram, maxCodeLength);
+            Map<Byte, BitPattern> huffmanMap = tree.constructHuffmanMap();
+
+            assertTrue(HuffmanTree.depth(tree) <= maxCodeLength);
+            assertEquals(40, huffmanMap.size());
+
+            // Mehr erlaubte Bits dürfen die Daten nicht verlängern.
+            long weightedLength = weightedLength(histogram, huffmanMap);
+            assertTrue(weightedLength <= previousWeightedLength);
+            previousWeightedLength = weightedLength;
+
+            // Der Baum lässt sich im Propra-Format speichern und wieder einlesen.
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            BitOutputStream bos = new BitOutputStream(serialized);
+            long treeBits = tree.writeTree(bos);
+            bos.writeBits((int) ((8 - treeBits % 8) % 8), 0);
+            bos.flush();
+
+            Node readTree = HuffmanTree.constructFromStream(new BitInputStream(new ByteArrayInputStream(serialized.toByteArray())));
+            Map<Byte, BitPattern> readMap = readTree.constructHuffmanMap();
+            for (Map.Entry<Byte, BitPattern> entry : huffmanMap.entrySet()) {
+                assertEquals(entry.getValue().getBitPattern(), readMap.get(entry.getKey()).getBitPattern());
+                assertEquals(entry.getValue().getNumberOfBits(), readMap.get(entry.getKey()).getNumberOfBits());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Die berechnete Länge berücksichtigt die maximale Länge der Codes.")
+    void calcEncodedLengthTest() {
+        long[] histogram = fibonacciHistogram(30);
+        Map<Byte, BitPattern> huffmanMap = HuffmanTree.constructForHistogram(histogram, 10).constructHuffmanMap();
+
+        long expectedBits = 30 * 9 + 29 + weightedLength(histogram, huffmanMap);
+
+        assertEquals((expectedBits + 7) / 8, HuffmanCompressionWriter.calcEncodedLength(histogram, 10));
+
+        // Bei nur einem Byte enthält der Baum ein zusätzliches Blatt und jeder Code ist ein Bit lang.
+        long[] singleByteHistogram = new long[256];
+        singleByteHistogram[7] = 100;
+
+        assertEquals((2 * 9 + 1 + 100 + 7) / 8, HuffmanCompressionWriter.calcEncodedLength(singleByteHistogram, 10));
+    }
+}
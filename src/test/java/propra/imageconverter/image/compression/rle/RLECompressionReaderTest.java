@@ -0,0 +1,160 @@
+package propra.imageconverter.image.compression.rle;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import propra.PropraException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RLECompressionReaderTest {
+    private static final int WIDTH = 5;
+
+    /**
+     * Eingabestream, der bei jedem Lesen höchstens {@param chunkSize} Bytes liefert. Damit
+     * werden Pakete an beliebigen Stellen auf mehrere Lesezugriffe aufgeteilt, so wie an der
+     * Grenze zwischen zwei Füllungen des Puffers eines BufferedInputStream.
+     */
+    private static final class ChunkedInputStream extends ByteArrayInputStream {
+        private final int chunkSize;
+
+        private ChunkedInputStream(byte[] data, int chunkSize) {
+            super(data);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read(byte[] targetArray, int offset, int length) {
+            return super.read(targetArray, offset, Math.min(length, chunkSize));
+        }
+    }
+
+    /**
+     * Hängt ein Wiederholungspaket für {@param numberOfPixels} Bildpunkte an und gibt die
+     * dekodierten Bildpunkte an {@param decoded} weiter.
+     */
+    private static void repeat(ByteArrayOutputStream encoded, ByteArrayOutputStream decoded, int numberOfPixels, int pixel) {
+        byte[] pixelData = {(byte) pixel, (byte) (pixel >> 8), (byte) (pixel >> 16)};
+
+        encoded.write(0b1000_0000 | (numberOfPixels - 1));
+        encoded.write(pixelData, 0, 3);
+
+        for (int i = 0; i < numberOfPixels; i++) {
+            decoded.write(pixelData, 0, 3);
+        }
+    }
+
+    /**
+     * Hängt ein Datenpaket mit den Bildpunkten {@param pixelData} an.
+     */
+    private static void raw(ByteArrayOutputStream encoded, ByteArrayOutputStream decoded, byte[] pixelData) {
+        encoded.write(pixelData.length / 3 - 1);
+        encoded.write(pixelData, 0, pixelData.length);
+        decoded.write(pixelData, 0, pixelData.length);
+    }
+
+    /**
+     * Dekodiert {@param encoded} aus Lesezugriffen zu je höchstens {@param chunkSize} Bytes,
+     * jeweils {@param pixelsPerCall} Bildpunkte pro Aufruf von readPixels.
+     */
+    private static byte[] decode(byte[] encoded, int numberOfPixels, int chunkSize, int pixelsPerCall) throws IOException {
+        RLECompressionReader reader = new RLECompressionReader(new ChunkedInputStream(encoded, chunkSize));
+        byte[] decoded = new byte[numberOfPixels * 3];
+
+        for (int pixel = 0; pixel < numberOfPixels; pixel += pixelsPerCall) {
+            reader.readPixels(decoded, pixel * 3, Math.min(pixelsPerCall, numberOfPixels - pixel));
+        }
+
+        return decoded;
+    }
+
+    @Test
+    @DisplayName("fillPixels schreibt den Bildpunkt genau so oft wie angegeben und nur in den angegebenen Bereich.")
+    void fillPixelsTest() {
+        byte[] pixel = {1, 2, 3};
+
+        for (int numberOfPixels = 1; numberOfPixels <= 300; numberOfPixels++) {
+            byte[] target = new byte[(numberOfPixels + 2) * 3];
+            Arrays.fill(target, (byte) -1);
+
+            RLECompressionReader.fillPixels(pixel, target, 3, numberOfPixels);
+
+            for (int i = 0; i < target.length; i += 3) {
+                boolean inside = i >= 3 && i < (numberOfPixels + 1) * 3;
+                assertArrayEquals(inside ? pixel : new byte[]{-1, -1, -1}, Arrays.copyOfRange(target, i, i + 3), numberOfPixels + " Bildpunkte, Index " + i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Wiederholungs- und Datenpakete werden an Zeilengrenzen und über geteilte Lesezugriffe hinweg korrekt dekodiert.")
+    void readPixelsTest() throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+
+        // Zeile 0 und 1: Pakete, die genau an der Zeilengrenze enden.
+        raw(encoded, decoded, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15});
+        repeat(encoded, decoded, WIDTH, 0x030201);
+
+        // Zeile 2 und 3: Pakete über die Zeilengrenze hinweg.
+        repeat(encoded, decoded, WIDTH + 2, 0x060504);
+        raw(encoded, decoded, new byte[]{21, 22, 23, 24, 25, 26, 27, 28, 29});
+
+        // Ab Zeile 4: ein einzelner Bildpunkt und ein Paket mit der
+        // maximalen Länge, das über viele Zeilen reicht.
+        raw(encoded, decoded, new byte[]{31, 32, 33});
+        repeat(encoded, decoded, 128, 0x090807);
+
+        int numberOfPixels = decoded.size() / 3;
+
+        for (int chunkSize : new int[]{1, 2, 3, 4, 5, 1000}) {
+            for (int pixelsPerCall : new int[]{1, 2, WIDTH, 128, numberOfPixels}) {
+                assertArrayEquals(decoded.toByteArray(), decode(encoded.toByteArray(), numberOfPixels, chunkSize, pixelsPerCall),
+                        "Lesezugriffe zu " + chunkSize + " Bytes, " + pixelsPerCall + " Bildpunkte pro Aufruf");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Zufällige Pakete werden unabhängig von der Aufteilung der Lesezugriffe gleich dekodiert.")
+    void randomPacketsTest() throws IOException {
+        Random random = new Random(19);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+
+        for (int packet = 0; packet < 200; packet++) {
+            int pixelsOfPacket = 1 + random.nextInt(128);
+
+            if (random.nextBoolean()) {
+                repeat(encoded, decoded, pixelsOfPacket, random.nextInt(1 << 24));
+            } else {
+                byte[] pixelData = new byte[pixelsOfPacket * 3];
+                random.nextBytes(pixelData);
+                raw(encoded, decoded, pixelData);
+            }
+        }
+
+        int numberOfPixels = decoded.size() / 3;
+
+        for (int chunkSize : new int[]{1, 7, 8192}) {
+            assertArrayEquals(decoded.toByteArray(), decode(encoded.toByteArray(), numberOfPixels, chunkSize, 1 + random.nextInt(300)));
+        }
+    }
+
+    @Test
+    @DisplayName("Endet die Eingabe mitten in einem Paket, wird eine Exception geworfen.")
+    void truncatedTest() {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        raw(encoded, decoded, new byte[]{1, 2, 3, 4, 5, 6});
+
+        byte[] truncated = Arrays.copyOf(encoded.toByteArray(), encoded.size() - 1);
+
+        assertThrows(PropraException.class, () -> decode(truncated, 2, 3, 2));
+    }
+}
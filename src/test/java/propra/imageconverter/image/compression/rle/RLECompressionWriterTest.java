@@ -0,0 +1,70 @@
+package propra.imageconverter.image.compression.rle;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import propra.imageconverter.image.compression.InMemoryPixelIterator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RLECompressionWriterTest {
+    /**
+     * Erstellt ein Bild mit vielen Wiederholungen, auch über Zeilengrenzen hinweg.
+     */
+    private static byte[][] createImage(Random random, int width, int height) {
+        byte[][] rows = new byte[height][width * 3];
+        byte[] previousPixel = new byte[3];
+
+        for (byte[] row : rows) {
+            for (int i = 0; i < width * 3; i += 3) {
+                if (random.nextInt(4) != 0) {
+                    previousPixel = new byte[]{(byte) random.nextInt(3), 0, (byte) random.nextInt(2)};
+                }
+
+                System.arraycopy(previousPixel, 0, row, i, 3);
+            }
+        }
+
+        return rows;
+    }
+
+    private static byte[] encode(RLECompressionWriter writer, byte[][] rows, int width) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long length = writer.write(InMemoryPixelIterator.of(rows, width), outputStream);
+
+        assertEquals(outputStream.size(), length);
+
+        return outputStream.toByteArray();
+    }
+
+    @Test
+    @DisplayName("In Bändern parallel kodierte Bilder stimmen mit zeilenweise kodierten Bildern überein.")
+    void bandsTest() throws IOException {
+        Random random = new Random(18);
+        ForkJoinPool serialPool = new ForkJoinPool(1);
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+
+        try {
+            for (int width : new int[]{1, 2, 7, 130, 300}) {
+                for (int height : new int[]{1, 2, 9, 40}) {
+                    byte[][] rows = createImage(random, width, height);
+                    byte[] expected = encode(new RLECompressionWriter(serialPool, 0), rows, width);
+
+                    for (int rowsPerBand : new int[]{1, 2, 3, 8}) {
+                        byte[] actual = encode(new RLECompressionWriter(parallelPool, rowsPerBand), rows, width);
+
+                        assertArrayEquals(expected, actual, width + "x" + height + " mit " + rowsPerBand + " Bildzeilen pro Band");
+                    }
+                }
+            }
+        } finally {
+            serialPool.shutdown();
+            parallelPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package propra.imageconverter.image.compression.selector;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import propra.imageconverter.image.compression.CompressionType;
+import propra.imageconverter.image.compression.InMemoryPixelIterator;
+import propra.imageconverter.image.compression.iterator.PixelIterator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompressionSizeEstimatorTest {
+	/**
+	 * Erzeugt ein zufälliges Bild mit wenigen Farben, damit
+	 * sowohl Wiederholungen als auch unterschiedliche Bildpunkte vorkommen.
+	 */
+	private static byte[][] randomImage(Random random, int width, int height, int numberOfColors) {
+		byte[][] rows = new byte[height][width * 3];
+
+		for (byte[] row : rows) {
+			for (int i = 0; i < width * 3; i += 3) {
+				int color = random.nextInt(numberOfColors);
+
+				row[i] = (byte) color;
+				row[i + 1] = (byte) (color * 7);
+				row[i + 2] = (byte) (color * 13);
+			}
+		}
+
+		return rows;
+	}
+
+	@Test
+	@DisplayName("Die vorab bestimmten Längen stimmen mit den tatsächlich geschriebenen Längen überein.")
+	void exactLengthTest() throws IOException {
+		Random random = new Random(3);
+
+		for (int width : new int[]{1, 2, 3, 129, 300}) {
+			for (int numberOfColors : new int[]{1, 2, 5, 300}) {
+				byte[][] rows = randomImage(random, width, 7, numberOfColors);
+				PixelIterator pixelIterator = InMemoryPixelIterator.of(rows, width);
+
+				CompressionSizeEstimator estimator = CompressionSizeEstimator.analyze(pixelIterator, rows.length);
+
+				for (CompressionType compressionType : List.of(CompressionType.NO_COMPRESSION, CompressionType.RLE, CompressionType.HUFFMAN)) {
+					ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+					long writtenLength = compressionType.getCompressionWriter().write(pixelIterator, outputStream);
+					pixelIterator.reset();
+
+					assertEquals(writtenLength, estimator.lengthFor(compressionType), compressionType + ", Breite " + width + ", Farben " + numberOfColors);
+				}
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Alle Auswahlmethoden wählen bei eindeutigem Optimum dieselbe Kompression.")
+	void selectionModesAgreeTest() throws IOException {
+		List<CompressionType> available = List.of(CompressionType.NO_COMPRESSION, CompressionType.RLE, CompressionType.HUFFMAN);
+
+		// Nur eine Farbe: RLE ist optimal
+		PixelIterator uniform = InMemoryPixelIterator.of(randomImage(new Random(1), 64, 64, 1), 64);
+		// Zufällige Bytes: unkomprimiert ist optimal
+		byte[][] noise = new byte[64][64 * 3];
+		Random random = new Random(2);
+		for (byte[] row : noise)
+			random.nextBytes(row);
+		PixelIterator noisy = InMemoryPixelIterator.of(noise, 64);
+
+		for (AutoSelectionMode mode : AutoSelectionMode.values()) {
+			assertEquals(CompressionType.RLE, CompressionSelector.findOptimalCompression(available, uniform, mode));
+			assertEquals(CompressionType.NO_COMPRESSION, CompressionSelector.findOptimalCompression(available, noisy, mode));
+		}
+	}
+}
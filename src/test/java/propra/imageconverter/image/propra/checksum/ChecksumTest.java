@@ -2,10 +2,20 @@ package propra.imageconverter.image.propra.checksum;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import propra.imageconverter.binary.InputMode;
+import propra.imageconverter.binary.ReadWriteFile;
 import propra.imageconverter.image.propra.Checksum;
+import propra.imageconverter.image.propra.ChecksumCalculator;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -48,4 +58,68 @@ class ChecksumTest {
 		assertEquals(0x01820283, calcForByteArray(new byte[] { (byte) 255, (byte) 128 }));
 
 	}
-}
\ No newline at end of file
+
+	@Test
+	@DisplayName("Die blockweise berechnete Prüfsumme stimmt mit der byteweise berechneten überein.")
+	void blockChecksumTest() throws IOException {
+		assertEquals(0x01CA046E, Checksum.calcChecksum("test".getBytes(), 0, 4));
+		assertEquals(0x00000001, Checksum.calcChecksum(new byte[0], 0, 0));
+
+		Random random = new Random(1);
+		for (int length : new int[]{1, 255, 65513, 65536, 200000}) {
+			byte[] data = new byte[length];
+			random.nextBytes(data);
+
+			long expected = calcForByteArray(data);
+
+			assertEquals(expected, Checksum.calcChecksum(data, 0, length));
+			assertEquals(expected, Checksum.calcChecksum(ByteBuffer.wrap(data)));
+
+			ByteBuffer directBuffer = ByteBuffer.allocateDirect(length);
+			directBuffer.put(data).flip();
+			assertEquals(expected, Checksum.calcChecksum(directBuffer));
+		}
+
+		// Alle Bytes 0xFF, damit die Summen möglichst groß werden;
+		// die Länge überschreitet die Blockgröße des ChecksumCalculator
+		byte[] maximalData = new byte[(1 << 24) + 5];
+		Arrays.fill(maximalData, (byte) 0xFF);
+		assertEquals(calcForByteArray(maximalData), Checksum.calcChecksum(maximalData, 0, maximalData.length));
+	}
+
+	@Test
+	@DisplayName("Zusammengeführte Teilergebnisse ergeben die Prüfsumme über alle Daten.")
+	void appendTest() throws IOException {
+		byte[] data = new byte[70000];
+		new Random(42).nextBytes(data);
+
+		long expected = calcForByteArray(data);
+
+		for (int split : new int[]{0, 1, 2, 3, 65512, 65513, 65514, 69999, 70000}) {
+			ChecksumCalculator first = new ChecksumCalculator();
+			first.update(data, 0, split);
+
+			ChecksumCalculator second = new ChecksumCalculator();
+			second.update(data, split, data.length - split);
+
+			first.append(second);
+
+			assertEquals(data.length, first.getNumberOfBytes());
+			assertEquals(expected, first.getChecksum(), "Aufteilung bei " + split);
+		}
+	}
+
+	@Test
+	@DisplayName("Die parallel über eine abgebildete Datei berechnete Prüfsumme stimmt mit der sequentiellen überein.")
+	void parallelChecksumTest(@TempDir Path tempDir) throws IOException {
+		byte[] data = new byte[5 * 1024 * 1024 + 17];
+		new Random(7).nextBytes(data);
+
+		Path file = tempDir.resolve("data.bin");
+		Files.write(file, data);
+
+		try (ReadWriteFile readWriteFile = ReadWriteFile.createReadWriteFile(new RandomAccessFile(file.toFile(), "r"), InputMode.MAPPED)) {
+			assertEquals(calcForByteArray(data), Checksum.calcChecksum(data.length, readWriteFile.inputStream(0)));
+		}
+	}
+}